@@ -5,4 +5,16 @@
 #include <sys/syscall.h>
 #include <netinet/in.h>
 #include <sys/mman.h>
-#include <stdatomic.h>
\ No newline at end of file
+#include <stdatomic.h>
+#include <errno.h>
+#include <poll.h>
+#include <sys/eventfd.h>
+#include <limits.h>
+#include <netinet/tcp.h>
+#include <sys/time.h>
+#include <sys/epoll.h>
+#include <netinet/udp.h>
+#include <sys/socket.h>
+#include <sys/un.h>
+#include <sys/sendfile.h>
+#include <linux/tls.h>
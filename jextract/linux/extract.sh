@@ -45,9 +45,133 @@ jextract -t it.auties.leap.socket.implementation.linux --output "./../../src/mai
 --include-struct sockaddr_in \
 --include-struct in_addr \
 --include-function getsockopt \
+--include-function setsockopt \
+--include-function epoll_create1 \
+--include-function epoll_ctl \
+--include-function epoll_wait \
 --include-typedef socklen_t \
 --include-constant SOL_SOCKET \
 --include-constant SO_ERROR \
 --include-constant IOSQE_IO_DRAIN \
 --include-constant MSG_PEEK \
---include-constant MSG_DONTWAIT
\ No newline at end of file
+--include-constant MSG_DONTWAIT \
+--include-constant IORING_OP_READ_FIXED \
+--include-constant IORING_OP_WRITE_FIXED \
+--include-constant IORING_REGISTER_BUFFERS \
+--include-struct io_uring_buf_reg \
+--include-struct io_uring_buf \
+--include-constant IORING_REGISTER_PBUF_RING \
+--include-constant IORING_RECV_MULTISHOT \
+--include-constant IOSQE_BUFFER_SELECT \
+--include-constant IORING_CQE_F_BUFFER \
+--include-constant IORING_CQE_F_MORE \
+--include-constant IORING_CQE_BUFFER_SHIFT \
+--include-constant ENOBUFS \
+--include-constant IORING_SETUP_SQPOLL \
+--include-constant IORING_SETUP_SQ_AFF \
+--include-constant IORING_SETUP_CQSIZE \
+--include-constant IORING_SETUP_R_DISABLED \
+--include-constant IORING_SETUP_COOP_TASKRUN \
+--include-constant IORING_SETUP_SINGLE_ISSUER \
+--include-constant IORING_SETUP_DEFER_TASKRUN \
+--include-constant IORING_REGISTER_ENABLE_RINGS \
+--include-constant IORING_ENTER_SQ_WAKEUP \
+--include-constant IORING_SQ_NEED_WAKEUP \
+--include-constant IORING_OP_POLL_ADD \
+--include-constant IORING_POLL_ADD_MULTI \
+--include-constant POLLIN \
+--include-constant __NR_eventfd2 \
+--include-constant EFD_NONBLOCK \
+--include-constant EFD_CLOEXEC \
+--include-constant IORING_OP_READV \
+--include-constant IOV_MAX \
+--include-struct __kernel_timespec \
+--include-constant IORING_OP_ASYNC_CANCEL \
+--include-constant IORING_OP_LINK_TIMEOUT \
+--include-constant IOSQE_IO_LINK \
+--include-constant ECANCELED \
+--include-struct in6_addr \
+--include-struct sockaddr_in6 \
+--include-constant AF_INET6 \
+--include-constant SO_DOMAIN \
+--include-constant IORING_OP_TIMEOUT \
+--include-constant ETIME \
+--include-constant IPPROTO_TCP \
+--include-constant TCP_NODELAY \
+--include-constant TCP_CORK \
+--include-constant TCP_QUICKACK \
+--include-constant TCP_USER_TIMEOUT \
+--include-constant SO_REUSEADDR \
+--include-constant SO_REUSEPORT \
+--include-constant SO_KEEPALIVE \
+--include-constant SO_SNDBUF \
+--include-constant SO_RCVBUF \
+--include-constant SO_BUSY_POLL \
+--include-constant SO_RCVTIMEO \
+--include-constant SO_SNDTIMEO \
+--include-struct timeval \
+--include-constant TCP_FASTOPEN_CONNECT \
+--include-constant IORING_OP_SEND_ZC \
+--include-constant IORING_CQE_F_NOTIF \
+--include-constant IORING_RECVSEND_FIXED_BUF \
+--include-constant EINVAL \
+--include-constant EOPNOTSUPP \
+--include-union epoll_data \
+--include-struct epoll_event \
+--include-constant EPOLL_CLOEXEC \
+--include-constant EPOLL_CTL_ADD \
+--include-constant EPOLL_CTL_DEL \
+--include-constant EPOLL_CTL_MOD \
+--include-constant EAGAIN \
+--include-constant EINPROGRESS \
+--include-constant EINTR \
+--include-constant EPOLLIN \
+--include-constant EPOLLOUT \
+--include-constant EPOLLERR \
+--include-constant EPOLLHUP \
+--include-constant EPOLLRDHUP \
+--include-constant EPOLLET \
+--include-constant EISCONN \
+--include-constant EALREADY \
+--include-struct msghdr \
+--include-struct mmsghdr \
+--include-struct cmsghdr \
+--include-function recvmmsg \
+--include-function sendmmsg \
+--include-function getsockname \
+--include-function bind \
+--include-constant SOCK_DGRAM \
+--include-constant IPPROTO_UDP \
+--include-constant SOL_UDP \
+--include-constant UDP_SEGMENT \
+--include-constant UDP_GRO \
+--include-constant EMSGSIZE \
+--include-constant EIO \
+--include-struct sockaddr_un \
+--include-constant AF_UNIX \
+--include-function pipe2 \
+--include-function sendfile \
+--include-constant IORING_OP_SPLICE \
+--include-constant SPLICE_F_MOVE \
+--include-constant O_RDONLY \
+--include-constant O_CLOEXEC \
+--include-function open \
+--include-struct tls_crypto_info \
+--include-struct tls12_crypto_info_aes_gcm_128 \
+--include-struct tls12_crypto_info_aes_gcm_256 \
+--include-struct tls12_crypto_info_chacha20_poly1305 \
+--include-constant SOL_TLS \
+--include-constant TCP_ULP \
+--include-constant TLS_TX \
+--include-constant TLS_RX \
+--include-constant TLS_1_2_VERSION \
+--include-constant TLS_1_3_VERSION \
+--include-constant TLS_CIPHER_AES_GCM_128 \
+--include-constant TLS_CIPHER_AES_GCM_256 \
+--include-constant TLS_CIPHER_CHACHA20_POLY1305 \
+--include-constant MAP_PRIVATE \
+--include-constant MAP_ANONYMOUS \
+--include-constant MAP_HUGETLB \
+--include-constant MSG_TRUNC \
+--include-constant EBUSY \
+--include-constant AF_UNSPEC
\ No newline at end of file
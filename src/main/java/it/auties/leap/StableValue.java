@@ -15,6 +15,10 @@ public final class StableValue<T> {
         return new StableValue<>();
     }
 
+    public boolean trySet(T newValue) {
+        return value.compareAndSet(null, newValue);
+    }
+
     public T orElseSet(Supplier<T> newValue) {
         var current = value.getAcquire();
         if (current != null) {
@@ -6,9 +6,12 @@ import it.auties.leap.http.config.HttpConfig;
 import it.auties.leap.http.exchange.body.HttpBodyDeserializer;
 import it.auties.leap.http.exchange.request.HttpRequest;
 import it.auties.leap.http.exchange.response.HttpResponse;
+import it.auties.leap.socket.SocketBufferPool;
 import it.auties.leap.socket.SocketClient;
+import it.auties.leap.socket.SocketOption;
 import it.auties.leap.socket.SocketProtocol;
 import it.auties.leap.socket.async.AsyncSocketClient;
+import it.auties.leap.socket.async.transportLayer.AsyncSocketTransportLayerFactory;
 
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
@@ -20,6 +23,8 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 public final class AsyncHttpClient implements HttpClient {
+    private static final int READ_AHEAD_SIZE = 16384;
+
     private final HttpConfig config;
     private final Map<InetSocketAddress, Connection> clients;
     private AsyncHttpClient(HttpConfig config) {
@@ -40,8 +45,16 @@ public final class AsyncHttpClient implements HttpClient {
         var client = clients.computeIfAbsent(address, (_) -> {
             var underlyingSocket = SocketClient.builder()
                     .async(SocketProtocol.TCP)
+                    .transportLayer(config.unixSocket().map(AsyncSocketTransportLayerFactory::linux).orElse(null))
                     .secure(config.tlsContext())
                     .build();
+            if (config.tcpNoDelay()) {
+                underlyingSocket.setOption(SocketOption.tcpNoDelay(), true);
+            }
+            // The status line and the headers are parsed a byte at a time, which would otherwise cost a read each
+            if (underlyingSocket.getOption(SocketOption.readAheadSize()) == 0) {
+                underlyingSocket.setOption(SocketOption.readAheadSize(), READ_AHEAD_SIZE);
+            }
             return new Connection(address, underlyingSocket);
         });
         return client.send(config.version(), request, handler);
@@ -56,7 +69,8 @@ public final class AsyncHttpClient implements HttpClient {
             case "https" -> 443;
             default -> throw new IllegalStateException("Unexpected value: " + uriScheme);
         };
-        return config.proxy().isPresent() ? InetSocketAddress.createUnresolved(uriHost, fixedPort)
+        // A unix socket doesn't need the host to be resolved, it's still used to name the server
+        return config.proxy().isPresent() || config.unixSocket().isPresent() ? InetSocketAddress.createUnresolved(uriHost, fixedPort)
                 : new InetSocketAddress(uriHost, fixedPort);
     }
 
@@ -98,10 +112,17 @@ public final class AsyncHttpClient implements HttpClient {
                 connectionFuture = socket.connect(recipient);
             }
             return connectionFuture.thenCompose(_ -> {
-                        var buffer = ByteBuffer.allocateDirect(1024);
-                        request.serialize(version, buffer);
+                        var lease = SocketBufferPool.shared().lease(1024);
+                        var buffer = lease.asByteBuffer();
+                        try {
+                            request.serialize(version, buffer);
+                        } catch (Throwable throwable) {
+                            lease.release();
+                            throw throwable;
+                        }
                         buffer.flip();
                         return socket.write(buffer)
+                                .whenComplete((_, _) -> lease.release())
                                 .thenCompose(_ -> HttpResponse.deserializeAsync(socket, handler));
                     })
                     .thenApply(response -> {
@@ -1,6 +1,7 @@
 package it.auties.leap.http.config;
 
 import it.auties.leap.http.HttpVersion;
+import it.auties.leap.socket.SocketUnixAddress;
 import it.auties.leap.tls.context.TlsContext;
 
 import java.net.CookieHandler;
@@ -18,14 +19,18 @@ public final class HttpConfig {
     private final URI proxy;
     private final HttpVersion version;
     private final HttpRedirectHandler redirectPolicy;
+    private final SocketUnixAddress unixSocket;
+    private final boolean tcpNoDelay;
 
-    HttpConfig(TlsContext tlsContext, CookieHandler cookieHandler, Duration keepAlive, URI proxy, HttpVersion version, HttpRedirectHandler redirectPolicy) {
+    HttpConfig(TlsContext tlsContext, CookieHandler cookieHandler, Duration keepAlive, URI proxy, HttpVersion version, HttpRedirectHandler redirectPolicy, SocketUnixAddress unixSocket, boolean tcpNoDelay) {
         this.tlsContext = tlsContext;
         this.cookieHandler = cookieHandler;
         this.keepAlive = keepAlive;
         this.proxy = proxy;
         this.version = version;
         this.redirectPolicy = redirectPolicy;
+        this.unixSocket = unixSocket;
+        this.tcpNoDelay = tcpNoDelay;
     }
 
     public static HttpConfigBuilder builder() {
@@ -60,6 +65,14 @@ public final class HttpConfig {
         return redirectPolicy;
     }
 
+    public Optional<SocketUnixAddress> unixSocket() {
+        return Optional.ofNullable(unixSocket);
+    }
+
+    public boolean tcpNoDelay() {
+        return tcpNoDelay;
+    }
+
     public HttpConfig withTlsContext(TlsContext tlsContext) {
         return new HttpConfig(
                 tlsContext,
@@ -67,7 +80,9 @@ public final class HttpConfig {
                 this.keepAlive,
                 this.proxy,
                 this.version,
-                this.redirectPolicy
+                this.redirectPolicy,
+                this.unixSocket,
+                this.tcpNoDelay
         );
     }
 
@@ -78,7 +93,9 @@ public final class HttpConfig {
                 this.keepAlive,
                 this.proxy,
                 this.version,
-                this.redirectPolicy
+                this.redirectPolicy,
+                this.unixSocket,
+                this.tcpNoDelay
         );
     }
 
@@ -89,7 +106,9 @@ public final class HttpConfig {
                 keepAlive,
                 this.proxy,
                 this.version,
-                this.redirectPolicy
+                this.redirectPolicy,
+                this.unixSocket,
+                this.tcpNoDelay
         );
     }
 
@@ -100,7 +119,9 @@ public final class HttpConfig {
                 this.keepAlive,
                 proxy,
                 this.version,
-                this.redirectPolicy
+                this.redirectPolicy,
+                this.unixSocket,
+                this.tcpNoDelay
         );
     }
 
@@ -111,7 +132,9 @@ public final class HttpConfig {
                 this.keepAlive,
                 this.proxy,
                 version,
-                this.redirectPolicy
+                this.redirectPolicy,
+                this.unixSocket,
+                this.tcpNoDelay
         );
     }
 
@@ -122,7 +145,35 @@ public final class HttpConfig {
                 this.keepAlive,
                 this.proxy,
                 this.version,
-                redirectPolicy
+                redirectPolicy,
+                this.unixSocket,
+                this.tcpNoDelay
+        );
+    }
+
+    public HttpConfig withUnixSocket(SocketUnixAddress unixSocket) {
+        return new HttpConfig(
+                this.tlsContext,
+                this.cookieHandler,
+                this.keepAlive,
+                this.proxy,
+                this.version,
+                this.redirectPolicy,
+                unixSocket,
+                this.tcpNoDelay
+        );
+    }
+
+    public HttpConfig withTcpNoDelay(boolean tcpNoDelay) {
+        return new HttpConfig(
+                this.tlsContext,
+                this.cookieHandler,
+                this.keepAlive,
+                this.proxy,
+                this.version,
+                this.redirectPolicy,
+                this.unixSocket,
+                tcpNoDelay
         );
     }
 }
@@ -1,6 +1,7 @@
 package it.auties.leap.http.config;
 
 import it.auties.leap.http.HttpVersion;
+import it.auties.leap.socket.SocketUnixAddress;
 import it.auties.leap.tls.context.TlsClientContextBuilder;
 import it.auties.leap.tls.context.TlsContext;
 import it.auties.leap.tls.ciphersuite.TlsCipherSuite;
@@ -85,6 +86,8 @@ public final class HttpConfigBuilder {
     private URI proxy;
     private HttpVersion version;
     private HttpRedirectHandler redirectHandler;
+    private SocketUnixAddress unixSocket;
+    private boolean tcpNoDelay;
 
     HttpConfigBuilder() {
 
@@ -125,6 +128,18 @@ public final class HttpConfigBuilder {
         return this;
     }
 
+    // Requests are sent to a local server, like a sidecar proxy, through the unix socket instead of the host in their uri
+    public HttpConfigBuilder unixSocket(SocketUnixAddress unixSocket) {
+        this.unixSocket = unixSocket;
+        return this;
+    }
+
+    // Requests are small writes, so Nagle's algorithm can hold them back until the previous segment is acknowledged
+    public HttpConfigBuilder tcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
     public HttpConfig build() {
         return new HttpConfig(
                 Objects.requireNonNullElseGet(tlsContext, DEFAULT_TLS_CONTEXT::build),
@@ -132,7 +147,9 @@ public final class HttpConfigBuilder {
                 Objects.requireNonNullElse(keepAlive, DEFAULT_KEEP_ALIVE),
                 proxy,
                 Objects.requireNonNullElse(version, HttpVersion.HTTP_1_1),
-                Objects.requireNonNullElse(redirectHandler, HttpRedirectHandler.normal())
+                Objects.requireNonNullElse(redirectHandler, HttpRedirectHandler.normal()),
+                unixSocket,
+                tcpNoDelay
         );
     }
 }
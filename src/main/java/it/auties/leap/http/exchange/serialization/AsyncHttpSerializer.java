@@ -5,6 +5,7 @@ import it.auties.leap.http.exchange.body.HttpBodyDeserializer;
 import it.auties.leap.http.exchange.headers.HttpMutableHeaders;
 import it.auties.leap.http.exchange.response.HttpResponse;
 import it.auties.leap.http.exchange.response.HttpResponseStatus;
+import it.auties.leap.socket.SocketBufferPool;
 import it.auties.leap.socket.SocketOption;
 import it.auties.leap.socket.async.AsyncSocketIO;
 
@@ -17,6 +18,7 @@ import static it.auties.leap.http.exchange.serialization.HttpConstants.*;
 public final class AsyncHttpSerializer<T> {
     private AsyncSocketIO client;
     private HttpBodyDeserializer<T> handler;
+    private SocketBufferPool.Lease readerLease;
     private ByteBuffer reader;
 
     private Integer major;
@@ -34,9 +36,11 @@ public final class AsyncHttpSerializer<T> {
     public CompletableFuture<HttpResponse<T>> decode(AsyncSocketIO client, HttpBodyDeserializer<T> handler) {
         this.client = client;
         this.handler = handler;
-        this.reader = ByteBuffer.allocateDirect(client.getOption(SocketOption.readBufferSize()));
+        this.readerLease = SocketBufferPool.shared().lease(client.getOption(SocketOption.readBufferSize()));
+        this.reader = readerLease.asByteBuffer();
         return client.read(readBuffer())
-                .thenCompose(_ -> checkHeader());
+                .thenCompose(_ -> checkHeader())
+                .whenComplete((_, _) -> readerLease.release());
     }
 
     private CompletableFuture<HttpResponse<T>> checkHeader() {
@@ -241,10 +245,17 @@ public final class AsyncHttpSerializer<T> {
                 .version(version)
                 .status(status)
                 .headers(headers.toImmutableHeaders())
-                .body(handler.deserialize(version, headers, buffer))
+                .body(handler.deserialize(version, headers, copyBody(buffer)))
                 .build();
     }
 
+    // The reader goes back to the pool once the response is parsed, so the body can't be a view of it
+    private ByteBuffer copyBody(ByteBuffer buffer) {
+        var body = ByteBuffer.allocate(buffer.remaining());
+        body.put(buffer);
+        return body.flip();
+    }
+
     private int skipJunk() {
         var position = reader.position();
         var limit = reader.limit();
@@ -0,0 +1,295 @@
+package it.auties.leap.socket;
+
+import it.auties.leap.StableValue;
+import it.auties.leap.socket.implementation.linux.LinuxKernel;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Native buffers are carved out of slabs that are never unmapped, so the off-heap footprint grows up to the capacity of the pool and then stays flat.
+// A buffer is rounded up to a power of two between 4 KiB and 1 MiB and goes back to the free list of its size when its lease is released,
+// without waiting for the GC to notice that an automatic arena became unreachable.
+// When the slabs are exhausted, or the buffer is larger than the largest size, the lease gets a direct buffer of its own that the GC frees
+public final class SocketBufferPool {
+    private static final StableValue<SocketBufferPool> SHARED = StableValue.of();
+    private static final Cleaner THREAD_CACHE_CLEANER = Cleaner.create();
+    private static final long DEFAULT_CAPACITY = 64L * 1024 * 1024;
+    private static final int MIN_SIZE_SHIFT = 12;
+    private static final int MAX_SIZE_SHIFT = 20;
+    // The size of a huge page on x86_64 and aarch64, so a slab is mapped by a single TLB entry when huge pages are enabled
+    private static final long SLAB_SIZE = 2L * 1024 * 1024;
+    private static final long SLAB_ALIGNMENT = 4096;
+    private static final int THREAD_CACHE_SIZE = 8;
+
+    private final long capacity;
+    private final boolean hugePages;
+    private final SizeClass[] sizeClasses;
+    private final AtomicLong reserved;
+    private final ThreadLocal<ThreadCache> threadCache;
+
+    private SocketBufferPool(long capacity, boolean hugePages) {
+        this.capacity = capacity;
+        this.hugePages = hugePages && isLinux();
+        this.sizeClasses = new SizeClass[MAX_SIZE_SHIFT - MIN_SIZE_SHIFT + 1];
+        for (var index = 0; index < sizeClasses.length; index++) {
+            sizeClasses[index] = new SizeClass(index, 1 << (MIN_SIZE_SHIFT + index));
+        }
+        this.reserved = new AtomicLong();
+        this.threadCache = ThreadLocal.withInitial(this::createThreadCache);
+    }
+
+    // The chunks cached by a thread go back to the shared free lists once it dies, or they would count against the capacity forever
+    private ThreadCache createThreadCache() {
+        var cache = new ThreadCache(sizeClasses.length);
+        THREAD_CACHE_CLEANER.register(Thread.currentThread(), new ThreadCacheDrain(sizeClasses, cache));
+        return cache;
+    }
+
+    public static SocketBufferPool of(long capacity, boolean hugePages) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+
+        return new SocketBufferPool(capacity, hugePages);
+    }
+
+    public static SocketBufferPool shared() {
+        return SHARED.orElseSet(() -> new SocketBufferPool(DEFAULT_CAPACITY, false));
+    }
+
+    // Only succeeds before the shared pool is used for the first time
+    public static boolean setShared(SocketBufferPool pool) {
+        return SHARED.trySet(pool);
+    }
+
+    private static boolean isLinux() {
+        var name = System.getProperty("os.name");
+        return name != null && name.toLowerCase().contains("linux");
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public boolean hugePages() {
+        return hugePages;
+    }
+
+    // The bytes of the slabs mapped so far, whether their chunks are leased or free: it only grows, up to the capacity
+    public long reserved() {
+        return reserved.get();
+    }
+
+    public Lease lease(long size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size: " + size);
+        }
+
+        var sizeClass = sizeClass(size);
+        if (sizeClass == null) {
+            return leaseOverflow(size);
+        }
+
+        var chunk = poll(sizeClass);
+        if (chunk == null) {
+            return leaseOverflow(size);
+        }
+
+        return new Lease(this, sizeClass, chunk, size);
+    }
+
+    private SizeClass sizeClass(long size) {
+        if (size > 1L << MAX_SIZE_SHIFT) {
+            return null;
+        }
+
+        var shift = Math.max(MIN_SIZE_SHIFT, 64 - Long.numberOfLeadingZeros(size - 1));
+        return sizeClasses[shift - MIN_SIZE_SHIFT];
+    }
+
+    private MemorySegment poll(SizeClass sizeClass) {
+        var cache = cachedFree(sizeClass);
+        if (cache != null) {
+            return cache;
+        }
+
+        var chunk = sizeClass.free.poll();
+        if (chunk != null) {
+            return chunk;
+        }
+
+        return carveSlab(sizeClass);
+    }
+
+    // Virtual threads are too many and too short-lived for a cache of their own: they go straight to the shared free lists.
+    // The platform threads that touch the pool are the pollers and the executors of the caller, which live as long as the application
+    private MemorySegment cachedFree(SizeClass sizeClass) {
+        if (Thread.currentThread().isVirtual()) {
+            return null;
+        }
+
+        return threadCache.get().poll(sizeClass.index);
+    }
+
+    private MemorySegment carveSlab(SizeClass sizeClass) {
+        long current;
+        do {
+            current = reserved.get();
+            if (current + SLAB_SIZE > capacity) {
+                return null;
+            }
+        } while (!reserved.compareAndSet(current, current + SLAB_SIZE));
+
+        var slab = mapSlab();
+        var chunks = SLAB_SIZE / sizeClass.size;
+        for (var index = 1; index < chunks; index++) {
+            sizeClass.free.offer(slab.asSlice(index * sizeClass.size, sizeClass.size));
+        }
+        return slab.asSlice(0, sizeClass.size);
+    }
+
+    private MemorySegment mapSlab() {
+        if (hugePages) {
+            var slab = LinuxKernel.mmap(
+                    MemorySegment.NULL,
+                    SLAB_SIZE,
+                    LinuxKernel.PROT_READ() | LinuxKernel.PROT_WRITE(),
+                    LinuxKernel.MAP_PRIVATE() | LinuxKernel.MAP_ANONYMOUS() | LinuxKernel.MAP_HUGETLB(),
+                    -1,
+                    0
+            );
+            // No huge pages were reserved (vm.nr_hugepages): regular pages work the same, only with more TLB misses
+            if (slab.address() != LinuxKernel.MAP_FAILED().address()) {
+                return slab.reinterpret(SLAB_SIZE);
+            }
+        }
+
+        return Arena.global().allocate(SLAB_SIZE, SLAB_ALIGNMENT);
+    }
+
+    // A shared arena would be the only one that can be closed by whichever thread releases the lease, but closing it synchronizes with every thread:
+    // a direct buffer costs nothing to drop, and the GC frees it
+    private Lease leaseOverflow(long size) {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid buffer size: " + size);
+        }
+
+        return new Lease(this, null, MemorySegment.ofBuffer(ByteBuffer.allocateDirect((int) size)), size);
+    }
+
+    private void release(SizeClass sizeClass, MemorySegment chunk) {
+        if (!Thread.currentThread().isVirtual() && threadCache.get().offer(sizeClass.index, chunk)) {
+            return;
+        }
+
+        sizeClass.free.offer(chunk);
+    }
+
+    public static final class Lease implements AutoCloseable {
+        private final SocketBufferPool pool;
+        private final SizeClass sizeClass;
+        private final MemorySegment chunk;
+        private final MemorySegment segment;
+        private final AtomicBoolean released;
+
+        private Lease(SocketBufferPool pool, SizeClass sizeClass, MemorySegment chunk, long size) {
+            this.pool = pool;
+            this.sizeClass = sizeClass;
+            this.chunk = chunk;
+            this.segment = chunk.asSlice(0, size);
+            this.released = new AtomicBoolean();
+        }
+
+        public MemorySegment segment() {
+            return segment;
+        }
+
+        public ByteBuffer asByteBuffer() {
+            return segment.asByteBuffer();
+        }
+
+        public boolean isReleased() {
+            return released.get();
+        }
+
+        // Releasing a lease twice is a no-op, using its segment after the release is not:
+        // the memory may already belong to another lease
+        public void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+
+            if (sizeClass != null) {
+                pool.release(sizeClass, chunk);
+            }
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+
+    private static final class SizeClass {
+        private final int index;
+        private final long size;
+        private final ConcurrentLinkedQueue<MemorySegment> free;
+
+        private SizeClass(int index, long size) {
+            this.index = index;
+            this.size = size;
+            this.free = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    // Runs on the cleaner thread once the owner of the cache is unreachable, so nothing else can touch the cache anymore
+    private record ThreadCacheDrain(SizeClass[] sizeClasses, ThreadCache cache) implements Runnable {
+        @Override
+        public void run() {
+            for (var sizeClass : sizeClasses) {
+                MemorySegment chunk;
+                while ((chunk = cache.poll(sizeClass.index)) != null) {
+                    sizeClass.free.offer(chunk);
+                }
+            }
+        }
+    }
+
+    private static final class ThreadCache {
+        private final MemorySegment[][] chunks;
+        private final int[] counts;
+
+        private ThreadCache(int sizeClasses) {
+            this.chunks = new MemorySegment[sizeClasses][THREAD_CACHE_SIZE];
+            this.counts = new int[sizeClasses];
+        }
+
+        private MemorySegment poll(int sizeClass) {
+            var count = counts[sizeClass];
+            if (count == 0) {
+                return null;
+            }
+
+            var chunk = chunks[sizeClass][--count];
+            chunks[sizeClass][count] = null;
+            counts[sizeClass] = count;
+            return chunk;
+        }
+
+        private boolean offer(int sizeClass, MemorySegment chunk) {
+            var count = counts[sizeClass];
+            if (count == THREAD_CACHE_SIZE) {
+                return false;
+            }
+
+            chunks[sizeClass][count] = chunk;
+            counts[sizeClass] = count + 1;
+            return true;
+        }
+    }
+}
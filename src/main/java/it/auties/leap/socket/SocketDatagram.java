@@ -0,0 +1,48 @@
+package it.auties.leap.socket;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// A payload larger than segmentSize holds several datagrams of segmentSize bytes back to back, only the last one can be shorter:
+// sending it lets the kernel split it (UDP_SEGMENT), and receiving it means the kernel coalesced them (UDP_GRO).
+// The address is null when the datagram goes to the peer of a connected socket.
+// A received datagram is truncated when it was larger than the receive slot: the payload only holds its first bytes
+public record SocketDatagram(InetSocketAddress address, ByteBuffer payload, int segmentSize, boolean truncated) {
+    public SocketDatagram {
+        Objects.requireNonNull(payload, "payload cannot be null");
+        if (segmentSize < 0) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+    }
+
+    public SocketDatagram(InetSocketAddress address, ByteBuffer payload, int segmentSize) {
+        this(address, payload, segmentSize, false);
+    }
+
+    public SocketDatagram(InetSocketAddress address, ByteBuffer payload) {
+        this(address, payload, 0, false);
+    }
+
+    public SocketDatagram(ByteBuffer payload) {
+        this(null, payload, 0, false);
+    }
+
+    public boolean isSegmented() {
+        return segmentSize > 0 && payload.remaining() > segmentSize;
+    }
+
+    public List<ByteBuffer> segments() {
+        if (!isSegmented()) {
+            return List.of(payload);
+        }
+
+        var segments = new ArrayList<ByteBuffer>();
+        for (var position = payload.position(); position < payload.limit(); position += segmentSize) {
+            segments.add(payload.slice(position, Math.min(segmentSize, payload.limit() - position)));
+        }
+        return segments;
+    }
+}
@@ -1,5 +1,7 @@
 package it.auties.leap.socket;
 
+import java.time.Duration;
+
 public sealed abstract class SocketOption<VALUE> {
     public static SocketOption<Integer> readBufferSize() {
         return ReadBufferSize.OPTION;
@@ -9,10 +11,66 @@ public sealed abstract class SocketOption<VALUE> {
         return WriteBufferSize.OPTION;
     }
 
+    public static SocketOption<Integer> readAheadSize() {
+        return ReadAheadSize.OPTION;
+    }
+
     public static SocketOption<Boolean> keepAlive() {
         return KeepAlive.OPTION;
     }
 
+    public static SocketOption<Duration> connectTimeout() {
+        return ConnectTimeout.OPTION;
+    }
+
+    public static SocketOption<Duration> readTimeout() {
+        return ReadTimeout.OPTION;
+    }
+
+    public static SocketOption<Duration> writeTimeout() {
+        return WriteTimeout.OPTION;
+    }
+
+    public static SocketOption<Boolean> tcpNoDelay() {
+        return TcpNoDelay.OPTION;
+    }
+
+    public static SocketOption<Integer> receiveBufferSize() {
+        return ReceiveBufferSize.OPTION;
+    }
+
+    public static SocketOption<Integer> sendBufferSize() {
+        return SendBufferSize.OPTION;
+    }
+
+    public static SocketOption<Boolean> tcpQuickAck() {
+        return TcpQuickAck.OPTION;
+    }
+
+    public static SocketOption<Boolean> tcpCork() {
+        return TcpCork.OPTION;
+    }
+
+    public static SocketOption<Duration> busyPoll() {
+        return BusyPoll.OPTION;
+    }
+
+    public static SocketOption<Duration> tcpUserTimeout() {
+        return TcpUserTimeout.OPTION;
+    }
+
+    public static SocketOption<Boolean> reuseAddress() {
+        return ReuseAddress.OPTION;
+    }
+
+    public static SocketOption<Boolean> reusePort() {
+        return ReusePort.OPTION;
+    }
+
+    public static SocketOption<Boolean> tcpFastOpen() {
+        return TcpFastOpen.OPTION;
+    }
+
     private final String name;
     private final VALUE defaultValue;
     private SocketOption(String name, VALUE defaultValue) {
@@ -22,6 +80,8 @@ public sealed abstract class SocketOption<VALUE> {
 
     public abstract long accept(VALUE value);
 
+    public abstract VALUE parse(long value);
+
     public String name() {
         return name;
     }
@@ -41,6 +101,11 @@ public sealed abstract class SocketOption<VALUE> {
         public long accept(Integer integer) {
             return integer == null ? 0 : integer;
         }
+
+        @Override
+        public Integer parse(long value) {
+            return (int) value;
+        }
     }
 
     public static final class WriteBufferSize extends SocketOption<Integer> {
@@ -54,6 +119,31 @@ public sealed abstract class SocketOption<VALUE> {
         public long accept(Integer integer) {
             return integer == null ? 0 : integer;
         }
+
+        @Override
+        public Integer parse(long value) {
+            return (int) value;
+        }
+    }
+
+    // How many bytes a read may pull from the socket ahead of the caller: zero, the default, disables read ahead.
+    // A plain socket leaves the read sizes to the caller, while the TLS layer and the HTTP client, which make small reads, enable it when it's unset
+    public static final class ReadAheadSize extends SocketOption<Integer> {
+        private static final ReadAheadSize OPTION = new ReadAheadSize();
+
+        private ReadAheadSize() {
+            super("READ_AHEAD", 0);
+        }
+
+        @Override
+        public long accept(Integer integer) {
+            return integer == null ? 0 : integer;
+        }
+
+        @Override
+        public Integer parse(long value) {
+            return (int) value;
+        }
     }
 
     public static final class KeepAlive extends SocketOption<Boolean> {
@@ -67,5 +157,248 @@ public sealed abstract class SocketOption<VALUE> {
         public long accept(Boolean bool) {
             return bool != null && bool ? 1 : 0;
         }
+
+        @Override
+        public Boolean parse(long value) {
+            return value != 0;
+        }
+    }
+
+    public static final class ConnectTimeout extends SocketOption<Duration> {
+        private static final ConnectTimeout OPTION = new ConnectTimeout();
+
+        private ConnectTimeout() {
+            super("CONNECT_TIMEOUT", Duration.ZERO);
+        }
+
+        @Override
+        public long accept(Duration duration) {
+            return duration == null ? 0 : duration.toMillis();
+        }
+
+        @Override
+        public Duration parse(long value) {
+            return Duration.ofMillis(value);
+        }
+    }
+
+    public static final class ReadTimeout extends SocketOption<Duration> {
+        private static final ReadTimeout OPTION = new ReadTimeout();
+
+        private ReadTimeout() {
+            super("READ_TIMEOUT", Duration.ZERO);
+        }
+
+        @Override
+        public long accept(Duration duration) {
+            return duration == null ? 0 : duration.toMillis();
+        }
+
+        @Override
+        public Duration parse(long value) {
+            return Duration.ofMillis(value);
+        }
+    }
+
+    public static final class WriteTimeout extends SocketOption<Duration> {
+        private static final WriteTimeout OPTION = new WriteTimeout();
+
+        private WriteTimeout() {
+            super("WRITE_TIMEOUT", Duration.ZERO);
+        }
+
+        @Override
+        public long accept(Duration duration) {
+            return duration == null ? 0 : duration.toMillis();
+        }
+
+        @Override
+        public Duration parse(long value) {
+            return Duration.ofMillis(value);
+        }
+    }
+
+    public static final class TcpNoDelay extends SocketOption<Boolean> {
+        private static final TcpNoDelay OPTION = new TcpNoDelay();
+
+        private TcpNoDelay() {
+            super("TCP_NO_DELAY", false);
+        }
+
+        @Override
+        public long accept(Boolean bool) {
+            return bool != null && bool ? 1 : 0;
+        }
+
+        @Override
+        public Boolean parse(long value) {
+            return value != 0;
+        }
+    }
+
+    // Unlike ReadBufferSize, which sizes the buffer used by the transport, this is the size of the kernel buffer: zero keeps the system default
+    public static final class ReceiveBufferSize extends SocketOption<Integer> {
+        private static final ReceiveBufferSize OPTION = new ReceiveBufferSize();
+
+        private ReceiveBufferSize() {
+            super("SOCKET_RECEIVE_BUFFER", 0);
+        }
+
+        @Override
+        public long accept(Integer integer) {
+            return integer == null ? 0 : integer;
+        }
+
+        @Override
+        public Integer parse(long value) {
+            return (int) value;
+        }
+    }
+
+    // Unlike WriteBufferSize, which sizes the buffer used by the transport, this is the size of the kernel buffer: zero keeps the system default
+    public static final class SendBufferSize extends SocketOption<Integer> {
+        private static final SendBufferSize OPTION = new SendBufferSize();
+
+        private SendBufferSize() {
+            super("SOCKET_SEND_BUFFER", 0);
+        }
+
+        @Override
+        public long accept(Integer integer) {
+            return integer == null ? 0 : integer;
+        }
+
+        @Override
+        public Integer parse(long value) {
+            return (int) value;
+        }
+    }
+
+    public static final class TcpQuickAck extends SocketOption<Boolean> {
+        private static final TcpQuickAck OPTION = new TcpQuickAck();
+
+        private TcpQuickAck() {
+            super("TCP_QUICK_ACK", false);
+        }
+
+        @Override
+        public long accept(Boolean bool) {
+            return bool != null && bool ? 1 : 0;
+        }
+
+        @Override
+        public Boolean parse(long value) {
+            return value != 0;
+        }
+    }
+
+    public static final class TcpCork extends SocketOption<Boolean> {
+        private static final TcpCork OPTION = new TcpCork();
+
+        private TcpCork() {
+            super("TCP_CORK", false);
+        }
+
+        @Override
+        public long accept(Boolean bool) {
+            return bool != null && bool ? 1 : 0;
+        }
+
+        @Override
+        public Boolean parse(long value) {
+            return value != 0;
+        }
+    }
+
+    // The kernel takes the busy polling window in microseconds
+    public static final class BusyPoll extends SocketOption<Duration> {
+        private static final BusyPoll OPTION = new BusyPoll();
+
+        private BusyPoll() {
+            super("BUSY_POLL", Duration.ZERO);
+        }
+
+        @Override
+        public long accept(Duration duration) {
+            return duration == null ? 0 : duration.toNanos() / 1000;
+        }
+
+        @Override
+        public Duration parse(long value) {
+            return Duration.ofNanos(value * 1000);
+        }
+    }
+
+    public static final class TcpUserTimeout extends SocketOption<Duration> {
+        private static final TcpUserTimeout OPTION = new TcpUserTimeout();
+
+        private TcpUserTimeout() {
+            super("TCP_USER_TIMEOUT", Duration.ZERO);
+        }
+
+        @Override
+        public long accept(Duration duration) {
+            return duration == null ? 0 : duration.toMillis();
+        }
+
+        @Override
+        public Duration parse(long value) {
+            return Duration.ofMillis(value);
+        }
+    }
+
+    public static final class ReuseAddress extends SocketOption<Boolean> {
+        private static final ReuseAddress OPTION = new ReuseAddress();
+
+        private ReuseAddress() {
+            super("REUSE_ADDRESS", false);
+        }
+
+        @Override
+        public long accept(Boolean bool) {
+            return bool != null && bool ? 1 : 0;
+        }
+
+        @Override
+        public Boolean parse(long value) {
+            return value != 0;
+        }
+    }
+
+    public static final class ReusePort extends SocketOption<Boolean> {
+        private static final ReusePort OPTION = new ReusePort();
+
+        private ReusePort() {
+            super("REUSE_PORT", false);
+        }
+
+        @Override
+        public long accept(Boolean bool) {
+            return bool != null && bool ? 1 : 0;
+        }
+
+        @Override
+        public Boolean parse(long value) {
+            return value != 0;
+        }
+    }
+
+    // The first write is sent together with the SYN, or with the SYN-ACK's ack when the server doesn't support fast open
+    public static final class TcpFastOpen extends SocketOption<Boolean> {
+        private static final TcpFastOpen OPTION = new TcpFastOpen();
+
+        private TcpFastOpen() {
+            super("TCP_FAST_OPEN", false);
+        }
+
+        @Override
+        public long accept(Boolean bool) {
+            return bool != null && bool ? 1 : 0;
+        }
+
+        @Override
+        public Boolean parse(long value) {
+            return value != 0;
+        }
     }
 }
@@ -0,0 +1,140 @@
+package it.auties.leap.socket;
+
+import java.nio.ByteBuffer;
+
+// Bytes that a transport read from the socket before they were asked for: every fill reads as much as the kernel holds, up to the capacity,
+// so the small reads of a protocol (a record header, then its payload) are served from memory instead of costing a syscall each.
+// The bytes are appended at the write index and consumed from the read index of a linear buffer, which compact moves back to the start:
+// unlike a ring that wraps around, the unread bytes are always contiguous, so peek can hand them out without copying them.
+// The buffer is leased from the shared pool on the first fill and goes back to it once it's empty.
+// Not thread safe: a transport only touches it from its read queue
+public final class SocketReadAhead {
+    private final int capacity;
+    private SocketBufferPool.Lease lease;
+    private ByteBuffer buffer;
+    private int readIndex;
+    private int writeIndex;
+
+    public SocketReadAhead(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid read ahead capacity: " + capacity);
+        }
+
+        this.capacity = capacity;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int available() {
+        return writeIndex - readIndex;
+    }
+
+    public boolean isEmpty() {
+        return readIndex == writeIndex;
+    }
+
+    // The free space after the unread bytes, which the transport reads into before calling filled.
+    // If fewer than required bytes would fit after the read index, the unread bytes are compacted first
+    public ByteBuffer fillable(int required) {
+        if (required > capacity) {
+            throw new IllegalArgumentException("Cannot read ahead %s bytes: the capacity is %s".formatted(required, capacity));
+        }
+
+        if (buffer == null) {
+            this.lease = SocketBufferPool.shared().lease(capacity);
+            this.buffer = lease.asByteBuffer();
+        } else if (readIndex + required > capacity) {
+            compact();
+        }
+
+        return buffer.duplicate()
+                .limit(capacity)
+                .position(writeIndex);
+    }
+
+    public void filled(int length) {
+        if (length < 0 || writeIndex + length > capacity) {
+            throw new IllegalArgumentException("Invalid fill length: " + length);
+        }
+
+        this.writeIndex += length;
+    }
+
+    // A read-only view of the next length bytes, which stays valid until they are consumed or compacted
+    public ByteBuffer peek(int length) {
+        if (length < 0 || length > available()) {
+            throw new IllegalArgumentException("Cannot peek %s bytes: only %s are available".formatted(length, available()));
+        }
+
+        if (length == 0) {
+            return ByteBuffer.allocate(0);
+        }
+
+        return buffer.asReadOnlyBuffer()
+                .limit(readIndex + length)
+                .position(readIndex)
+                .slice();
+    }
+
+    // Moves as many bytes as fit from the read ahead buffer to the output, without flipping it
+    public int read(ByteBuffer output) {
+        var length = Math.min(available(), output.remaining());
+        if (length == 0) {
+            return 0;
+        }
+
+        output.put(output.position(), buffer, readIndex, length);
+        output.position(output.position() + length);
+        skip(length);
+        return length;
+    }
+
+    public void skip(int length) {
+        if (length < 0 || length > available()) {
+            throw new IllegalArgumentException("Cannot skip %s bytes: only %s are available".formatted(length, available()));
+        }
+
+        this.readIndex += length;
+        if (readIndex == writeIndex) {
+            this.readIndex = 0;
+            this.writeIndex = 0;
+        }
+    }
+
+    // Moves the unread bytes to the start of the buffer, so the space that was already consumed can be filled again
+    public void compact() {
+        if (buffer == null || readIndex == 0) {
+            return;
+        }
+
+        var length = available();
+        buffer.put(0, buffer, readIndex, length);
+        this.readIndex = 0;
+        this.writeIndex = length;
+    }
+
+    // Gives the buffer back to the pool if nothing is left to read
+    public void releaseIfEmpty() {
+        if (lease == null || !isEmpty()) {
+            return;
+        }
+
+        lease.release();
+        this.lease = null;
+        this.buffer = null;
+    }
+
+    // Gives the buffer back to the pool and discards the unread bytes
+    public void release() {
+        if (lease != null) {
+            lease.release();
+            this.lease = null;
+            this.buffer = null;
+        }
+
+        this.readIndex = 0;
+        this.writeIndex = 0;
+    }
+}
@@ -0,0 +1,55 @@
+package it.auties.leap.socket;
+
+import java.util.Objects;
+
+// The traffic keys of one direction of an established TLS connection, in the form the kernel expects them:
+// for AES-GCM the salt is the implicit part of the nonce and the iv its explicit part, ChaCha20-Poly1305 has no salt.
+// The sequence is the number of the next record that the kernel will seal or open
+public record SocketTlsOffload(Direction direction, Cipher cipher, boolean tls13, byte[] key, byte[] iv, byte[] salt, byte[] sequence) {
+    private static final int SEQUENCE_LENGTH = 8;
+
+    public SocketTlsOffload {
+        Objects.requireNonNull(direction, "direction cannot be null");
+        Objects.requireNonNull(cipher, "cipher cannot be null");
+        Objects.requireNonNull(key, "key cannot be null");
+        Objects.requireNonNull(iv, "iv cannot be null");
+        Objects.requireNonNull(salt, "salt cannot be null");
+        Objects.requireNonNull(sequence, "sequence cannot be null");
+        if (key.length != cipher.keyLength() || iv.length != cipher.ivLength() || salt.length != cipher.saltLength() || sequence.length != SEQUENCE_LENGTH) {
+            throw new IllegalArgumentException("Invalid key material for " + cipher);
+        }
+    }
+
+    public enum Direction {
+        TRANSMIT,
+        RECEIVE
+    }
+
+    public enum Cipher {
+        AES_GCM_128(16, 8, 4),
+        AES_GCM_256(32, 8, 4),
+        CHACHA20_POLY1305(32, 12, 0);
+
+        private final int keyLength;
+        private final int ivLength;
+        private final int saltLength;
+
+        Cipher(int keyLength, int ivLength, int saltLength) {
+            this.keyLength = keyLength;
+            this.ivLength = ivLength;
+            this.saltLength = saltLength;
+        }
+
+        public int keyLength() {
+            return keyLength;
+        }
+
+        public int ivLength() {
+            return ivLength;
+        }
+
+        public int saltLength() {
+            return saltLength;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package it.auties.leap.socket;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Objects;
+
+// An abstract address lives in a namespace of the kernel instead of the file system: it needs no cleanup and ignores file permissions
+public record SocketUnixAddress(String path, boolean abstractNamespace) {
+    // sizeof(sun_path), which also holds the terminator of a path or the leading zero of an abstract name
+    private static final int MAX_LENGTH = 108;
+
+    public SocketUnixAddress {
+        Objects.requireNonNull(path, "path cannot be null");
+        var length = path.getBytes(StandardCharsets.UTF_8).length;
+        if (length == 0 || length >= MAX_LENGTH) {
+            throw new IllegalArgumentException("Invalid unix socket path: " + path);
+        }
+    }
+
+    public static SocketUnixAddress of(Path path) {
+        Objects.requireNonNull(path, "path cannot be null");
+        return new SocketUnixAddress(path.toString(), false);
+    }
+
+    public static SocketUnixAddress ofAbstract(String name) {
+        return new SocketUnixAddress(name, true);
+    }
+}
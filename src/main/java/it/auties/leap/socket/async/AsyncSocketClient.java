@@ -9,16 +9,20 @@ import it.auties.leap.socket.async.tunnelLayer.AsyncSocketTunnelLayer;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 public final class AsyncSocketClient implements SocketClient, AsyncSocketIO {
     private final AsyncSocketApplicationLayer applicationLayer;
     private final AsyncSocketTunnelLayer tunnelLayer;
+    private final AsyncSocketWriteQueue writeQueue;
 
-    AsyncSocketClient(AsyncSocketApplicationLayer applicationLayer, AsyncSocketTunnelLayer tunnelLayer) {
+    AsyncSocketClient(AsyncSocketApplicationLayer applicationLayer, AsyncSocketTunnelLayer tunnelLayer, AsyncSocketWriteQueueConfig writeQueueConfig) {
         this.applicationLayer = applicationLayer;
         this.tunnelLayer = tunnelLayer;
+        this.writeQueue = writeQueueConfig == null ? null : new AsyncSocketWriteQueue(applicationLayer, writeQueueConfig);
     }
 
     public CompletableFuture<Void> connect(InetSocketAddress address) {
@@ -35,17 +39,49 @@ public final class AsyncSocketClient implements SocketClient, AsyncSocketIO {
     }
 
     public CompletableFuture<Void> write(ByteBuffer buffer) {
+        if (writeQueue != null) {
+            return writeQueue.write(buffer);
+        }
+
         return applicationLayer.write(buffer);
     }
 
+    public CompletableFuture<Void> write(ByteBuffer... buffers) {
+        if (writeQueue != null) {
+            return writeQueue.write(buffers);
+        }
+
+        return applicationLayer.write(buffers);
+    }
+
     public CompletableFuture<Void> read(ByteBuffer buffer) {
         return applicationLayer.read(buffer);
     }
 
+    public CompletableFuture<Void> read(ByteBuffer... buffers) {
+        return applicationLayer.read(buffers);
+    }
+
     public CompletableFuture<Void> readFully(ByteBuffer buffer) {
         return applicationLayer.readFully(buffer);
     }
 
+    public CompletableFuture<Void> transferFrom(Path path, long offset, long length) {
+        if (writeQueue != null) {
+            return writeQueue.submit(() -> applicationLayer.transferFrom(path, offset, length));
+        }
+
+        return applicationLayer.transferFrom(path, offset, length);
+    }
+
+    public CompletableFuture<Void> transferFrom(FileChannel channel, long offset, long length) {
+        if (writeQueue != null) {
+            return writeQueue.submit(() -> applicationLayer.transferFrom(channel, offset, length));
+        }
+
+        return applicationLayer.transferFrom(channel, offset, length);
+    }
+
     public static AsyncSocketClientBuilder builder(SocketProtocol protocol) {
         return new AsyncSocketClientBuilder(protocol);
     }
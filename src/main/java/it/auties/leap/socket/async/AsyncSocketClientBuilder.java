@@ -18,6 +18,7 @@ public final class AsyncSocketClientBuilder extends SocketClientBuilder {
     private AsyncSocketTransportLayerFactory transportFactory;
     private AsyncSocketTunnelLayerFactory tunnelFactory;
     private URI tunnelLocation;
+    private AsyncSocketWriteQueueConfig writeQueueConfig;
 
     AsyncSocketClientBuilder(SocketProtocol protocol) {
         this.protocol = protocol;
@@ -63,6 +64,12 @@ public final class AsyncSocketClientBuilder extends SocketClientBuilder {
         return this;
     }
 
+    // Concurrent writes are gathered into shared submissions instead of going to the socket one at a time, null disables the queue
+    public AsyncSocketClientBuilder writeQueue(AsyncSocketWriteQueueConfig writeQueueConfig) {
+        this.writeQueueConfig = writeQueueConfig;
+        return this;
+    }
+
     public AsyncSocketClient build() {
         var transport = Objects.requireNonNullElseGet(transportFactory, AsyncSocketTransportLayerFactory::forPlatform)
                 .newTransport(protocol);
@@ -70,6 +77,6 @@ public final class AsyncSocketClientBuilder extends SocketClientBuilder {
                 .newApplication(transport, applicationParameter);
         var tunnel = Objects.requireNonNullElseGet(tunnelFactory, AsyncSocketTunnelLayerFactory::direct)
                 .newTunnel(application, tunnelLocation);
-        return new AsyncSocketClient(application, tunnel);
+        return new AsyncSocketClient(application, tunnel, writeQueueConfig);
     }
 }
@@ -1,10 +1,16 @@
 package it.auties.leap.socket.async;
 
+import it.auties.leap.socket.SocketBufferPool;
+import it.auties.leap.socket.SocketException;
 import it.auties.leap.socket.SocketIOProvider;
 import it.auties.leap.socket.async.applicationLayer.AsyncSocketApplicationLayer;
 import it.auties.leap.socket.async.transportLayer.AsyncSocketTransportLayer;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.CompletableFuture;
 
 public sealed interface AsyncSocketIO extends SocketIOProvider permits AsyncSocketApplicationLayer, AsyncSocketClient, AsyncSocketTransportLayer {
@@ -18,7 +24,110 @@ public sealed interface AsyncSocketIO extends SocketIOProvider permits AsyncSock
 
     CompletableFuture<Void> write(ByteBuffer buffer);
 
+    // Writes the buffers in order as if they were a single one
+    default CompletableFuture<Void> write(ByteBuffer... buffers) {
+        var result = CompletableFuture.<Void>completedFuture(null);
+        for (var buffer : buffers) {
+            result = result.thenCompose(_ -> write(buffer));
+        }
+        return result;
+    }
+
     CompletableFuture<Void> read(ByteBuffer buffer);
 
+    // Fills the buffers in order, like a single read that spans all of them: every buffer that received data is flipped,
+    // all of those but the last one were filled completely, and the buffers after it are left untouched.
+    // Layers without vectored reads read into a staging buffer and spread its contents
+    default CompletableFuture<Void> read(ByteBuffer... buffers) {
+        var length = 0L;
+        for (var buffer : buffers) {
+            length += buffer.remaining();
+        }
+        if (length == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        var lease = SocketBufferPool.shared().lease(Math.min(length, 65536));
+        var staging = lease.asByteBuffer();
+        return read(staging)
+                .thenRun(() -> scatter(staging, buffers))
+                .whenComplete((_, _) -> lease.release());
+    }
+
+    // Copies the remaining bytes of source over the buffers in order, flipping each buffer that received some
+    static void scatter(ByteBuffer source, ByteBuffer... buffers) {
+        for (var buffer : buffers) {
+            if (!source.hasRemaining()) {
+                break;
+            }
+
+            if (!buffer.hasRemaining()) {
+                continue;
+            }
+
+            var length = Math.min(buffer.remaining(), source.remaining());
+            buffer.put(buffer.position(), source, source.position(), length);
+            buffer.position(buffer.position() + length);
+            source.position(source.position() + length);
+            buffer.flip();
+        }
+    }
+
     CompletableFuture<Void> readFully(ByteBuffer buffer);
+
+    // Sends length bytes of the file starting at offset
+    default CompletableFuture<Void> transferFrom(Path path, long offset, long length) {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException exception) {
+            return CompletableFuture.failedFuture(new SocketException("Cannot open file " + path, exception));
+        }
+
+        return transferFrom(channel, offset, length).whenComplete((_, _) -> {
+            try {
+                channel.close();
+            } catch (IOException _) {
+
+            }
+        });
+    }
+
+    // The file is copied through a buffer and written like any other data: layers that can send it without copying override this
+    default CompletableFuture<Void> transferFrom(FileChannel channel, long offset, long length) {
+        if (offset < 0 || length < 0) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid file range: offset %s, length %s".formatted(offset, length)));
+        }
+
+        if (length == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        var lease = SocketBufferPool.shared().lease(Math.min(length, 65536));
+        return transferChunk(channel, lease.asByteBuffer(), offset, offset + length)
+                .whenComplete((_, _) -> lease.release());
+    }
+
+    private CompletableFuture<Void> transferChunk(FileChannel channel, ByteBuffer buffer, long position, long end) {
+        if (position >= end) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), end - position));
+        int read;
+        try {
+            read = channel.read(buffer, position);
+        } catch (IOException exception) {
+            return CompletableFuture.failedFuture(new SocketException("Cannot read file", exception));
+        }
+
+        if (read <= 0) {
+            return CompletableFuture.failedFuture(new SocketException("Cannot transfer file: it ended %s bytes early".formatted(end - position)));
+        }
+
+        buffer.flip();
+        return write(buffer)
+                .thenCompose(_ -> transferChunk(channel, buffer, position + read, end));
+    }
 }
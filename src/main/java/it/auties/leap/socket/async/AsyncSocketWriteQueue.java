@@ -0,0 +1,168 @@
+package it.auties.leap.socket.async;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Writes from any number of threads are queued without locks and sent by a single drainer at a time:
+// the writes that queued up while a batch was in flight are gathered into the next one, so concurrent small writes share a submission.
+// Every write keeps its own future, which completes with the batch it was sent in
+final class AsyncSocketWriteQueue {
+    private final AsyncSocketIO target;
+    private final int maxBatchBytes;
+    private final int maxBatchBuffers;
+    private final long flushLatency;
+    private final ConcurrentLinkedQueue<PendingWrite> pending;
+    private final AtomicBoolean draining;
+
+    AsyncSocketWriteQueue(AsyncSocketIO target, AsyncSocketWriteQueueConfig config) {
+        this.target = target;
+        this.maxBatchBytes = config.maxBatchBytes();
+        this.maxBatchBuffers = config.maxBatchBuffers();
+        this.flushLatency = config.flushLatency().toNanos();
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.draining = new AtomicBoolean(false);
+    }
+
+    CompletableFuture<Void> write(ByteBuffer... buffers) {
+        var length = 0L;
+        for (var buffer : buffers) {
+            length += buffer.remaining();
+        }
+        return enqueue(new PendingWrite(buffers, length, null, new CompletableFuture<>()));
+    }
+
+    // Operations that write on their own, like a file transfer, are never batched but still keep their place in the queue
+    CompletableFuture<Void> submit(Supplier<CompletableFuture<Void>> operation) {
+        return enqueue(new PendingWrite(null, 0, operation, new CompletableFuture<>()));
+    }
+
+    private CompletableFuture<Void> enqueue(PendingWrite write) {
+        pending.offer(write);
+        if (draining.compareAndSet(false, true)) {
+            drain();
+        }
+        return write.result();
+    }
+
+    // Batches that complete synchronously are sent in a loop, so a long run of them can't overflow the stack
+    private void drain() {
+        while (true) {
+            var batch = new Batch();
+            fill(batch);
+            if (batch.isEmpty()) {
+                draining.set(false);
+                // A write may have been queued after the queue was found empty, but before the drainer stepped down
+                if (pending.isEmpty() || !draining.compareAndSet(false, true)) {
+                    return;
+                }
+
+                continue;
+            }
+
+            if (flushLatency > 0 && batch.canGrow()) {
+                CompletableFuture.delayedExecutor(flushLatency, TimeUnit.NANOSECONDS).execute(() -> {
+                    fill(batch);
+                    send(batch).whenComplete((_, _) -> drain());
+                });
+                return;
+            }
+
+            var result = send(batch);
+            if (!result.isDone()) {
+                result.whenComplete((_, _) -> drain());
+                return;
+            }
+        }
+    }
+
+    // Only the drainer polls, so the head of the queue can't change between peek and poll
+    private void fill(Batch batch) {
+        PendingWrite next;
+        while ((next = pending.peek()) != null && batch.accepts(next)) {
+            pending.poll();
+            batch.add(next);
+        }
+    }
+
+    private CompletableFuture<Void> send(Batch batch) {
+        CompletableFuture<Void> result;
+        try {
+            result = batch.isOperation() ? batch.writes.getFirst().operation().get() : target.write(batch.buffers());
+        } catch (Throwable throwable) {
+            result = CompletableFuture.failedFuture(throwable);
+        }
+
+        return result.whenComplete((_, error) -> {
+            for (var write : batch.writes) {
+                if (error != null) {
+                    write.result().completeExceptionally(error);
+                } else {
+                    write.result().complete(null);
+                }
+            }
+        });
+    }
+
+    private final class Batch {
+        private final List<PendingWrite> writes;
+        private long bytes;
+        private int buffers;
+
+        private Batch() {
+            this.writes = new ArrayList<>();
+        }
+
+        private boolean isEmpty() {
+            return writes.isEmpty();
+        }
+
+        private boolean isOperation() {
+            return !writes.isEmpty() && writes.getFirst().operation() != null;
+        }
+
+        private boolean canGrow() {
+            return !isOperation() && bytes < maxBatchBytes && buffers < maxBatchBuffers;
+        }
+
+        // The first write is always accepted, even if it's larger than a batch
+        private boolean accepts(PendingWrite write) {
+            if (writes.isEmpty()) {
+                return true;
+            }
+
+            return write.operation() == null
+                    && canGrow()
+                    && bytes + write.length() <= maxBatchBytes
+                    && buffers + write.buffers().length <= maxBatchBuffers;
+        }
+
+        private void add(PendingWrite write) {
+            writes.add(write);
+            if (write.operation() == null) {
+                bytes += write.length();
+                buffers += write.buffers().length;
+            }
+        }
+
+        private ByteBuffer[] buffers() {
+            var result = new ByteBuffer[buffers];
+            var index = 0;
+            for (var write : writes) {
+                for (var buffer : write.buffers()) {
+                    result[index++] = buffer;
+                }
+            }
+            return result;
+        }
+    }
+
+    private record PendingWrite(ByteBuffer[] buffers, long length, Supplier<CompletableFuture<Void>> operation, CompletableFuture<Void> result) {
+
+    }
+}
@@ -0,0 +1,38 @@
+package it.auties.leap.socket.async;
+
+import java.time.Duration;
+
+public final class AsyncSocketWriteQueueConfig {
+    public static final AsyncSocketWriteQueueConfig DEFAULTS = AsyncSocketWriteQueueConfig.builder()
+            .build();
+
+    private final int maxBatchBytes;
+    private final int maxBatchBuffers;
+    private final Duration flushLatency;
+
+    AsyncSocketWriteQueueConfig(int maxBatchBytes, int maxBatchBuffers, Duration flushLatency) {
+        this.maxBatchBytes = maxBatchBytes;
+        this.maxBatchBuffers = maxBatchBuffers;
+        this.flushLatency = flushLatency;
+    }
+
+    public static AsyncSocketWriteQueueConfigBuilder builder() {
+        return new AsyncSocketWriteQueueConfigBuilder();
+    }
+
+    public static AsyncSocketWriteQueueConfig defaults() {
+        return DEFAULTS;
+    }
+
+    public int maxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    public int maxBatchBuffers() {
+        return maxBatchBuffers;
+    }
+
+    public Duration flushLatency() {
+        return flushLatency;
+    }
+}
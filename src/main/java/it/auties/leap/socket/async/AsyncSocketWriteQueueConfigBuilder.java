@@ -0,0 +1,59 @@
+package it.auties.leap.socket.async;
+
+import java.time.Duration;
+import java.util.Objects;
+
+public final class AsyncSocketWriteQueueConfigBuilder {
+    private static final int DEFAULT_MAX_BATCH_BYTES = 65536;
+    // IOV_MAX on Linux, the most buffers a single vectored write can take
+    private static final int DEFAULT_MAX_BATCH_BUFFERS = 1024;
+
+    private Integer maxBatchBytes;
+    private Integer maxBatchBuffers;
+    private Duration flushLatency;
+
+    AsyncSocketWriteQueueConfigBuilder() {
+
+    }
+
+    // A batch stops growing once it holds this many bytes, a single larger write is still sent on its own
+    public AsyncSocketWriteQueueConfigBuilder maxBatchBytes(int maxBatchBytes) {
+        if (maxBatchBytes < 1) {
+            throw new IllegalArgumentException("Invalid max batch bytes: " + maxBatchBytes);
+        }
+
+        this.maxBatchBytes = maxBatchBytes;
+        return this;
+    }
+
+    // A batch stops growing once it holds this many buffers, a single write with more buffers is still sent on its own.
+    // Transports that take a vectored write in a single call can't go past the limit of their kernel on the number of buffers
+    public AsyncSocketWriteQueueConfigBuilder maxBatchBuffers(int maxBatchBuffers) {
+        if (maxBatchBuffers < 1) {
+            throw new IllegalArgumentException("Invalid max batch buffers: " + maxBatchBuffers);
+        }
+
+        this.maxBatchBuffers = maxBatchBuffers;
+        return this;
+    }
+
+    // How long a batch that is not full waits for more writes before it's sent.
+    // With no latency, which is the default, a batch only holds the writes that queued up while the previous one was in flight
+    public AsyncSocketWriteQueueConfigBuilder flushLatency(Duration flushLatency) {
+        Objects.requireNonNull(flushLatency, "Invalid flush latency");
+        if (flushLatency.isNegative()) {
+            throw new IllegalArgumentException("Invalid flush latency: " + flushLatency);
+        }
+
+        this.flushLatency = flushLatency;
+        return this;
+    }
+
+    public AsyncSocketWriteQueueConfig build() {
+        return new AsyncSocketWriteQueueConfig(
+                Objects.requireNonNullElse(maxBatchBytes, DEFAULT_MAX_BATCH_BYTES),
+                Objects.requireNonNullElse(maxBatchBuffers, DEFAULT_MAX_BATCH_BUFFERS),
+                Objects.requireNonNullElse(flushLatency, Duration.ZERO)
+        );
+    }
+}
@@ -15,6 +15,10 @@ public non-sealed interface AsyncSocketApplicationLayerFactory<P> extends Socket
         return AsyncSecureSocketApplicationLayer.factory();
     }
 
+    static AsyncSocketApplicationLayerFactory<TlsContext> secureKernelOffload() {
+        return AsyncSecureSocketApplicationLayer.kernelOffloadFactory();
+    }
+
     @Override
     AsyncSocketApplicationLayer newApplication(AsyncSocketTransportLayer applicationLayer, P param);
 }
@@ -6,6 +6,8 @@ import it.auties.leap.socket.async.transportLayer.AsyncSocketTransportLayer;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.util.concurrent.CompletableFuture;
 
 public class AsyncPlainSocketApplicationLayer extends AsyncSocketApplicationLayer {
@@ -29,16 +31,37 @@ public class AsyncPlainSocketApplicationLayer extends AsyncSocketApplicationLaye
         return transportLayer.write(buffer);
     }
 
+    @Override
+    public CompletableFuture<Void> write(ByteBuffer... buffers) {
+        return transportLayer.write(buffers);
+    }
+
     @Override
     public CompletableFuture<Void> read(ByteBuffer buffer) {
         return transportLayer.read(buffer);
     }
 
+    @Override
+    public CompletableFuture<Void> read(ByteBuffer... buffers) {
+        return transportLayer.read(buffers);
+    }
+
     @Override
     public CompletableFuture<Void> readFully(ByteBuffer buffer) {
         return transportLayer.readFully(buffer);
     }
 
+    // Without records to encrypt, the transport can send the file without copying it
+    @Override
+    public CompletableFuture<Void> transferFrom(Path path, long offset, long length) {
+        return transportLayer.transferFrom(path, offset, length);
+    }
+
+    @Override
+    public CompletableFuture<Void> transferFrom(FileChannel channel, long offset, long length) {
+        return transportLayer.transferFrom(channel, offset, length);
+    }
+
     @Override
     public void close(boolean error) throws IOException {
         transportLayer.close();
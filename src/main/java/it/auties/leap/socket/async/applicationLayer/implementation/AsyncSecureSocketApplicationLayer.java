@@ -1,6 +1,9 @@
 package it.auties.leap.socket.async.applicationLayer.implementation;
 
+import it.auties.leap.socket.SocketBufferPool;
 import it.auties.leap.socket.SocketException;
+import it.auties.leap.socket.SocketOption;
+import it.auties.leap.socket.SocketTlsOffload;
 import it.auties.leap.socket.async.applicationLayer.AsyncSocketApplicationLayer;
 import it.auties.leap.socket.async.applicationLayer.AsyncSocketApplicationLayerFactory;
 import it.auties.leap.socket.async.transportLayer.AsyncSocketTransportLayer;
@@ -9,9 +12,13 @@ import it.auties.leap.tls.alert.TlsAlertLevel;
 import it.auties.leap.tls.alert.TlsAlertType;
 import it.auties.leap.tls.ciphersuite.TlsCipherSuite;
 import it.auties.leap.tls.ciphersuite.cipher.TlsCipher;
+import it.auties.leap.tls.ciphersuite.cipher.implementation.GcmCipher;
+import it.auties.leap.tls.ciphersuite.cipher.implementation.Poly1305Cipher;
+import it.auties.leap.tls.ciphersuite.engine.TlsCipherEngineFactory;
 import it.auties.leap.tls.compression.TlsCompression;
 import it.auties.leap.tls.connection.TlsConnection;
 import it.auties.leap.tls.connection.TlsConnectionHandshakeStatus;
+import it.auties.leap.tls.connection.TlsConnectionTrafficKeys;
 import it.auties.leap.tls.context.TlsContext;
 import it.auties.leap.tls.context.TlsSource;
 import it.auties.leap.tls.message.TlsHandshakeMessage;
@@ -24,28 +31,52 @@ import it.auties.leap.tls.version.TlsVersion;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static it.auties.leap.tls.util.BufferUtils.*;
 
 public class AsyncSecureSocketApplicationLayer extends AsyncSocketApplicationLayer {
+    // A record is staged in a buffer leased from the shared pool only while it's read or written, so an idle connection holds none
     private static final int FRAGMENT_LENGTH = 18432;
+    private static final int MAX_PLAINTEXT_LENGTH = 16384;
     private static final AsyncSocketApplicationLayerFactory<TlsContext> FACTORY = AsyncSecureSocketApplicationLayer::new;
+    private static final AsyncSocketApplicationLayerFactory<TlsContext> KERNEL_OFFLOAD_FACTORY = (transportLayer, tlsContext) -> new AsyncSecureSocketApplicationLayer(transportLayer, tlsContext, true);
 
     private final TlsContext tlsContext;
-    private ByteBuffer tlsBuffer;
+    private final boolean kernelOffload;
+    private boolean kernelTransmit;
+    private boolean kernelReceive;
 
     public AsyncSecureSocketApplicationLayer(AsyncSocketTransportLayer transportLayer, TlsContext tlsContext) {
+        this(transportLayer, tlsContext, false);
+    }
+
+    public AsyncSecureSocketApplicationLayer(AsyncSocketTransportLayer transportLayer, TlsContext tlsContext, boolean kernelOffload) {
         super(transportLayer);
         this.tlsContext = tlsContext;
+        this.kernelOffload = kernelOffload;
+        // Every record is read as a 5 byte header followed by its payload, so a transport that doesn't read ahead would make two reads per record
+        if (transportLayer.getOption(SocketOption.readAheadSize()) == 0) {
+            transportLayer.setOption(SocketOption.readAheadSize(), FRAGMENT_LENGTH);
+        }
     }
 
     public static AsyncSocketApplicationLayerFactory<TlsContext> factory() {
         return FACTORY;
     }
 
+    // After the handshake, the records are sealed and opened by the kernel (kTLS) when the transport and the negotiated cipher allow it,
+    // and by this layer otherwise
+    public static AsyncSocketApplicationLayerFactory<TlsContext> kernelOffloadFactory() {
+        return KERNEL_OFFLOAD_FACTORY;
+    }
+
     @Override
     public CompletableFuture<Void> handshake() {
         var address = transportLayer.address();
@@ -58,10 +89,79 @@ public class AsyncSecureSocketApplicationLayer extends AsyncSocketApplicationLay
         }
 
         tlsContext.setAddress(address.get());
-        this.tlsBuffer = ByteBuffer.allocate(FRAGMENT_LENGTH);
-        return sendClientHello()
+        var handshake = sendClientHello()
                 .thenCompose(_ -> readUntil(TlsConnectionHandshakeStatus.HANDSHAKE_STARTED))
                 .thenCompose(_ -> continueHandshake());
+        return kernelOffload ? handshake.thenRun(this::offloadRecordLayer) : handshake;
+    }
+
+    // Nothing is in flight when the handshake completes: writes are sequential and reads stop at the end of the last handshake record,
+    // so the kernel starts from the exact sequence numbers of the ciphers it replaces.
+    // TLS 1.3 keeps opening records in Java: the server can send tickets and key updates at any time after the handshake,
+    // and the kernel hands those back as errors to a plain read
+    private void offloadRecordLayer() {
+        var tls13 = hasNegotiatedTls13();
+        this.kernelTransmit = offload(TlsSource.LOCAL, SocketTlsOffload.Direction.TRANSMIT, tls13);
+        if (!tls13 && tlsContext.remoteConnectionState().isPresent()) {
+            this.kernelReceive = offload(TlsSource.REMOTE, SocketTlsOffload.Direction.RECEIVE, false);
+        }
+    }
+
+    // The keys are derived again only for the time it takes the kernel to copy them
+    private boolean offload(TlsSource source, SocketTlsOffload.Direction direction, boolean tls13) {
+        var state = switch (source) {
+            case LOCAL -> tlsContext.localConnectionState();
+            case REMOTE -> tlsContext.remoteConnectionState().orElseThrow();
+        };
+        var cipher = state.cipher()
+                .filter(TlsCipher::enabled)
+                .orElse(null);
+        var engine = tlsContext.getNegotiatedValue(TlsContextualProperty.cipher())
+                .map(TlsCipherSuite::cipherEngineFactory)
+                .orElse(null);
+        if (cipher == null || engine == null) {
+            return false;
+        }
+
+        var keys = tlsContext.connectionHandler()
+                .exportTrafficKeys(tlsContext, source)
+                .orElse(null);
+        if (keys == null) {
+            return false;
+        }
+
+        try {
+            return createOffload(cipher, engine, keys, direction, tls13)
+                    .filter(transportLayer::offloadTls)
+                    .isPresent();
+        } finally {
+            keys.destroy();
+        }
+    }
+
+    private Optional<SocketTlsOffload> createOffload(TlsCipher cipher, TlsCipherEngineFactory engine, TlsConnectionTrafficKeys keys, SocketTlsOffload.Direction direction, boolean tls13) {
+
+        var type = switch (cipher) {
+            case GcmCipher _ when engine == TlsCipherEngineFactory.aes128() -> SocketTlsOffload.Cipher.AES_GCM_128;
+            case GcmCipher _ when engine == TlsCipherEngineFactory.aes256() -> SocketTlsOffload.Cipher.AES_GCM_256;
+            case Poly1305Cipher _ when engine == TlsCipherEngineFactory.chaCha20() -> SocketTlsOffload.Cipher.CHACHA20_POLY1305;
+            default -> null;
+        };
+        if (type == null) {
+            return Optional.empty();
+        }
+
+        // TLS 1.2 GCM uses the sequence number as the explicit part of the nonce, the other nonces are the fixed iv xor the sequence number
+        var fixedIv = keys.iv().data();
+        var sequence = cipher.sequenceNumber();
+        var explicitNonce = type != SocketTlsOffload.Cipher.CHACHA20_POLY1305 && !tls13;
+        if (fixedIv.length != (explicitNonce ? type.saltLength() : type.saltLength() + type.ivLength())) {
+            return Optional.empty();
+        }
+
+        var salt = Arrays.copyOf(fixedIv, type.saltLength());
+        var iv = explicitNonce ? sequence : Arrays.copyOfRange(fixedIv, type.saltLength(), fixedIv.length);
+        return Optional.of(new SocketTlsOffload(direction, type, tls13, keys.key().data(), iv, salt, sequence));
     }
 
     private CompletableFuture<Void> continueHandshake() {
@@ -231,13 +331,27 @@ public class AsyncSecureSocketApplicationLayer extends AsyncSocketApplicationLay
             return CompletableFuture.completedFuture(null);
         }
 
-        if (!isRemoteCipherEnabled()) {
+        if (kernelReceive || !isRemoteCipherEnabled()) {
             return transportLayer.read(buffer);
         }
 
         return read(buffer, true);
     }
 
+    // Records are decrypted one at a time, so vectored reads only reach the transport before the remote cipher is enabled
+    @Override
+    public CompletableFuture<Void> read(ByteBuffer... buffers) {
+        if(!isConnected()) {
+            return CompletableFuture.failedFuture(new SocketException("Cannot read message from socket (socket not connected)"));
+        }
+
+        if (kernelReceive || !isRemoteCipherEnabled()) {
+            return transportLayer.read(buffers);
+        }
+
+        return super.read(buffers);
+    }
+
     private CompletableFuture<Void> read(ByteBuffer buffer, boolean lastRead) {
         var message = tlsContext.lastBufferedMessage()
                 .orElse(null);
@@ -260,6 +374,10 @@ public class AsyncSecureSocketApplicationLayer extends AsyncSocketApplicationLay
 
     @Override
     public CompletableFuture<Void> readFully(ByteBuffer buffer) {
+        if (kernelReceive) {
+            return transportLayer.readFully(buffer);
+        }
+
         return read(buffer, false).thenCompose(_ -> {
             if (buffer.hasRemaining()) {
                 return readFully(buffer);
@@ -271,14 +389,17 @@ public class AsyncSecureSocketApplicationLayer extends AsyncSocketApplicationLay
     }
 
     private CompletableFuture<Void> readAndHandleMessage() {
-        var buffer = readBuffer(TlsMessageMetadata.structureLength());
+        var lease = SocketBufferPool.shared().lease(FRAGMENT_LENGTH);
+        var tlsBuffer = lease.asByteBuffer();
+        var buffer = readBuffer(tlsBuffer, TlsMessageMetadata.structureLength());
         return transportLayer.readFully(buffer)
                 .thenApply(_ -> TlsMessageMetadata.of(buffer, TlsSource.REMOTE))
-                .thenCompose(this::decodeMessage);
+                .thenCompose(metadata -> decodeMessage(tlsBuffer, metadata))
+                .whenComplete((_, _) -> lease.release());
     }
 
-    private CompletableFuture<Void> decodeMessage(TlsMessageMetadata metadata) {
-        var buffer = readBuffer(metadata.length());
+    private CompletableFuture<Void> decodeMessage(ByteBuffer tlsBuffer, TlsMessageMetadata metadata) {
+        var buffer = readBuffer(tlsBuffer, metadata.length());
         return transportLayer.readFully(buffer)
                 .thenCompose(_ -> decodeMessage(metadata, buffer));
     }
@@ -326,8 +447,7 @@ public class AsyncSecureSocketApplicationLayer extends AsyncSocketApplicationLay
             return CompletableFuture.completedFuture(null);
         }
 
-        if (isLocalCipherEnabled()) {
-            assertNotEquals(buffer, tlsBuffer);
+        if (!kernelTransmit && isLocalCipherEnabled()) {
             var version = tlsContext.getNegotiatedValue(TlsContextualProperty.version())
                     .orElseThrow(() -> new TlsAlert("Missing negotiated property: version", TlsAlertLevel.FATAL, TlsAlertType.INTERNAL_ERROR));
             var dataMessage = new ApplicationDataMessage(version, TlsSource.LOCAL, buffer);
@@ -337,13 +457,69 @@ public class AsyncSecureSocketApplicationLayer extends AsyncSocketApplicationLay
         return transportLayer.write(buffer);
     }
 
+    @Override
+    public CompletableFuture<Void> write(ByteBuffer... buffers) {
+        if(!isConnected()) {
+            return CompletableFuture.failedFuture(new SocketException("Cannot send message to socket (socket not connected)"));
+        }
+
+        if (kernelTransmit || !isLocalCipherEnabled()) {
+            return transportLayer.write(buffers);
+        }
+
+        // Buffers that fit in a record are sealed together, instead of paying for a header, a tag and a write each
+        var length = 0L;
+        for (var buffer : buffers) {
+            length += buffer.remaining();
+        }
+        if (buffers.length == 1 || length > MAX_PLAINTEXT_LENGTH) {
+            return super.write(buffers);
+        }
+
+        var combined = ByteBuffer.allocate((int) length);
+        for (var buffer : buffers) {
+            combined.put(buffer.duplicate());
+        }
+        combined.flip();
+        return write(combined).thenRun(() -> {
+            for (var buffer : buffers) {
+                buffer.position(buffer.limit());
+            }
+        });
+    }
+
+    // Once the kernel seals the records, the file can go to the socket without reaching the heap, like on a plain connection
+    @Override
+    public CompletableFuture<Void> transferFrom(Path path, long offset, long length) {
+        if (kernelTransmit) {
+            return transportLayer.transferFrom(path, offset, length);
+        }
+
+        return super.transferFrom(path, offset, length);
+    }
+
+    @Override
+    public CompletableFuture<Void> transferFrom(FileChannel channel, long offset, long length) {
+        if (kernelTransmit) {
+            return transportLayer.transferFrom(channel, offset, length);
+        }
+
+        return super.transferFrom(channel, offset, length);
+    }
+
     private CompletableFuture<Void> write(TlsMessage message) {
+        var lease = SocketBufferPool.shared().lease(FRAGMENT_LENGTH);
+        return write(message, lease.asByteBuffer())
+                .whenComplete((_, _) -> lease.release());
+    }
+
+    private CompletableFuture<Void> write(TlsMessage message, ByteBuffer tlsBuffer) {
         System.err.println("Sending " + message.getClass().getName());
         var hashable = message instanceof TlsHandshakeMessage handshakeMessage
                 && handshakeMessage.hashable();
         var cipher = tlsContext.localConnectionState().cipher();
         if(cipher.isEmpty() || !cipher.get().enabled()) {
-            var buffer = writeBuffer();
+            var buffer = writeBuffer(tlsBuffer);
             var length = message.length();
             try(var _ = scopedWrite(buffer, recordLength() + length, true)) {
                 serializeRecord(message, buffer, length);
@@ -370,7 +546,7 @@ public class AsyncSecureSocketApplicationLayer extends AsyncSocketApplicationLay
         var innerContentTypeLength = negotiatedTls13 ? 1 : 0;
 
         // Allocate buffers
-        var plaintext = writeBuffer()
+        var plaintext = writeBuffer(tlsBuffer)
                 .position(recordLength + cipher.get().ivLength());
         try(var _ = scopedWrite(plaintext, message.length() + innerContentTypeLength, true)) {
             message.serialize(plaintext);
@@ -427,7 +603,8 @@ public class AsyncSecureSocketApplicationLayer extends AsyncSocketApplicationLay
 
     @Override
     public void close(boolean error) throws IOException {
-        if (!error && tlsContext != null && isLocalCipherEnabled()) {
+        // An alert is a record of its own type, which a plain write to a socket offloaded to the kernel can't produce
+        if (!error && !kernelTransmit && tlsContext != null && isLocalCipherEnabled()) {
             var version = tlsContext.getNegotiatedValue(TlsContextualProperty.version())
                     .orElse(TlsVersion.TLS10);
             var alertMessage = new AlertMessage(
@@ -462,12 +639,12 @@ public class AsyncSecureSocketApplicationLayer extends AsyncSocketApplicationLay
                 .isPresent();
     }
 
-    private ByteBuffer writeBuffer() {
+    private ByteBuffer writeBuffer(ByteBuffer tlsBuffer) {
         return tlsBuffer.position(0)
                 .limit(tlsBuffer.capacity());
     }
 
-    private ByteBuffer readBuffer(int length) {
+    private ByteBuffer readBuffer(ByteBuffer tlsBuffer, int length) {
         return tlsBuffer.position(0)
                 .limit(length);
     }
@@ -0,0 +1,36 @@
+package it.auties.leap.socket.async.transportLayer;
+
+public final class AsyncLinuxDatagramConfig {
+    public static final AsyncLinuxDatagramConfig DEFAULTS = AsyncLinuxDatagramConfig.builder()
+            .build();
+
+    private final int batchSize;
+    private final int maxDatagramSize;
+    private final boolean receiveOffload;
+
+    AsyncLinuxDatagramConfig(int batchSize, int maxDatagramSize, boolean receiveOffload) {
+        this.batchSize = batchSize;
+        this.maxDatagramSize = maxDatagramSize;
+        this.receiveOffload = receiveOffload;
+    }
+
+    public static AsyncLinuxDatagramConfigBuilder builder() {
+        return new AsyncLinuxDatagramConfigBuilder();
+    }
+
+    public static AsyncLinuxDatagramConfig defaults() {
+        return DEFAULTS;
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    public int maxDatagramSize() {
+        return maxDatagramSize;
+    }
+
+    public boolean receiveOffload() {
+        return receiveOffload;
+    }
+}
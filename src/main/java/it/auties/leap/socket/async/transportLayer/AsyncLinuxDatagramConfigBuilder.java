@@ -0,0 +1,56 @@
+package it.auties.leap.socket.async.transportLayer;
+
+import java.util.Objects;
+
+public final class AsyncLinuxDatagramConfigBuilder {
+    private static final int DEFAULT_BATCH_SIZE = 32;
+    private static final int DEFAULT_MAX_DATAGRAM_SIZE = 2048;
+    private static final int MAX_DATAGRAM_SIZE = 65535;
+
+    private Integer batchSize;
+    private Integer maxDatagramSize;
+    private boolean receiveOffload;
+
+    AsyncLinuxDatagramConfigBuilder() {
+
+    }
+
+    // How many datagrams a single recvmmsg or sendmmsg call moves at most
+    public AsyncLinuxDatagramConfigBuilder batchSize(int batchSize) {
+        if (batchSize < 1 || batchSize > 1024) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    // Larger datagrams are received truncated, and flagged as such
+    public AsyncLinuxDatagramConfigBuilder maxDatagramSize(int maxDatagramSize) {
+        if (maxDatagramSize < 1 || maxDatagramSize > MAX_DATAGRAM_SIZE) {
+            throw new IllegalArgumentException("Invalid max datagram size: " + maxDatagramSize);
+        }
+
+        this.maxDatagramSize = maxDatagramSize;
+        return this;
+    }
+
+    // UDP_GRO lets the kernel coalesce datagrams from the same flow into one receive:
+    // a coalesced datagram can be as large as the biggest UDP payload, so every receive slot is sized for it
+    public AsyncLinuxDatagramConfigBuilder receiveOffload(boolean receiveOffload) {
+        this.receiveOffload = receiveOffload;
+        return this;
+    }
+
+    public AsyncLinuxDatagramConfig build() {
+        if (receiveOffload && maxDatagramSize != null && maxDatagramSize != MAX_DATAGRAM_SIZE) {
+            throw new IllegalArgumentException("Receive offload needs the max datagram size to be %s, got %s".formatted(MAX_DATAGRAM_SIZE, maxDatagramSize));
+        }
+
+        return new AsyncLinuxDatagramConfig(
+                Objects.requireNonNullElse(batchSize, DEFAULT_BATCH_SIZE),
+                receiveOffload ? MAX_DATAGRAM_SIZE : Objects.requireNonNullElse(maxDatagramSize, DEFAULT_MAX_DATAGRAM_SIZE),
+                receiveOffload
+        );
+    }
+}
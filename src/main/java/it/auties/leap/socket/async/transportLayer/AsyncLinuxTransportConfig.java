@@ -0,0 +1,125 @@
+package it.auties.leap.socket.async.transportLayer;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.Executor;
+
+public final class AsyncLinuxTransportConfig {
+    public static final AsyncLinuxTransportConfig DEFAULTS = AsyncLinuxTransportConfig.builder()
+            .build();
+
+    private final int rings;
+    private final ReceiveMode receiveMode;
+    private final int submissionQueueSize;
+    private final Integer completionQueueSize;
+    private final Duration submissionPollingIdle;
+    private final Integer submissionPollingCpu;
+    private final boolean singleIssuer;
+    private final boolean deferTaskRun;
+    private final boolean coopTaskRun;
+    private final Integer zeroCopySendThreshold;
+    private final CompletionDispatch completionDispatch;
+    private final Executor completionExecutor;
+    private final int maxPendingCompletions;
+    private final int fixedBufferCount;
+    private final int fixedBufferSize;
+
+    AsyncLinuxTransportConfig(int rings, ReceiveMode receiveMode, int submissionQueueSize, Integer completionQueueSize, Duration submissionPollingIdle, Integer submissionPollingCpu, boolean singleIssuer, boolean deferTaskRun, boolean coopTaskRun, Integer zeroCopySendThreshold, CompletionDispatch completionDispatch, Executor completionExecutor, int maxPendingCompletions, int fixedBufferCount, int fixedBufferSize) {
+        this.rings = rings;
+        this.receiveMode = receiveMode;
+        this.submissionQueueSize = submissionQueueSize;
+        this.completionQueueSize = completionQueueSize;
+        this.submissionPollingIdle = submissionPollingIdle;
+        this.submissionPollingCpu = submissionPollingCpu;
+        this.singleIssuer = singleIssuer;
+        this.deferTaskRun = deferTaskRun;
+        this.coopTaskRun = coopTaskRun;
+        this.zeroCopySendThreshold = zeroCopySendThreshold;
+        this.completionDispatch = completionDispatch;
+        this.completionExecutor = completionExecutor;
+        this.maxPendingCompletions = maxPendingCompletions;
+        this.fixedBufferCount = fixedBufferCount;
+        this.fixedBufferSize = fixedBufferSize;
+    }
+
+    public static AsyncLinuxTransportConfigBuilder builder() {
+        return new AsyncLinuxTransportConfigBuilder();
+    }
+
+    public static AsyncLinuxTransportConfig defaults() {
+        return DEFAULTS;
+    }
+
+    public int rings() {
+        return rings;
+    }
+
+    public ReceiveMode receiveMode() {
+        return receiveMode;
+    }
+
+    public int submissionQueueSize() {
+        return submissionQueueSize;
+    }
+
+    public OptionalInt completionQueueSize() {
+        return completionQueueSize == null ? OptionalInt.empty() : OptionalInt.of(completionQueueSize);
+    }
+
+    public Optional<Duration> submissionPollingIdle() {
+        return Optional.ofNullable(submissionPollingIdle);
+    }
+
+    public OptionalInt submissionPollingCpu() {
+        return submissionPollingCpu == null ? OptionalInt.empty() : OptionalInt.of(submissionPollingCpu);
+    }
+
+    public boolean singleIssuer() {
+        return singleIssuer;
+    }
+
+    public boolean deferTaskRun() {
+        return deferTaskRun;
+    }
+
+    public boolean coopTaskRun() {
+        return coopTaskRun;
+    }
+
+    public OptionalInt zeroCopySendThreshold() {
+        return zeroCopySendThreshold == null ? OptionalInt.empty() : OptionalInt.of(zeroCopySendThreshold);
+    }
+
+    public CompletionDispatch completionDispatch() {
+        return completionDispatch;
+    }
+
+    public Optional<Executor> completionExecutor() {
+        return Optional.ofNullable(completionExecutor);
+    }
+
+    public int maxPendingCompletions() {
+        return maxPendingCompletions;
+    }
+
+    public int fixedBufferCount() {
+        return fixedBufferCount;
+    }
+
+    public int fixedBufferSize() {
+        return fixedBufferSize;
+    }
+
+    public enum ReceiveMode {
+        ONESHOT,
+        MULTISHOT
+    }
+
+    public enum CompletionDispatch {
+        INLINE,
+        EXECUTOR,
+        VIRTUAL_THREAD,
+        SERIAL
+    }
+}
@@ -0,0 +1,168 @@
+package it.auties.leap.socket.async.transportLayer;
+
+import it.auties.leap.socket.SocketOption;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+public final class AsyncLinuxTransportConfigBuilder {
+    private static final int DEFAULT_SUBMISSION_QUEUE_SIZE = 256;
+    private static final int DEFAULT_MAX_PENDING_COMPLETIONS = 4096;
+    private static final int DEFAULT_FIXED_BUFFER_COUNT = 256;
+    private static final int MAX_FIXED_BUFFER_COUNT = 16384;
+
+    private Integer rings;
+    private AsyncLinuxTransportConfig.ReceiveMode receiveMode;
+    private Integer submissionQueueSize;
+    private Integer completionQueueSize;
+    private Duration submissionPollingIdle;
+    private Integer submissionPollingCpu;
+    private boolean singleIssuer;
+    private boolean deferTaskRun;
+    private boolean coopTaskRun;
+    private Integer zeroCopySendThreshold;
+    private AsyncLinuxTransportConfig.CompletionDispatch completionDispatch;
+    private Executor completionExecutor;
+    private Integer maxPendingCompletions;
+    private Integer fixedBufferCount;
+    private Integer fixedBufferSize;
+
+    AsyncLinuxTransportConfigBuilder() {
+
+    }
+
+    public AsyncLinuxTransportConfigBuilder rings(int rings) {
+        if (rings < 1) {
+            throw new IllegalArgumentException("Invalid ring count: " + rings);
+        }
+
+        this.rings = rings;
+        return this;
+    }
+
+    public AsyncLinuxTransportConfigBuilder receiveMode(AsyncLinuxTransportConfig.ReceiveMode receiveMode) {
+        this.receiveMode = receiveMode;
+        return this;
+    }
+
+    public AsyncLinuxTransportConfigBuilder submissionQueueSize(int submissionQueueSize) {
+        if (submissionQueueSize < 1) {
+            throw new IllegalArgumentException("Invalid submission queue size: " + submissionQueueSize);
+        }
+
+        this.submissionQueueSize = submissionQueueSize;
+        return this;
+    }
+
+    public AsyncLinuxTransportConfigBuilder completionQueueSize(int completionQueueSize) {
+        if (completionQueueSize < 1) {
+            throw new IllegalArgumentException("Invalid completion queue size: " + completionQueueSize);
+        }
+
+        this.completionQueueSize = completionQueueSize;
+        return this;
+    }
+
+    public AsyncLinuxTransportConfigBuilder submissionPolling(Duration idle) {
+        this.submissionPollingIdle = idle;
+        this.submissionPollingCpu = null;
+        return this;
+    }
+
+    public AsyncLinuxTransportConfigBuilder submissionPolling(Duration idle, int cpu) {
+        if (cpu < 0) {
+            throw new IllegalArgumentException("Invalid cpu: " + cpu);
+        }
+
+        this.submissionPollingIdle = Objects.requireNonNull(idle, "Invalid idle");
+        this.submissionPollingCpu = cpu;
+        return this;
+    }
+
+    public AsyncLinuxTransportConfigBuilder singleIssuer(boolean singleIssuer) {
+        this.singleIssuer = singleIssuer;
+        return this;
+    }
+
+    public AsyncLinuxTransportConfigBuilder deferTaskRun(boolean deferTaskRun) {
+        this.deferTaskRun = deferTaskRun;
+        return this;
+    }
+
+    public AsyncLinuxTransportConfigBuilder coopTaskRun(boolean coopTaskRun) {
+        this.coopTaskRun = coopTaskRun;
+        return this;
+    }
+
+    // Writes of at least this many bytes are sent without the kernel copying them: below a few kilobytes, page pinning and the extra notification cost more than the copy
+    public AsyncLinuxTransportConfigBuilder zeroCopySendThreshold(int zeroCopySendThreshold) {
+        if (zeroCopySendThreshold < 1) {
+            throw new IllegalArgumentException("Invalid zero copy send threshold: " + zeroCopySendThreshold);
+        }
+
+        this.zeroCopySendThreshold = zeroCopySendThreshold;
+        return this;
+    }
+
+    // Completions run inline on the ring thread by default: any other policy hands them off, so a slow continuation only delays its own socket
+    public AsyncLinuxTransportConfigBuilder completionDispatch(AsyncLinuxTransportConfig.CompletionDispatch completionDispatch) {
+        this.completionDispatch = completionDispatch;
+        return this;
+    }
+
+    // Used by the executor and serial policies, which otherwise run on the common pool
+    public AsyncLinuxTransportConfigBuilder completionExecutor(Executor completionExecutor) {
+        this.completionExecutor = completionExecutor;
+        return this;
+    }
+
+    public AsyncLinuxTransportConfigBuilder maxPendingCompletions(int maxPendingCompletions) {
+        if (maxPendingCompletions < 1) {
+            throw new IllegalArgumentException("Invalid max pending completions: " + maxPendingCompletions);
+        }
+
+        this.maxPendingCompletions = maxPendingCompletions;
+        return this;
+    }
+
+    // Every ring pins count buffers of size bytes for its whole lifetime: reads and writes that don't fit in one, or find none free, use an unregistered buffer.
+    // A count of zero doesn't register any
+    public AsyncLinuxTransportConfigBuilder fixedBuffers(int count, int size) {
+        if (count < 0 || count > MAX_FIXED_BUFFER_COUNT) {
+            throw new IllegalArgumentException("Invalid fixed buffer count: " + count);
+        }
+
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid fixed buffer size: " + size);
+        }
+
+        this.fixedBufferCount = count;
+        this.fixedBufferSize = size;
+        return this;
+    }
+
+    public AsyncLinuxTransportConfig build() {
+        if (deferTaskRun && submissionPollingIdle != null) {
+            throw new IllegalArgumentException("Deferred task running cannot be combined with submission polling");
+        }
+
+        return new AsyncLinuxTransportConfig(
+                Objects.requireNonNullElseGet(rings, Runtime.getRuntime()::availableProcessors),
+                Objects.requireNonNullElse(receiveMode, AsyncLinuxTransportConfig.ReceiveMode.ONESHOT),
+                Objects.requireNonNullElse(submissionQueueSize, DEFAULT_SUBMISSION_QUEUE_SIZE),
+                completionQueueSize,
+                submissionPollingIdle,
+                submissionPollingCpu,
+                singleIssuer || deferTaskRun,
+                deferTaskRun,
+                coopTaskRun,
+                zeroCopySendThreshold,
+                Objects.requireNonNullElse(completionDispatch, AsyncLinuxTransportConfig.CompletionDispatch.INLINE),
+                completionExecutor,
+                Objects.requireNonNullElse(maxPendingCompletions, DEFAULT_MAX_PENDING_COMPLETIONS),
+                Objects.requireNonNullElse(fixedBufferCount, DEFAULT_FIXED_BUFFER_COUNT),
+                Objects.requireNonNullElseGet(fixedBufferSize, () -> SocketOption.readBufferSize().defaultValue())
+        );
+    }
+}
@@ -1,10 +1,13 @@
 package it.auties.leap.socket.async.transportLayer;
 
+import it.auties.leap.socket.SocketException;
 import it.auties.leap.socket.SocketProtocol;
+import it.auties.leap.socket.SocketTlsOffload;
 import it.auties.leap.socket.SocketTransportLayer;
 import it.auties.leap.socket.async.AsyncSocketIO;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.concurrent.CompletableFuture;
 
 public non-sealed abstract class AsyncSocketTransportLayer extends SocketTransportLayer implements AsyncSocketIO {
@@ -13,4 +16,27 @@ public non-sealed abstract class AsyncSocketTransportLayer extends SocketTranspo
     }
 
     public abstract CompletableFuture<Void> connect(InetSocketAddress address);
+
+    // Hands one direction of the TLS record layer to the kernel: once this returns true, the plaintext written to or read from this transport is sealed or opened by the kernel.
+    // Returns false, without changing anything, if the transport or the kernel can't take it
+    public boolean offloadTls(SocketTlsOffload offload) {
+        return false;
+    }
+
+    // Returns a read-only view of the next length bytes without consuming them: transports that read ahead
+    // wait until that many bytes are buffered, which can't be more than the read ahead size
+    public CompletableFuture<ByteBuffer> peek(int length) {
+        return CompletableFuture.failedFuture(new SocketException("Cannot peek message from socket (read ahead is not supported)"));
+    }
+
+    // Moves the bytes that were read ahead but not consumed yet to the start of the read ahead buffer
+    public CompletableFuture<Void> compact() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Completes once the operations submitted so far are over: a cancelled future completes right away,
+    // while the kernel may keep using its buffer until it acknowledges the cancellation
+    public CompletableFuture<Void> settled() {
+        return CompletableFuture.completedFuture(null);
+    }
 }
@@ -3,6 +3,8 @@ package it.auties.leap.socket.async.transportLayer;
 import it.auties.leap.socket.SocketException;
 import it.auties.leap.socket.SocketProtocol;
 import it.auties.leap.socket.SocketTransportLayerFactory;
+import it.auties.leap.socket.SocketUnixAddress;
+import it.auties.leap.socket.async.transportLayer.implementation.AsyncLinuxEpollTransportSocketLayer;
 import it.auties.leap.socket.async.transportLayer.implementation.AsyncLinuxTransportSocketLayer;
 import it.auties.leap.socket.async.transportLayer.implementation.AsyncUnixTransportSocketLayer;
 import it.auties.leap.socket.async.transportLayer.implementation.AsyncWinTransportSocketLayer;
@@ -13,7 +15,7 @@ public non-sealed interface AsyncSocketTransportLayerFactory extends SocketTrans
         if(os.contains("win")) {
             return AsyncWinTransportSocketLayer.factory();
         }else if(os.contains("nix") || os.contains("nux") || os.contains("aix")) {
-            return AsyncLinuxTransportSocketLayer.factory();
+            return AsyncLinuxTransportSocketLayer.isSupported() ? AsyncLinuxTransportSocketLayer.factory() : AsyncLinuxEpollTransportSocketLayer.factory();
         }else if(os.contains("mac")) {
             return AsyncUnixTransportSocketLayer.factory();
         }else {
@@ -34,6 +36,22 @@ public non-sealed interface AsyncSocketTransportLayerFactory extends SocketTrans
         return AsyncLinuxTransportSocketLayer.factory();
     }
 
+    static AsyncSocketTransportLayerFactory linux(AsyncLinuxTransportConfig config) {
+        return AsyncLinuxTransportSocketLayer.factory(config);
+    }
+
+    static AsyncSocketTransportLayerFactory linux(SocketUnixAddress unixAddress) {
+        return AsyncLinuxTransportSocketLayer.isSupported() ? AsyncLinuxTransportSocketLayer.factory(unixAddress) : AsyncLinuxEpollTransportSocketLayer.factory(unixAddress);
+    }
+
+    static AsyncSocketTransportLayerFactory linux(AsyncLinuxTransportConfig config, SocketUnixAddress unixAddress) {
+        return AsyncLinuxTransportSocketLayer.factory(config, unixAddress);
+    }
+
+    static AsyncSocketTransportLayerFactory linuxEpoll() {
+        return AsyncLinuxEpollTransportSocketLayer.factory();
+    }
+
     static AsyncSocketTransportLayerFactory unix() {
         return AsyncUnixTransportSocketLayer.factory();
     }
@@ -0,0 +1,563 @@
+package it.auties.leap.socket.async.transportLayer.implementation;
+
+import it.auties.leap.socket.SocketBufferPool;
+import it.auties.leap.socket.SocketDatagram;
+import it.auties.leap.socket.SocketException;
+import it.auties.leap.socket.async.transportLayer.AsyncLinuxDatagramConfig;
+import it.auties.leap.socket.implementation.linux.LinuxKernel;
+import it.auties.leap.socket.implementation.linux.cmsghdr;
+import it.auties.leap.socket.implementation.linux.iovec;
+import it.auties.leap.socket.implementation.linux.mmsghdr;
+import it.auties.leap.socket.implementation.linux.msghdr;
+import it.auties.leap.socket.implementation.linux.sockaddr_in;
+import it.auties.leap.socket.implementation.linux.sockaddr_in6;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Epoll, with recvmmsg and sendmmsg
+// Every syscall moves a whole batch of datagrams: with UDP, the per-datagram syscall is what costs the most CPU
+public final class AsyncLinuxDatagramSocket implements AutoCloseable {
+    private static final StructLayout CALL_STATE_LAYOUT = Linker.Option.captureStateLayout();
+    private static final VarHandle ERRNO = CALL_STATE_LAYOUT.varHandle(MemoryLayout.PathElement.groupElement("errno"));
+    private static final Linker.Option CAPTURE_ERRNO = Linker.Option.captureCallState("errno");
+    private static final MethodHandle RECVMMSG = Linker.nativeLinker()
+            .downcallHandle(LinuxKernel.recvmmsg$address(), LinuxKernel.recvmmsg$descriptor(), CAPTURE_ERRNO);
+    private static final MethodHandle SENDMMSG = Linker.nativeLinker()
+            .downcallHandle(LinuxKernel.sendmmsg$address(), LinuxKernel.sendmmsg$descriptor(), CAPTURE_ERRNO);
+    private static final int IPV4_ADDRESS_LENGTH = 4;
+    private static final int IPV6_ADDRESS_LENGTH = 16;
+    private static final int ADDRESS_SIZE = (int) sockaddr_in6.sizeof();
+    // CMSG_SPACE of the int that UDP_GRO reports, which also fits the uint16_t that UDP_SEGMENT takes
+    private static final int CONTROL_HEADER_SIZE = (int) cmsghdr.sizeof();
+    private static final int CONTROL_SIZE = CONTROL_HEADER_SIZE + Long.BYTES;
+    private static final int MAX_DATAGRAM_SIZE = 65535;
+
+    public static AsyncLinuxDatagramSocket open() {
+        return new AsyncLinuxDatagramSocket(AsyncLinuxDatagramConfig.defaults());
+    }
+
+    public static AsyncLinuxDatagramSocket open(AsyncLinuxDatagramConfig config) {
+        Objects.requireNonNull(config, "config cannot be null");
+        return new AsyncLinuxDatagramSocket(config);
+    }
+
+    private final AsyncLinuxDatagramConfig config;
+    private final Arena arena;
+    private final int handle;
+    private final int family;
+    private final AsyncLinuxEpollTransportSocketLayer.Epoll epoll;
+    private final AsyncLinuxEpollTransportSocketLayer.Readiness readiness;
+    private final Batch receiveBatch;
+    private final SocketBufferPool.Lease receiveLease;
+    private final MemorySegment receiveData;
+    private final MemorySegment receiveState;
+    private final Batch sendBatch;
+    private final SocketBufferPool.Lease sendLease;
+    private final MemorySegment sendData;
+    private final MemorySegment sendState;
+    private final AtomicBoolean closed;
+    private CompletableFuture<?> receiveTail;
+    private CompletableFuture<?> sendTail;
+    private volatile InetSocketAddress remoteAddress;
+
+    private AsyncLinuxDatagramSocket(AsyncLinuxDatagramConfig config) {
+        this.config = config;
+        this.arena = Arena.ofAuto();
+        var family = LinuxKernel.AF_INET6();
+        var handle = openSocket(family);
+        if (handle == -1) {
+            family = LinuxKernel.AF_INET();
+            handle = openSocket(family);
+        }
+        if (handle == -1) {
+            throw new SocketException("Cannot create datagram socket");
+        }
+        this.handle = handle;
+        this.family = family;
+        if (config.receiveOffload()) {
+            enableReceiveOffload();
+        }
+        // The staging areas are the largest allocations of the socket: they are leased from the shared pool and given back on close
+        this.receiveBatch = new Batch(arena, config.batchSize());
+        this.receiveLease = SocketBufferPool.shared().lease((long) config.batchSize() * config.maxDatagramSize());
+        this.receiveData = receiveLease.segment();
+        this.receiveState = arena.allocate(CALL_STATE_LAYOUT);
+        this.sendBatch = new Batch(arena, config.batchSize());
+        // A segmented datagram can be as large as the biggest UDP payload, so the staging area always fits one
+        this.sendLease = SocketBufferPool.shared().lease(Math.max((long) config.batchSize() * config.maxDatagramSize(), MAX_DATAGRAM_SIZE));
+        this.sendData = sendLease.segment();
+        this.sendState = arena.allocate(CALL_STATE_LAYOUT);
+        this.closed = new AtomicBoolean();
+        this.receiveTail = CompletableFuture.completedFuture(null);
+        this.sendTail = CompletableFuture.completedFuture(null);
+        this.epoll = AsyncLinuxEpollTransportSocketLayer.DEFAULT_POOL.next();
+        try {
+            this.readiness = epoll.register(handle);
+        } catch (SocketException exception) {
+            LinuxKernel.close(handle);
+            receiveLease.release();
+            sendLease.release();
+            throw exception;
+        }
+    }
+
+    private static int openSocket(int family) {
+        return LinuxKernel.socket(
+                family,
+                LinuxKernel.SOCK_DGRAM() | LinuxKernel.SOCK_NONBLOCK(),
+                0
+        );
+    }
+
+    private void enableReceiveOffload() {
+        var value = arena.allocate(ValueLayout.JAVA_INT);
+        value.set(ValueLayout.JAVA_INT, 0, 1);
+        if (LinuxKernel.setsockopt(handle, LinuxKernel.SOL_UDP(), LinuxKernel.UDP_GRO(), value, (int) value.byteSize()) != 0) {
+            LinuxKernel.close(handle);
+            throw new SocketException("Cannot enable receive offload: UDP_GRO is not supported by the kernel");
+        }
+    }
+
+    public void bind(InetSocketAddress address) {
+        Objects.requireNonNull(address, "address cannot be null");
+        if (closed.get()) {
+            throw new SocketException("Cannot bind datagram socket: socket closed");
+        }
+
+        var localAddress = arena.allocate(ADDRESS_SIZE, Long.BYTES);
+        var length = writeAddress(address, localAddress);
+        if (LinuxKernel.bind(handle, localAddress, length) != 0) {
+            throw new SocketException("Cannot bind datagram socket to " + address);
+        }
+    }
+
+    // Connecting a datagram socket only sets the destination of datagrams without an address and filters the ones that are received
+    public void connect(InetSocketAddress address) {
+        Objects.requireNonNull(address, "address cannot be null");
+        if (closed.get()) {
+            throw new SocketException("Cannot connect datagram socket: socket closed");
+        }
+
+        var remoteAddress = arena.allocate(ADDRESS_SIZE, Long.BYTES);
+        var length = writeAddress(address, remoteAddress);
+        if (LinuxKernel.connect(handle, remoteAddress, length) != 0) {
+            throw new SocketException("Cannot connect datagram socket to " + address);
+        }
+
+        this.remoteAddress = address;
+    }
+
+    public Optional<InetSocketAddress> localAddress() {
+        var localAddress = arena.allocate(ADDRESS_SIZE, Long.BYTES);
+        var length = arena.allocate(ValueLayout.JAVA_INT);
+        length.set(ValueLayout.JAVA_INT, 0, ADDRESS_SIZE);
+        if (LinuxKernel.getsockname(handle, localAddress, length) != 0) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(readAddress(localAddress, length.get(ValueLayout.JAVA_INT, 0)));
+    }
+
+    public Optional<InetSocketAddress> remoteAddress() {
+        return Optional.ofNullable(remoteAddress);
+    }
+
+    public boolean isOpen() {
+        return !closed.get();
+    }
+
+    public CompletableFuture<Void> send(SocketDatagram datagram) {
+        Objects.requireNonNull(datagram, "datagram cannot be null");
+        return send(List.of(datagram));
+    }
+
+    // Sends are queued in order: the future completes once every datagram was handed to the kernel
+    public CompletableFuture<Void> send(List<SocketDatagram> datagrams) {
+        Objects.requireNonNull(datagrams, "datagrams cannot be null");
+        if (datagrams.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        synchronized (this) {
+            var result = sendTail.handle((_, _) -> null)
+                    .thenCompose(_ -> sendBatch(datagrams, 0));
+            this.sendTail = result;
+            return result;
+        }
+    }
+
+    // Completes with every datagram that was already queued when the socket became readable, up to the batch size
+    public CompletableFuture<List<SocketDatagram>> receive() {
+        synchronized (this) {
+            var result = receiveTail.handle((_, _) -> null)
+                    .thenCompose(_ -> receiveBatch());
+            this.receiveTail = result;
+            return result;
+        }
+    }
+
+    // Edge triggered readiness is only reported when it changes: the syscall is always tried first,
+    // and the socket is only waited on once the kernel says it would block
+    private CompletableFuture<Void> sendBatch(List<SocketDatagram> datagrams, int offset) {
+        while (offset < datagrams.size()) {
+            if (closed.get()) {
+                return CompletableFuture.failedFuture(new SocketException("Cannot send datagrams: socket closed"));
+            }
+
+            var observed = readiness.writable().sequence();
+            int count;
+            try {
+                count = prepareSend(datagrams, offset);
+            } catch (SocketException exception) {
+                return CompletableFuture.failedFuture(exception);
+            }
+
+            var sent = sendmmsg(count);
+            if (sent > 0) {
+                for (var index = 0; index < sent; index++) {
+                    var payload = datagrams.get(offset + index).payload();
+                    payload.position(payload.limit());
+                }
+                offset += sent;
+                continue;
+            }
+
+            var error = errno(sendState);
+            if (error == LinuxKernel.EINTR()) {
+                continue;
+            }
+
+            if (error == LinuxKernel.EAGAIN()) {
+                var resumeAt = offset;
+                return readiness.writable()
+                        .await(observed)
+                        .thenCompose(_ -> sendBatch(datagrams, resumeAt));
+            }
+
+            return CompletableFuture.failedFuture(sendError(datagrams.get(offset), error));
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private int prepareSend(List<SocketDatagram> datagrams, int offset) {
+        var staged = 0L;
+        var count = 0;
+        while (count < sendBatch.size() && offset + count < datagrams.size()) {
+            var datagram = datagrams.get(offset + count);
+            var payload = datagram.payload();
+            var length = payload.remaining();
+            if (length > MAX_DATAGRAM_SIZE) {
+                throw new SocketException("Cannot send datagram: payload of %s bytes exceeds the maximum UDP payload".formatted(length));
+            }
+
+            MemorySegment data;
+            if (payload.isDirect()) {
+                data = MemorySegment.ofBuffer(payload);
+            } else {
+                if (staged + length > sendData.byteSize()) {
+                    break;
+                }
+
+                data = sendData.asSlice(staged, length);
+                MemorySegment.copy(MemorySegment.ofBuffer(payload), 0, data, 0, length);
+                staged += length;
+            }
+
+            var message = sendBatch.message(count);
+            var vector = sendBatch.vector(count);
+            iovec.iov_base(vector, data);
+            iovec.iov_len(vector, length);
+
+            var address = datagram.address();
+            if (address != null) {
+                var name = sendBatch.address(count);
+                msghdr.msg_name(message, name);
+                msghdr.msg_namelen(message, writeAddress(address, name));
+            } else if (remoteAddress != null) {
+                msghdr.msg_name(message, MemorySegment.NULL);
+                msghdr.msg_namelen(message, 0);
+            } else {
+                throw new SocketException("Cannot send datagram: no address and the socket isn't connected");
+            }
+
+            if (datagram.isSegmented()) {
+                var control = sendBatch.control(count);
+                cmsghdr.cmsg_len(control, CONTROL_HEADER_SIZE + Short.BYTES);
+                cmsghdr.cmsg_level(control, LinuxKernel.SOL_UDP());
+                cmsghdr.cmsg_type(control, LinuxKernel.UDP_SEGMENT());
+                control.set(ValueLayout.JAVA_SHORT, CONTROL_HEADER_SIZE, (short) datagram.segmentSize());
+                msghdr.msg_control(message, control);
+                msghdr.msg_controllen(message, CONTROL_SIZE);
+            } else {
+                msghdr.msg_control(message, MemorySegment.NULL);
+                msghdr.msg_controllen(message, 0);
+            }
+            msghdr.msg_flags(message, 0);
+            count++;
+        }
+        return count;
+    }
+
+    private static SocketException sendError(SocketDatagram datagram, int error) {
+        if (error == LinuxKernel.EMSGSIZE()) {
+            return new SocketException("Cannot send datagram: payload of %s bytes is too large".formatted(datagram.payload().remaining()));
+        }
+
+        // The kernel rejects segmentation when the device can't checksum the segments or there are too many of them
+        if (datagram.isSegmented() && (error == LinuxKernel.EIO() || error == LinuxKernel.EINVAL())) {
+            return new SocketException("Cannot send datagram: segmentation offload is not available, error code " + error);
+        }
+
+        return new SocketException("Cannot send datagrams: error code " + error);
+    }
+
+    private CompletableFuture<List<SocketDatagram>> receiveBatch() {
+        while (true) {
+            if (closed.get()) {
+                return CompletableFuture.failedFuture(new SocketException("Cannot receive datagrams: socket closed"));
+            }
+
+            var observed = readiness.readable().sequence();
+            prepareReceive();
+            var received = recvmmsg();
+            if (received > 0) {
+                return CompletableFuture.completedFuture(readReceived(received));
+            }
+
+            var error = errno(receiveState);
+            if (error == LinuxKernel.EINTR()) {
+                continue;
+            }
+
+            if (error == LinuxKernel.EAGAIN()) {
+                return readiness.readable()
+                        .await(observed)
+                        .thenCompose(_ -> receiveBatch());
+            }
+
+            return CompletableFuture.failedFuture(new SocketException("Cannot receive datagrams: error code " + error));
+        }
+    }
+
+    private void prepareReceive() {
+        for (var index = 0; index < receiveBatch.size(); index++) {
+            var message = receiveBatch.message(index);
+            var vector = receiveBatch.vector(index);
+            iovec.iov_base(vector, receiveData.asSlice((long) index * config.maxDatagramSize(), config.maxDatagramSize()));
+            iovec.iov_len(vector, config.maxDatagramSize());
+            msghdr.msg_name(message, receiveBatch.address(index));
+            msghdr.msg_namelen(message, ADDRESS_SIZE);
+            if (config.receiveOffload()) {
+                msghdr.msg_control(message, receiveBatch.control(index));
+                msghdr.msg_controllen(message, CONTROL_SIZE);
+            } else {
+                msghdr.msg_control(message, MemorySegment.NULL);
+                msghdr.msg_controllen(message, 0);
+            }
+            msghdr.msg_flags(message, 0);
+        }
+    }
+
+    private List<SocketDatagram> readReceived(int received) {
+        var results = new ArrayList<SocketDatagram>(received);
+        for (var index = 0; index < received; index++) {
+            var header = receiveBatch.header(index);
+            var message = mmsghdr.msg_hdr(header);
+            var length = mmsghdr.msg_len(header);
+            var payload = ByteBuffer.allocate(length);
+            MemorySegment.copy(receiveData, (long) index * config.maxDatagramSize(), MemorySegment.ofBuffer(payload), 0, length);
+            var address = readAddress(receiveBatch.address(index), msghdr.msg_namelen(message));
+            var truncated = (msghdr.msg_flags(message) & LinuxKernel.MSG_TRUNC()) != 0;
+            results.add(new SocketDatagram(address, payload, readSegmentSize(message), truncated));
+        }
+        return results;
+    }
+
+    // A datagram that the kernel didn't coalesce has no UDP_GRO message
+    private int readSegmentSize(MemorySegment message) {
+        if (!config.receiveOffload() || msghdr.msg_controllen(message) < CONTROL_HEADER_SIZE + Integer.BYTES) {
+            return 0;
+        }
+
+        var control = msghdr.msg_control(message).reinterpret(CONTROL_SIZE);
+        if (cmsghdr.cmsg_level(control) != LinuxKernel.SOL_UDP() || cmsghdr.cmsg_type(control) != LinuxKernel.UDP_GRO()) {
+            return 0;
+        }
+
+        return control.get(ValueLayout.JAVA_INT, CONTROL_HEADER_SIZE);
+    }
+
+    private int writeAddress(InetSocketAddress address, MemorySegment segment) {
+        var host = address.getAddress();
+        if (host == null) {
+            throw new SocketException("Cannot resolve address: unresolved host %s".formatted(address.getHostName()));
+        }
+
+        segment.fill((byte) 0);
+        if (family == LinuxKernel.AF_INET6()) {
+            sockaddr_in6.sin6_family(segment, (short) LinuxKernel.AF_INET6());
+            sockaddr_in6.sin6_port(segment, Short.reverseBytes((short) address.getPort()));
+            var remoteHost = sockaddr_in6.sin6_addr(segment);
+            if (host instanceof Inet6Address ipv6) {
+                MemorySegment.copy(ipv6.getAddress(), 0, remoteHost, ValueLayout.JAVA_BYTE, 0, IPV6_ADDRESS_LENGTH);
+                sockaddr_in6.sin6_scope_id(segment, ipv6.getScopeId());
+            } else if (!host.isAnyLocalAddress()) {
+                // ::ffff:a.b.c.d, while the wildcard stays :: so that a bound socket accepts both families
+                remoteHost.set(ValueLayout.JAVA_BYTE, 10, (byte) 0xFF);
+                remoteHost.set(ValueLayout.JAVA_BYTE, 11, (byte) 0xFF);
+                MemorySegment.copy(host.getAddress(), 0, remoteHost, ValueLayout.JAVA_BYTE, IPV6_ADDRESS_LENGTH - IPV4_ADDRESS_LENGTH, IPV4_ADDRESS_LENGTH);
+            }
+            return (int) sockaddr_in6.sizeof();
+        }
+
+        if (!(host instanceof Inet4Address)) {
+            throw new SocketException("Cannot use address %s: IPv6 is not available".formatted(address));
+        }
+
+        sockaddr_in.sin_family(segment, (short) LinuxKernel.AF_INET());
+        sockaddr_in.sin_port(segment, Short.reverseBytes((short) address.getPort()));
+        MemorySegment.copy(host.getAddress(), 0, sockaddr_in.sin_addr(segment), ValueLayout.JAVA_BYTE, 0, IPV4_ADDRESS_LENGTH);
+        return (int) sockaddr_in.sizeof();
+    }
+
+    // Mapped IPv6 addresses are reported as IPv4 ones by InetAddress
+    private static InetSocketAddress readAddress(MemorySegment segment, int length) {
+        if (length < Short.BYTES) {
+            return null;
+        }
+
+        try {
+            var family = sockaddr_in6.sin6_family(segment);
+            if (family == LinuxKernel.AF_INET6() && length >= sockaddr_in6.sizeof()) {
+                var host = new byte[IPV6_ADDRESS_LENGTH];
+                MemorySegment.copy(sockaddr_in6.sin6_addr(segment), ValueLayout.JAVA_BYTE, 0, host, 0, IPV6_ADDRESS_LENGTH);
+                var port = Short.toUnsignedInt(Short.reverseBytes(sockaddr_in6.sin6_port(segment)));
+                return new InetSocketAddress(InetAddress.getByAddress(host), port);
+            }
+
+            if (family == LinuxKernel.AF_INET() && length >= sockaddr_in.sizeof()) {
+                var host = new byte[IPV4_ADDRESS_LENGTH];
+                MemorySegment.copy(sockaddr_in.sin_addr(segment), ValueLayout.JAVA_BYTE, 0, host, 0, IPV4_ADDRESS_LENGTH);
+                var port = Short.toUnsignedInt(Short.reverseBytes(sockaddr_in.sin_port(segment)));
+                return new InetSocketAddress(InetAddress.getByAddress(host), port);
+            }
+
+            return null;
+        } catch (UnknownHostException exception) {
+            return null;
+        }
+    }
+
+    private int sendmmsg(int count) {
+        try {
+            return (int) SENDMMSG.invokeExact(sendState, handle, sendBatch.headers(), count, 0);
+        } catch (Throwable throwable) {
+            throw new SocketException("Cannot send datagrams", throwable);
+        }
+    }
+
+    private int recvmmsg() {
+        try {
+            return (int) RECVMMSG.invokeExact(receiveState, handle, receiveBatch.headers(), receiveBatch.size(), 0, MemorySegment.NULL);
+        } catch (Throwable throwable) {
+            throw new SocketException("Cannot receive datagrams", throwable);
+        }
+    }
+
+    private static int errno(MemorySegment state) {
+        return (int) ERRNO.get(state, 0L);
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        epoll.unregister(handle, readiness);
+        LinuxKernel.close(handle);
+
+        // A batch that was being moved when the socket closed may still use its staging area,
+        // so the leases are released once both queues settle: closing the readiness fails the ones that were waiting
+        CompletableFuture<?> receiveTail;
+        CompletableFuture<?> sendTail;
+        synchronized (this) {
+            receiveTail = this.receiveTail;
+            sendTail = this.sendTail;
+        }
+        CompletableFuture.allOf(receiveTail, sendTail).whenComplete((_, _) -> {
+            receiveLease.release();
+            sendLease.release();
+        });
+    }
+
+    // The mmsghdr array passed to the kernel: each message points to its own iovec, address and control slots, which are reused by every call
+    private static final class Batch {
+        private final int size;
+        private final MemorySegment headers;
+        private final MemorySegment vectors;
+        private final MemorySegment addresses;
+        private final MemorySegment controls;
+
+        private Batch(Arena arena, int size) {
+            this.size = size;
+            this.headers = mmsghdr.allocateArray(size, arena);
+            this.vectors = iovec.allocateArray(size, arena);
+            this.addresses = arena.allocate((long) ADDRESS_SIZE * size, Long.BYTES);
+            this.controls = arena.allocate((long) CONTROL_SIZE * size, Long.BYTES);
+            for (var index = 0; index < size; index++) {
+                var message = message(index);
+                msghdr.msg_iov(message, vector(index));
+                msghdr.msg_iovlen(message, 1);
+            }
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private MemorySegment headers() {
+            return headers;
+        }
+
+        private MemorySegment header(int index) {
+            return headers.asSlice(mmsghdr.sizeof() * index, mmsghdr.sizeof());
+        }
+
+        private MemorySegment message(int index) {
+            return mmsghdr.msg_hdr(header(index));
+        }
+
+        private MemorySegment vector(int index) {
+            return vectors.asSlice(iovec.sizeof() * index, iovec.sizeof());
+        }
+
+        private MemorySegment address(int index) {
+            return addresses.asSlice((long) ADDRESS_SIZE * index, ADDRESS_SIZE);
+        }
+
+        private MemorySegment control(int index) {
+            return controls.asSlice((long) CONTROL_SIZE * index, CONTROL_SIZE);
+        }
+    }
+}
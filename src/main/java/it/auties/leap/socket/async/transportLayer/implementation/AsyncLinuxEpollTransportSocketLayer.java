@@ -0,0 +1,545 @@
+package it.auties.leap.socket.async.transportLayer.implementation;
+
+import it.auties.leap.socket.SocketException;
+import it.auties.leap.socket.SocketProtocol;
+import it.auties.leap.socket.SocketUnixAddress;
+import it.auties.leap.socket.async.transportLayer.AsyncSocketTransportLayerFactory;
+import it.auties.leap.socket.implementation.linux.LinuxKernel;
+import it.auties.leap.socket.implementation.linux.epoll_data;
+import it.auties.leap.socket.implementation.linux.epoll_event;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Epoll
+public final class AsyncLinuxEpollTransportSocketLayer extends AsyncLinuxNativeTransportSocketLayer {
+    private static final StructLayout CALL_STATE_LAYOUT = Linker.Option.captureStateLayout();
+    private static final VarHandle ERRNO = CALL_STATE_LAYOUT.varHandle(MemoryLayout.PathElement.groupElement("errno"));
+    private static final Linker.Option CAPTURE_ERRNO = Linker.Option.captureCallState("errno");
+    private static final MethodHandle READ = Linker.nativeLinker()
+            .downcallHandle(LinuxKernel.read$address(), LinuxKernel.read$descriptor(), CAPTURE_ERRNO);
+    private static final MethodHandle WRITE = Linker.nativeLinker()
+            .downcallHandle(LinuxKernel.write$address(), LinuxKernel.write$descriptor(), CAPTURE_ERRNO);
+    private static final MethodHandle CONNECT = Linker.nativeLinker()
+            .downcallHandle(LinuxKernel.connect$address(), LinuxKernel.connect$descriptor(), CAPTURE_ERRNO);
+    private static final MethodHandle SENDFILE = Linker.nativeLinker()
+            .downcallHandle(LinuxKernel.sendfile$address(), LinuxKernel.sendfile$descriptor(), CAPTURE_ERRNO);
+    private static final long SENDFILE_LENGTH = 1 << 20;
+    static final EpollPool DEFAULT_POOL = new EpollPool(Runtime.getRuntime().availableProcessors());
+    private static final AsyncSocketTransportLayerFactory FACTORY = AsyncLinuxEpollTransportSocketLayer::new;
+
+    public static AsyncSocketTransportLayerFactory factory() {
+        return FACTORY;
+    }
+
+    // Every socket connects to the unix address, whatever address it's asked to connect to
+    public static AsyncSocketTransportLayerFactory factory(SocketUnixAddress unixAddress) {
+        Objects.requireNonNull(unixAddress, "Invalid unix address");
+        return protocol -> new AsyncLinuxEpollTransportSocketLayer(protocol, unixAddress);
+    }
+
+    private final MemorySegment readState;
+    private final MemorySegment writeState;
+    private Epoll epoll;
+    private Readiness readiness;
+
+    public AsyncLinuxEpollTransportSocketLayer(SocketProtocol protocol) {
+        this(protocol, null);
+    }
+
+    private AsyncLinuxEpollTransportSocketLayer(SocketProtocol protocol, SocketUnixAddress unixAddress) {
+        super(protocol, unixAddress);
+        this.readState = arena.allocate(CALL_STATE_LAYOUT);
+        this.writeState = arena.allocate(CALL_STATE_LAYOUT);
+    }
+
+    @Override
+    public CompletableFuture<Void> connectNative(InetSocketAddress address) {
+        if (unixAddress != null) {
+            openUnixHandle();
+            this.epoll = DEFAULT_POOL.next();
+            this.readiness = epoll.register(handle);
+            return awaitConnection(createUnixAddress()).thenCompose(_ -> {
+                connected.set(true);
+                return NO_RESULT;
+            });
+        }
+
+        return resolveCandidates(address).thenCompose(candidates -> {
+            if (candidates.isEmpty()) {
+                return CompletableFuture.failedFuture(new SocketException("Cannot connect to socket: unresolved host %s".formatted(address.getHostName())));
+            }
+
+            this.epoll = DEFAULT_POOL.next();
+            this.readiness = epoll.register(handle);
+            return connect(candidates, 0, address.getPort()).thenCompose(_ -> {
+                connected.set(true);
+                return NO_RESULT;
+            });
+        });
+    }
+
+    // Without a ring to race attempts on, the candidates are tried one after the other:
+    // a socket whose connection failed can't be reused, so every new attempt gets a new one
+    private CompletableFuture<Void> connect(List<InetAddress> candidates, int index, int port) {
+        var remoteAddress = createRemoteAddress(handle, candidates.get(index), port);
+        var attempt = remoteAddress.isPresent()
+                ? awaitConnection(remoteAddress.get())
+                : CompletableFuture.<Void>failedFuture(new SocketException("Cannot connect to socket: unsupported address %s".formatted(candidates.get(index))));
+        return attempt.exceptionallyCompose(error -> {
+            if (index + 1 >= candidates.size() || isExpired(connectDeadline)) {
+                return CompletableFuture.failedFuture(error);
+            }
+
+            epoll.unregister(handle, readiness);
+            LinuxKernel.close(handle);
+            this.handle = createNativeHandle();
+            applyKernelOptions(handle);
+            this.readiness = epoll.register(handle);
+            return connect(candidates, index + 1, port);
+        });
+    }
+
+    // Connecting again reports the state of the pending connection, which tells a real completion apart from a spurious wakeup
+    private CompletableFuture<Void> awaitConnection(MemorySegment remoteAddress) {
+        var observed = readiness.writable().sequence();
+        var result = connect(remoteAddress);
+        if (result == 0) {
+            return NO_RESULT;
+        }
+
+        var error = errno(writeState);
+        if (error == LinuxKernel.EISCONN()) {
+            return NO_RESULT;
+        }
+
+        if (error == LinuxKernel.EINPROGRESS() || error == LinuxKernel.EALREADY() || error == LinuxKernel.EINTR()) {
+            return awaitReady(readiness.writable(), observed, connectDeadline)
+                    .thenCompose(_ -> awaitConnection(remoteAddress));
+        }
+
+        return CompletableFuture.failedFuture(new SocketException("Cannot connect to socket: operation failed with error code " + error));
+    }
+
+    @Override
+    protected <T> CompletableFuture<T> withDeadline(CompletableFuture<T> future, Duration timeout) {
+        return future;
+    }
+
+    // The deadline only bounds the time spent waiting for readiness: once a syscall is made, it doesn't block
+    private CompletableFuture<Void> awaitReady(Interest interest, int observed, long deadline) {
+        var future = interest.await(observed);
+        if (deadline == NO_DEADLINE) {
+            return future;
+        }
+
+        return future.orTimeout(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    protected void cancelRead() {
+        if (readiness != null) {
+            readiness.readable().fail(new CancellationException());
+        }
+    }
+
+    @Override
+    protected void cancelWrite() {
+        if (readiness != null) {
+            readiness.writable().fail(new CancellationException());
+        }
+    }
+
+    // Edge triggered readiness is only reported when it changes: the syscall is always tried first,
+    // and the socket is only waited on once the kernel says it would block
+    @Override
+    protected CompletableFuture<Void> writeNative(ByteBuffer input) {
+        while (input.hasRemaining()) {
+            var observed = readiness.writable().sequence();
+            var position = input.position();
+            long result;
+            if (input.isDirect()) {
+                result = write(MemorySegment.ofBuffer(input), input.remaining());
+            } else {
+                var length = Math.min(input.remaining(), writeBufferSize);
+                writeToIOBuffer(input, length);
+                result = write(writeBuffer, length);
+            }
+
+            if (result >= 0) {
+                input.position(position + (int) result);
+                continue;
+            }
+
+            input.position(position);
+            var error = errno(writeState);
+            if (error == LinuxKernel.EINTR()) {
+                continue;
+            }
+
+            if (error == LinuxKernel.EAGAIN()) {
+                return awaitReady(readiness.writable(), observed, writeDeadline)
+                        .thenCompose(_ -> writeNative(input));
+            }
+
+            close();
+            return CompletableFuture.failedFuture(new SocketException("Cannot send message to socket (socket closed)"));
+        }
+
+        return NO_RESULT;
+    }
+
+    @Override
+    protected CompletableFuture<Void> readNative(ByteBuffer output, boolean lastRead) {
+        while (true) {
+            var observed = readiness.readable().sequence();
+            var direct = output.isDirect();
+            var length = direct ? output.remaining() : Math.min(output.remaining(), readBufferSize);
+            var result = read(direct ? MemorySegment.ofBuffer(output) : readBuffer, length);
+            if (result > 0) {
+                if (direct) {
+                    output.position(output.position() + (int) result);
+                    if (lastRead) {
+                        output.flip();
+                    }
+                } else {
+                    readFromIOBuffer(output, (int) result, lastRead);
+                }
+                return NO_RESULT;
+            }
+
+            if (result < 0) {
+                var error = errno(readState);
+                if (error == LinuxKernel.EINTR()) {
+                    continue;
+                }
+
+                if (error == LinuxKernel.EAGAIN()) {
+                    return awaitReady(readiness.readable(), observed, readDeadline)
+                            .thenCompose(_ -> readNative(output, lastRead));
+                }
+            }
+
+            close();
+            return CompletableFuture.failedFuture(new SocketException("Cannot receive message from socket (socket closed)"));
+        }
+    }
+
+    // sendfile copies the pages of the file to the socket inside the kernel and advances the offset by what it sent
+    @Override
+    protected CompletableFuture<Void> transferNative(Path path, long offset, long length) {
+        var file = openFile(path);
+        if (file < 0) {
+            return CompletableFuture.failedFuture(new SocketException("Cannot open file " + path));
+        }
+
+        var position = arena.allocate(ValueLayout.JAVA_LONG);
+        position.set(ValueLayout.JAVA_LONG, 0, offset);
+        return sendFile(file, position, offset + length).whenComplete((_, _) -> LinuxKernel.close(file));
+    }
+
+    private CompletableFuture<Void> sendFile(int file, MemorySegment position, long end) {
+        while (true) {
+            var remaining = end - position.get(ValueLayout.JAVA_LONG, 0);
+            if (remaining <= 0) {
+                return NO_RESULT;
+            }
+
+            var observed = readiness.writable().sequence();
+            var result = sendfile(file, position, Math.min(remaining, SENDFILE_LENGTH));
+            if (result > 0) {
+                continue;
+            }
+
+            if (result == 0) {
+                return CompletableFuture.failedFuture(new SocketException("Cannot send file to socket: it ended %s bytes early".formatted(remaining)));
+            }
+
+            var error = errno(writeState);
+            if (error == LinuxKernel.EINTR()) {
+                continue;
+            }
+
+            if (error == LinuxKernel.EAGAIN()) {
+                return awaitReady(readiness.writable(), observed, writeDeadline)
+                        .thenCompose(_ -> sendFile(file, position, end));
+            }
+
+            close();
+            return CompletableFuture.failedFuture(new SocketException("Cannot send file to socket (socket closed)"));
+        }
+    }
+
+    private long sendfile(int file, MemorySegment position, long length) {
+        try {
+            return (long) SENDFILE.invokeExact(writeState, (int) handle, file, position, length);
+        } catch (Throwable throwable) {
+            throw new SocketException("Cannot send file to socket", throwable);
+        }
+    }
+
+    private int connect(MemorySegment remoteAddress) {
+        try {
+            return (int) CONNECT.invokeExact(writeState, (int) handle, remoteAddress, (int) remoteAddress.byteSize());
+        } catch (Throwable throwable) {
+            throw new SocketException("Cannot connect to socket", throwable);
+        }
+    }
+
+    private long write(MemorySegment buffer, long length) {
+        try {
+            return (long) WRITE.invokeExact(writeState, (int) handle, buffer, length);
+        } catch (Throwable throwable) {
+            throw new SocketException("Cannot send message to socket", throwable);
+        }
+    }
+
+    private long read(MemorySegment buffer, long length) {
+        try {
+            return (long) READ.invokeExact(readState, (int) handle, buffer, length);
+        } catch (Throwable throwable) {
+            throw new SocketException("Cannot receive message from socket", throwable);
+        }
+    }
+
+    private static int errno(MemorySegment state) {
+        return (int) ERRNO.get(state, 0L);
+    }
+
+    @Override
+    public void close() {
+        if (epoll != null && handle != null && epoll.unregister(handle, readiness)) {
+            LinuxKernel.shutdown(handle, LinuxKernel.SHUT_RDWR());
+            LinuxKernel.close(handle);
+            releaseReadAhead();
+        }
+
+        this.address = null;
+        connected.set(false);
+    }
+
+    static final class EpollPool {
+        private final Epoll[] loops;
+        private final AtomicInteger nextLoop;
+
+        private EpollPool(int size) {
+            this.loops = new Epoll[size];
+            for (var index = 0; index < loops.length; index++) {
+                loops[index] = new Epoll(index);
+            }
+            this.nextLoop = new AtomicInteger();
+        }
+
+        Epoll next() {
+            return loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+        }
+    }
+
+    static final class Epoll implements Runnable {
+        private static final MethodHandle WAIT = Linker.nativeLinker()
+                .downcallHandle(LinuxKernel.epoll_wait$address(), LinuxKernel.epoll_wait$descriptor(), CAPTURE_ERRNO);
+        private static final int MAX_EVENTS = 256;
+        private static final int INTERESTS = LinuxKernel.EPOLLIN() | LinuxKernel.EPOLLOUT() | LinuxKernel.EPOLLRDHUP() | LinuxKernel.EPOLLET();
+        private static final int READ_EVENTS = LinuxKernel.EPOLLIN() | LinuxKernel.EPOLLRDHUP() | LinuxKernel.EPOLLERR() | LinuxKernel.EPOLLHUP();
+        private static final int WRITE_EVENTS = LinuxKernel.EPOLLOUT() | LinuxKernel.EPOLLERR() | LinuxKernel.EPOLLHUP();
+
+        private final int id;
+        private final ConcurrentMap<Integer, Readiness> registrations;
+        private volatile Integer epollHandle;
+
+        private Epoll(int id) {
+            this.id = id;
+            this.registrations = new ConcurrentHashMap<>();
+        }
+
+        // Sockets are registered once for both directions: with edge triggering, a socket that isn't waited on costs nothing
+        public Readiness register(int handle) {
+            var epollHandle = start();
+            var readiness = new Readiness();
+            registrations.put(handle, readiness);
+            try (var arena = Arena.ofConfined()) {
+                var event = epoll_event.allocate(arena);
+                epoll_event.events(event, INTERESTS);
+                epoll_data.fd(epoll_event.data(event), handle);
+                if (LinuxKernel.epoll_ctl(epollHandle, LinuxKernel.EPOLL_CTL_ADD(), handle, event) != 0) {
+                    registrations.remove(handle, readiness);
+                    throw new SocketException("Cannot register socket with epoll");
+                }
+            }
+            return readiness;
+        }
+
+        public boolean unregister(int handle, Readiness readiness) {
+            if (!registrations.remove(handle, readiness)) {
+                return false;
+            }
+
+            var epollHandle = this.epollHandle;
+            if (epollHandle != null) {
+                LinuxKernel.epoll_ctl(epollHandle, LinuxKernel.EPOLL_CTL_DEL(), handle, MemorySegment.NULL);
+            }
+            readiness.close();
+            return true;
+        }
+
+        private int start() {
+            var epollHandle = this.epollHandle;
+            if (epollHandle != null) {
+                return epollHandle;
+            }
+
+            synchronized (this) {
+                if (this.epollHandle == null) {
+                    var result = LinuxKernel.epoll_create1(LinuxKernel.EPOLL_CLOEXEC());
+                    if (result < 0) {
+                        throw new SocketException("Cannot create epoll instance");
+                    }
+
+                    this.epollHandle = result;
+                    Thread.ofPlatform()
+                            .name("EPOLL-" + id)
+                            .daemon()
+                            .start(this);
+                }
+                return this.epollHandle;
+            }
+        }
+
+        @Override
+        public void run() {
+            var epollHandle = this.epollHandle;
+            try (var arena = Arena.ofConfined()) {
+                var events = epoll_event.allocateArray(MAX_EVENTS, arena);
+                var state = arena.allocate(CALL_STATE_LAYOUT);
+                while (true) {
+                    var count = await(state, epollHandle, events);
+                    if (count < 0) {
+                        if (errno(state) == LinuxKernel.EINTR()) {
+                            continue;
+                        }
+
+                        break;
+                    }
+
+                    for (var index = 0; index < count; index++) {
+                        var event = epoll_event.asSlice(events, index);
+                        var readiness = registrations.get(epoll_data.fd(epoll_event.data(event)));
+                        if (readiness == null) {
+                            continue;
+                        }
+
+                        // Errors and hang ups wake up both directions: the next syscall reports them
+                        var flags = epoll_event.events(event);
+                        if ((flags & READ_EVENTS) != 0) {
+                            readiness.readable().signal();
+                        }
+                        if ((flags & WRITE_EVENTS) != 0) {
+                            readiness.writable().signal();
+                        }
+                    }
+                }
+            }
+
+            // Like a ring, an epoll instance whose thread died is created again by the next registration
+            synchronized (this) {
+                this.epollHandle = null;
+            }
+            LinuxKernel.close(epollHandle);
+            registrations.values().removeIf(readiness -> {
+                readiness.close();
+                return true;
+            });
+        }
+
+        private int await(MemorySegment state, int epollHandle, MemorySegment events) {
+            try {
+                return (int) WAIT.invokeExact(state, epollHandle, events, MAX_EVENTS, -1);
+            } catch (Throwable throwable) {
+                return -1;
+            }
+        }
+    }
+
+    record Readiness(Interest readable, Interest writable) {
+        private Readiness() {
+            this(new Interest(), new Interest());
+        }
+
+        void close() {
+            readable.close();
+            writable.close();
+        }
+    }
+
+    // Edge triggered epoll reports each change once, so an event can arrive between a syscall failing with EAGAIN and the waiter being set:
+    // the waiter compares the sequence it observed before the syscall with the current one instead of waiting for an event that already happened
+    static final class Interest {
+        private final AtomicInteger sequence;
+        private final AtomicReference<CompletableFuture<Void>> waiter;
+        private volatile boolean closed;
+
+        private Interest() {
+            this.sequence = new AtomicInteger();
+            this.waiter = new AtomicReference<>();
+        }
+
+        int sequence() {
+            return sequence.get();
+        }
+
+        CompletableFuture<Void> await(int observed) {
+            var future = new CompletableFuture<Void>();
+            waiter.set(future);
+            if (closed) {
+                fail(new SocketException("Cannot complete operation: socket closed"));
+            } else if (sequence.get() != observed) {
+                wake();
+            }
+            return future;
+        }
+
+        private void signal() {
+            sequence.incrementAndGet();
+            wake();
+        }
+
+        private void wake() {
+            var future = waiter.getAndSet(null);
+            if (future != null) {
+                future.complete(null);
+            }
+        }
+
+        void fail(Throwable throwable) {
+            var future = waiter.getAndSet(null);
+            if (future != null) {
+                future.completeExceptionally(throwable);
+            }
+        }
+
+        private void close() {
+            this.closed = true;
+            fail(new SocketException("Cannot complete operation: socket closed"));
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package it.auties.leap.socket.async.transportLayer.implementation;
+
+import it.auties.leap.socket.SocketException;
+import it.auties.leap.socket.SocketOption;
+import it.auties.leap.socket.SocketProtocol;
+import it.auties.leap.socket.SocketTlsOffload;
+import it.auties.leap.socket.SocketUnixAddress;
+import it.auties.leap.socket.implementation.linux.LinuxKernel;
+import it.auties.leap.socket.implementation.linux.LinuxSocketOption;
+import it.auties.leap.socket.implementation.linux.sockaddr_in;
+import it.auties.leap.socket.implementation.linux.sockaddr_in6;
+import it.auties.leap.socket.implementation.linux.sockaddr_un;
+import it.auties.leap.socket.implementation.linux.tls12_crypto_info_aes_gcm_128;
+import it.auties.leap.socket.implementation.linux.tls12_crypto_info_aes_gcm_256;
+import it.auties.leap.socket.implementation.linux.tls12_crypto_info_chacha20_poly1305;
+import it.auties.leap.socket.implementation.linux.tls_crypto_info;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+// Socket setup shared by the io_uring and epoll transports
+abstract class AsyncLinuxNativeTransportSocketLayer extends AsyncNativeTransportSocketLayer<Integer> {
+    private static final int IPV4_ADDRESS_LENGTH = 4;
+    private static final int IPV6_ADDRESS_LENGTH = 16;
+    private static final LinuxKernel.open OPEN = LinuxKernel.open.makeInvoker();
+    private static final Executor RESOLVER = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("DNS-resolver-", 0).factory());
+
+    final SocketUnixAddress unixAddress;
+    private boolean tlsUlp;
+
+    AsyncLinuxNativeTransportSocketLayer(SocketProtocol protocol, SocketUnixAddress unixAddress) {
+        super(protocol);
+        this.unixAddress = unixAddress;
+    }
+
+    @Override
+    protected Integer createNativeHandle() {
+        // A dual-stack socket reaches IPv4 hosts through mapped addresses, so the same handle works for both families
+        var handle = openSocket(LinuxKernel.AF_INET6());
+        if (handle == -1) {
+            handle = openSocket(LinuxKernel.AF_INET());
+        }
+        if (handle == -1) {
+            throw new SocketException("Cannot create socket");
+        }
+        return handle;
+    }
+
+    static int openSocket(int family) {
+        return LinuxKernel.socket(
+                family,
+                LinuxKernel.SOCK_STREAM() | LinuxKernel.SOCK_NONBLOCK(),
+                0
+        );
+    }
+
+    // The handle is created before the subclass knows where it will connect, so a unix socket replaces it when connecting:
+    // the address passed to connect is then only used by the layers above, for example as the name of the TLS server
+    int openUnixHandle() {
+        var unixHandle = LinuxKernel.socket(
+                LinuxKernel.AF_UNIX(),
+                LinuxKernel.SOCK_STREAM() | LinuxKernel.SOCK_NONBLOCK(),
+                0
+        );
+        if (unixHandle == -1) {
+            throw new SocketException("Cannot create unix socket");
+        }
+
+        LinuxKernel.close(handle);
+        this.handle = unixHandle;
+        applyKernelOptions(unixHandle);
+        return unixHandle;
+    }
+
+    // The length passed to the kernel is part of the address: an abstract name isn't terminated and can contain any byte
+    MemorySegment createUnixAddress() {
+        var path = unixAddress.path().getBytes(StandardCharsets.UTF_8);
+        var remoteAddress = arena.allocate(sockaddr_un.layout());
+        sockaddr_un.sun_family(remoteAddress, (short) LinuxKernel.AF_UNIX());
+        var offset = unixAddress.abstractNamespace() ? 1 : 0;
+        MemorySegment.copy(path, 0, sockaddr_un.sun_path(remoteAddress), ValueLayout.JAVA_BYTE, offset, path.length);
+        var length = sockaddr_un.sun_path$offset() + offset + path.length + (unixAddress.abstractNamespace() ? 0 : 1);
+        return remoteAddress.asSlice(0, length);
+    }
+
+    static int openFile(Path path) {
+        try (var arena = Arena.ofConfined()) {
+            return OPEN.apply(arena.allocateFrom(path.toString()), LinuxKernel.O_RDONLY() | LinuxKernel.O_CLOEXEC());
+        }
+    }
+
+    // The tls module of the kernel is attached to the socket once, then each direction gets its keys:
+    // if the module is missing the first setsockopt fails and the socket is left as it was
+    @Override
+    public boolean offloadTls(SocketTlsOffload offload) {
+        Objects.requireNonNull(offload, "offload cannot be null");
+        if (unixAddress != null || !isConnected()) {
+            return false;
+        }
+
+        // Records that were already read ahead would never reach the kernel, which expects to open every record after the handshake
+        if (offload.direction() == SocketTlsOffload.Direction.RECEIVE && (readAhead != null && !readAhead.isEmpty() || !canOffloadReceive())) {
+            return false;
+        }
+
+        if (!tlsUlp) {
+            var name = arena.allocateFrom("tls");
+            if (LinuxKernel.setsockopt(handle, LinuxKernel.IPPROTO_TCP(), LinuxKernel.TCP_ULP(), name, (int) name.byteSize()) != 0) {
+                return false;
+            }
+
+            this.tlsUlp = true;
+        }
+
+        var cryptoInfo = createCryptoInfo(offload);
+        var direction = switch (offload.direction()) {
+            case TRANSMIT -> LinuxKernel.TLS_TX();
+            case RECEIVE -> LinuxKernel.TLS_RX();
+        };
+        var result = LinuxKernel.setsockopt(handle, LinuxKernel.SOL_TLS(), direction, cryptoInfo, (int) cryptoInfo.byteSize());
+        // The kernel keeps its own copy of the keys
+        cryptoInfo.fill((byte) 0);
+        return result == 0;
+    }
+
+    private MemorySegment createCryptoInfo(SocketTlsOffload offload) {
+        var cryptoInfo = switch (offload.cipher()) {
+            case AES_GCM_128 -> {
+                var info = arena.allocate(tls12_crypto_info_aes_gcm_128.layout());
+                tls_crypto_info.cipher_type(tls12_crypto_info_aes_gcm_128.info(info), (short) LinuxKernel.TLS_CIPHER_AES_GCM_128());
+                copyKeyMaterial(offload.iv(), tls12_crypto_info_aes_gcm_128.iv(info));
+                copyKeyMaterial(offload.key(), tls12_crypto_info_aes_gcm_128.key(info));
+                copyKeyMaterial(offload.salt(), tls12_crypto_info_aes_gcm_128.salt(info));
+                copyKeyMaterial(offload.sequence(), tls12_crypto_info_aes_gcm_128.rec_seq(info));
+                yield info;
+            }
+            case AES_GCM_256 -> {
+                var info = arena.allocate(tls12_crypto_info_aes_gcm_256.layout());
+                tls_crypto_info.cipher_type(tls12_crypto_info_aes_gcm_256.info(info), (short) LinuxKernel.TLS_CIPHER_AES_GCM_256());
+                copyKeyMaterial(offload.iv(), tls12_crypto_info_aes_gcm_256.iv(info));
+                copyKeyMaterial(offload.key(), tls12_crypto_info_aes_gcm_256.key(info));
+                copyKeyMaterial(offload.salt(), tls12_crypto_info_aes_gcm_256.salt(info));
+                copyKeyMaterial(offload.sequence(), tls12_crypto_info_aes_gcm_256.rec_seq(info));
+                yield info;
+            }
+            case CHACHA20_POLY1305 -> {
+                var info = arena.allocate(tls12_crypto_info_chacha20_poly1305.layout());
+                tls_crypto_info.cipher_type(tls12_crypto_info_chacha20_poly1305.info(info), (short) LinuxKernel.TLS_CIPHER_CHACHA20_POLY1305());
+                copyKeyMaterial(offload.iv(), tls12_crypto_info_chacha20_poly1305.iv(info));
+                copyKeyMaterial(offload.key(), tls12_crypto_info_chacha20_poly1305.key(info));
+                copyKeyMaterial(offload.sequence(), tls12_crypto_info_chacha20_poly1305.rec_seq(info));
+                yield info;
+            }
+        };
+        var version = offload.tls13() ? LinuxKernel.TLS_1_3_VERSION() : LinuxKernel.TLS_1_2_VERSION();
+        tls_crypto_info.version(cryptoInfo, (short) version);
+        return cryptoInfo;
+    }
+
+    private static void copyKeyMaterial(byte[] source, MemorySegment destination) {
+        MemorySegment.copy(source, 0, destination, ValueLayout.JAVA_BYTE, 0, source.length);
+    }
+
+    // A resolved address, or a literal one, is used as is: otherwise the lookup blocks,
+    // so it runs on its own thread instead of the caller's, which can be a ring or completion thread if connect is chained
+    static CompletableFuture<List<InetAddress>> resolveCandidates(InetSocketAddress address) {
+        var resolved = address.getAddress();
+        if (resolved != null) {
+            return CompletableFuture.completedFuture(List.of(resolved));
+        }
+
+        return CompletableFuture.supplyAsync(() -> lookupCandidates(address.getHostString()), RESOLVER);
+    }
+
+    // RFC 8305, section 4: the resolved addresses are interleaved by family, starting with IPv6
+    private static List<InetAddress> lookupCandidates(String host) {
+        try {
+            return interleaveCandidates(InetAddress.getAllByName(host));
+        } catch (UnknownHostException exception) {
+            return List.of();
+        }
+    }
+
+    static List<InetAddress> interleaveCandidates(InetAddress[] resolved) {
+        var ipv6 = new ArrayDeque<InetAddress>();
+        var ipv4 = new ArrayDeque<InetAddress>();
+        for (var candidate : resolved) {
+            if (candidate instanceof Inet6Address) {
+                ipv6.add(candidate);
+            } else {
+                ipv4.add(candidate);
+            }
+        }
+
+        var results = new ArrayList<InetAddress>(resolved.length);
+        while (!ipv6.isEmpty() || !ipv4.isEmpty()) {
+            if (!ipv6.isEmpty()) {
+                results.add(ipv6.poll());
+            }
+            if (!ipv4.isEmpty()) {
+                results.add(ipv4.poll());
+            }
+        }
+        return results;
+    }
+
+    Optional<MemorySegment> createRemoteAddress(int handle, InetAddress address, int port) {
+        if (socketFamily(handle) == LinuxKernel.AF_INET6()) {
+            var remoteAddress = arena.allocate(sockaddr_in6.layout());
+            sockaddr_in6.sin6_family(remoteAddress, (short) LinuxKernel.AF_INET6());
+            sockaddr_in6.sin6_port(remoteAddress, Short.reverseBytes((short) port));
+            var host = sockaddr_in6.sin6_addr(remoteAddress);
+            if (address instanceof Inet6Address ipv6) {
+                MemorySegment.copy(ipv6.getAddress(), 0, host, ValueLayout.JAVA_BYTE, 0, IPV6_ADDRESS_LENGTH);
+                sockaddr_in6.sin6_scope_id(remoteAddress, ipv6.getScopeId());
+            } else {
+                // ::ffff:a.b.c.d
+                host.set(ValueLayout.JAVA_BYTE, 10, (byte) 0xFF);
+                host.set(ValueLayout.JAVA_BYTE, 11, (byte) 0xFF);
+                MemorySegment.copy(address.getAddress(), 0, host, ValueLayout.JAVA_BYTE, IPV6_ADDRESS_LENGTH - IPV4_ADDRESS_LENGTH, IPV4_ADDRESS_LENGTH);
+            }
+            return Optional.of(remoteAddress);
+        }
+
+        if (!(address instanceof Inet4Address)) {
+            return Optional.empty();
+        }
+
+        var remoteAddress = arena.allocate(sockaddr_in.layout());
+        sockaddr_in.sin_family(remoteAddress, (short) LinuxKernel.AF_INET());
+        sockaddr_in.sin_port(remoteAddress, Short.reverseBytes((short) port));
+        MemorySegment.copy(address.getAddress(), 0, sockaddr_in.sin_addr(remoteAddress), ValueLayout.JAVA_BYTE, 0, IPV4_ADDRESS_LENGTH);
+        return Optional.of(remoteAddress);
+    }
+
+    // A transport that pulls bytes from the socket on its own, before they are asked for, can't hand the receive side to the kernel
+    protected boolean canOffloadReceive() {
+        return true;
+    }
+
+    @Override
+    protected boolean readsDirectly(ByteBuffer output) {
+        return output.isDirect();
+    }
+
+    private int socketFamily(int handle) {
+        return LinuxSocketOption.DOMAIN.get(handle).orElse(LinuxKernel.AF_INET());
+    }
+
+    @Override
+    public <V> V getOption(SocketOption<V> option) {
+        var value = LinuxSocketOption.of(option)
+                .map(kernelOption -> kernelOption.get(handle))
+                .orElseGet(OptionalInt::empty);
+        if (value.isEmpty()) {
+            return super.getOption(option);
+        }
+
+        // The kernel reports the value it's actually using: for example, buffer sizes are doubled to account for bookkeeping overhead
+        return option.parse(value.getAsInt());
+    }
+
+    @Override
+    public <V> void setOption(SocketOption<V> option, V value) {
+        Objects.requireNonNull(value, "Invalid option value");
+        // Kernels without TCP_FASTOPEN_CONNECT keep using a regular handshake
+        if (option instanceof SocketOption.TcpFastOpen && !LinuxSocketOption.of(option).orElseThrow().set(handle, option, value)) {
+            super.setOption(option, (V) Boolean.FALSE);
+            return;
+        }
+
+        var kernelOption = LinuxSocketOption.of(option);
+        if (kernelOption.isPresent() && isApplicable(kernelOption.get())) {
+            setKernelOption(handle, kernelOption.get(), option, value);
+        }
+
+        super.setOption(option, value);
+    }
+
+    @Override
+    protected boolean appliesKernelOptions() {
+        return true;
+    }
+
+    // Options that were already set are applied again to every socket that the transport creates after the first one.
+    // Fast open is left out: a deferred connect always succeeds right away, so it would decide the race before any handshake
+    void applyKernelOptions(int handle) {
+        if (keepAlive) {
+            setKernelOption(handle, LinuxSocketOption.of(SocketOption.keepAlive()).orElseThrow(), SocketOption.keepAlive(), true);
+        }
+
+        kernelOptions.forEach((option, value) -> {
+            var kernelOption = LinuxSocketOption.of(option);
+            if (kernelOption.isPresent() && isApplicable(kernelOption.get()) && !(option instanceof SocketOption.TcpFastOpen)) {
+                setKernelOption(handle, kernelOption.get(), (SocketOption<Object>) option, value);
+            }
+        });
+    }
+
+    // TCP options are kept but not applied to unix sockets, so the same configuration works for both
+    private boolean isApplicable(LinuxSocketOption kernelOption) {
+        return unixAddress == null || kernelOption.level() != LinuxKernel.IPPROTO_TCP();
+    }
+
+    private <V> void setKernelOption(int handle, LinuxSocketOption kernelOption, SocketOption<V> option, V value) {
+        if (!kernelOption.set(handle, option, value)) {
+            throw new SocketException("Cannot set option %s to %s".formatted(option.name(), value));
+        }
+    }
+
+}
@@ -1,111 +1,395 @@
 package it.auties.leap.socket.async.transportLayer.implementation;
 
-import it.auties.leap.StableValue;
 import it.auties.leap.socket.SocketException;
+import it.auties.leap.socket.SocketOption;
 import it.auties.leap.socket.SocketProtocol;
+import it.auties.leap.socket.SocketUnixAddress;
+import it.auties.leap.socket.async.transportLayer.AsyncLinuxTransportConfig;
 import it.auties.leap.socket.async.transportLayer.AsyncSocketTransportLayerFactory;
 import it.auties.leap.socket.implementation.linux.*;
 
 import java.lang.foreign.Arena;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
 import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
 import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.OptionalInt;
 import java.util.Set;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 // Io_uring
-public final class AsyncLinuxTransportSocketLayer extends AsyncNativeTransportSocketLayer<Integer> {
+public final class AsyncLinuxTransportSocketLayer extends AsyncLinuxNativeTransportSocketLayer {
+    private static final long CONNECTION_ATTEMPT_DELAY = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final int SPLICE_LENGTH = 65536;
+    // The provided buffers are shared by every socket on the ring: a reader that falls behind stops receiving at the high watermark,
+    // leaving the rest of its data in the kernel where TCP flow control applies, and starts again once it drained to the low one
+    private static final int RECEIVE_HIGH_WATERMARK = 16;
+    private static final int RECEIVE_LOW_WATERMARK = 4;
+    private static final IOUringPool DEFAULT_POOL = new IOUringPool(AsyncLinuxTransportConfig.defaults());
     private static final AsyncSocketTransportLayerFactory FACTORY = AsyncLinuxTransportSocketLayer::new;
 
     public static AsyncSocketTransportLayerFactory factory() {
         return FACTORY;
     }
 
+    // Sockets created by the same factory share its pool of rings
+    public static AsyncSocketTransportLayerFactory factory(AsyncLinuxTransportConfig config) {
+        Objects.requireNonNull(config, "Invalid config");
+        var pool = new IOUringPool(config);
+        return protocol -> new AsyncLinuxTransportSocketLayer(protocol, pool, null);
+    }
+
+    // Every socket connects to the unix address, whatever address it's asked to connect to
+    public static AsyncSocketTransportLayerFactory factory(SocketUnixAddress unixAddress) {
+        Objects.requireNonNull(unixAddress, "Invalid unix address");
+        return protocol -> new AsyncLinuxTransportSocketLayer(protocol, DEFAULT_POOL, unixAddress);
+    }
+
+    public static AsyncSocketTransportLayerFactory factory(AsyncLinuxTransportConfig config, SocketUnixAddress unixAddress) {
+        Objects.requireNonNull(config, "Invalid config");
+        Objects.requireNonNull(unixAddress, "Invalid unix address");
+        var pool = new IOUringPool(config);
+        return protocol -> new AsyncLinuxTransportSocketLayer(protocol, pool, unixAddress);
+    }
+
+    // io_uring can be compiled out of the kernel, disabled through kernel.io_uring_disabled or blocked by a seccomp profile,
+    // and in all of these cases the setup call fails: a throwaway ring tells a usable kernel apart from the others
+    public static boolean isSupported() {
+        return IOUring.SUPPORTED;
+    }
+
+    private final IOUringPool ioUringPool;
+    private final ReentrantLock receiveLock;
+    private final Deque<ReceivedChunk> receivedChunks;
     private IOUring ioUring;
+    private int readBufferIndex;
+    private int writeBufferIndex;
+    private MemorySegment readVectors;
+    private MemorySegment writeVectors;
+    private volatile IOUring.OperationFuture inFlightRead;
+    private volatile IOUring.OperationFuture inFlightWrite;
+    private boolean multishotReceive;
+    private volatile long receiveOperation;
+    private boolean receiveArmed;
+    private boolean receiveCancelled;
+    private boolean receiveThrottled;
+    private boolean receiveStalled;
+    private boolean receiveClosed;
+    private CompletableFuture<Void> receiveSignal;
 
     public AsyncLinuxTransportSocketLayer(SocketProtocol protocol) {
-        super(protocol);
+        this(protocol, DEFAULT_POOL, null);
     }
 
-    @Override
-    protected Integer createNativeHandle() {
-        var handle = LinuxKernel.socket(
-                LinuxKernel.AF_INET(),
-                LinuxKernel.SOCK_STREAM() | LinuxKernel.SOCK_NONBLOCK(),
-                0
-        );
-        if (handle == -1) {
-            throw new SocketException("Cannot create socket");
-        }
-        return handle;
+    private AsyncLinuxTransportSocketLayer(SocketProtocol protocol, IOUringPool ioUringPool, SocketUnixAddress unixAddress) {
+        super(protocol, unixAddress);
+        this.ioUringPool = ioUringPool;
+        this.receiveLock = new ReentrantLock();
+        this.receivedChunks = new ArrayDeque<>();
+        this.readBufferIndex = IOUring.NO_FIXED_BUFFER;
+        this.writeBufferIndex = IOUring.NO_FIXED_BUFFER;
     }
 
     @Override
     public CompletableFuture<Void> connectNative(InetSocketAddress address) {
-        var remoteAddress = createRemoteAddress(address);
-        if (remoteAddress.isEmpty()) {
-            return CompletableFuture.failedFuture(new SocketException("Cannot connect to socket: unresolved host %s".formatted(address.getHostName())));
+        if (unixAddress != null) {
+            openUnixHandle();
+            return connectNative(address, List.of());
         }
 
-        initIOBuffers();
+        return resolveCandidates(address).thenCompose(candidates -> {
+            if (candidates.isEmpty()) {
+                return CompletableFuture.failedFuture(new SocketException("Cannot connect to socket: unresolved host %s".formatted(address.getHostName())));
+            }
 
-        this.ioUring = IOUring.shared();
+            return connectNative(address, candidates);
+        });
+    }
+
+    private CompletableFuture<Void> connectNative(InetSocketAddress address, List<InetAddress> candidates) {
+        this.ioUring = ioUringPool.next();
         ioUring.registerHandle(handle);
 
-        return ioUring.insert(handle, true, sqe -> {
-            io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_CONNECT());
-            io_uring_sqe.fd(sqe, handle);
-            io_uring_sqe.addr(sqe, remoteAddress.get().address());
-            io_uring_sqe.off(sqe, remoteAddress.get().byteSize());
-            io_uring_sqe.user_data(sqe, handle);
-        }).thenCompose(result -> {
-            if (result != 0) {
-                return CompletableFuture.failedFuture(new SocketException("Cannot connect to socket: operation failed with error code " + result));
+        this.multishotReceive = ioUringPool.config().receiveMode() == AsyncLinuxTransportConfig.ReceiveMode.MULTISHOT
+                && ioUring.hasProvidedBuffers();
+
+        var connection = unixAddress != null ? connectAttempt(handle, createUnixAddress()).result()
+                : candidates.size() == 1 ? connect(handle, candidates.getFirst(), address.getPort())
+                : new ConnectionRace(candidates, address.getPort()).start();
+        return connection.thenCompose(winner -> {
+            if (winner.intValue() != handle.intValue()) {
+                ioUring.unregisterHandle(handle);
+                LinuxKernel.close(handle);
+                this.handle = winner;
             }
 
             connected.set(true);
+            if (multishotReceive) {
+                armReceive();
+            }
             return NO_RESULT;
         });
     }
 
-    private Optional<MemorySegment> createRemoteAddress(InetSocketAddress address) {
-        var remoteAddress = arena.allocate(sockaddr_in.layout());
-        sockaddr_in.sin_family(remoteAddress, (short) LinuxKernel.AF_INET());
-        sockaddr_in.sin_port(remoteAddress, Short.reverseBytes((short) address.getPort()));
-        var inAddr = arena.allocate(in_addr.layout());
-        var ipv4Host = getLittleEndianIPV4Host(address);
-        if (ipv4Host.isEmpty()) {
-            return Optional.empty();
+    // The IORING_SETUP_* flags of the ring the socket was assigned to on connect: a kernel that doesn't know some of the configured ones sets up the ring without them
+    public OptionalInt ringSetupFlags() {
+        var ioUring = this.ioUring;
+        return ioUring == null ? OptionalInt.empty() : OptionalInt.of(ioUring.setupFlags());
+    }
+
+    private CompletableFuture<Integer> connect(int handle, InetAddress address, int port) {
+        return connectAttempt(handle, address, port).result();
+    }
+
+    private ConnectionAttempt connectAttempt(int handle, InetAddress address, int port) {
+        var remoteAddress = createRemoteAddress(handle, address, port);
+        if (remoteAddress.isEmpty()) {
+            var error = new SocketException("Cannot connect to socket: unsupported address %s".formatted(address));
+            return new ConnectionAttempt(handle, null, CompletableFuture.failedFuture(error));
         }
 
-        in_addr.s_addr(inAddr, ipv4Host.getAsInt());
-        sockaddr_in.sin_addr(remoteAddress, inAddr);
-        return Optional.of(remoteAddress);
+        return connectAttempt(handle, remoteAddress.get());
+    }
+
+    private ConnectionAttempt connectAttempt(int handle, MemorySegment remoteAddress) {
+        var operation = ioUring.insert(handle, sqe -> {
+            io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_CONNECT());
+            io_uring_sqe.fd(sqe, handle);
+            io_uring_sqe.addr(sqe, remoteAddress.address());
+            io_uring_sqe.off(sqe, remoteAddress.byteSize());
+        }, connectDeadline);
+        var result = operation.thenCompose(code -> {
+            if (code == -LinuxKernel.ECANCELED()) {
+                return CompletableFuture.failedFuture(abortedOperation(connectDeadline, "Cannot connect to socket"));
+            }
+
+            if (code != 0) {
+                return CompletableFuture.failedFuture(new SocketException("Cannot connect to socket: operation failed with error code " + code));
+            }
+
+            return CompletableFuture.completedFuture(handle);
+        });
+        return new ConnectionAttempt(handle, operation, result);
+    }
+
+    private IOUring.OperationFuture submitWrite(Consumer<MemorySegment> configurator) {
+        var future = ioUring.insert(handle, configurator, writeDeadline);
+        this.inFlightWrite = future;
+        return future;
+    }
+
+    private IOUring.OperationFuture submitRead(Consumer<MemorySegment> configurator) {
+        var future = ioUring.insert(handle, configurator, readDeadline);
+        this.inFlightRead = future;
+        return future;
+    }
+
+    private Throwable abortedOperation(long deadline, String message) {
+        return isExpired(deadline)
+                ? new TimeoutException(message + " (timed out)")
+                : new CancellationException(message + " (cancelled)");
+    }
+
+    @Override
+    protected <T> CompletableFuture<T> withDeadline(CompletableFuture<T> future, Duration timeout) {
+        return future;
+    }
+
+    @Override
+    protected void cancelRead() {
+        if (multishotReceive) {
+            CompletableFuture<Void> signal;
+            receiveLock.lock();
+            try {
+                signal = receiveSignal;
+                this.receiveSignal = null;
+            } finally {
+                receiveLock.unlock();
+            }
+
+            if (signal != null) {
+                signal.completeExceptionally(new CancellationException("Cannot receive message from socket (cancelled)"));
+            }
+            return;
+        }
+
+        var ioUring = this.ioUring;
+        if (ioUring != null) {
+            ioUring.cancel(handle, inFlightRead);
+        }
+    }
+
+    @Override
+    protected void cancelWrite() {
+        var ioUring = this.ioUring;
+        if (ioUring != null) {
+            ioUring.cancel(handle, inFlightWrite);
+        }
+    }
+
+    // A fixed buffer saves the kernel from pinning the pages on every operation, but the ring only has a few of them:
+    // leasing one per operation instead of per connection lets many more connections use them
+    @Override
+    protected void acquireReadBuffer() {
+        if (multishotReceive || readBuffer != null) {
+            return;
+        }
+
+        this.readBufferIndex = ioUring.leaseFixedBuffer(readBufferSize);
+        if (readBufferIndex != IOUring.NO_FIXED_BUFFER) {
+            this.readBuffer = ioUring.fixedBuffer(readBufferIndex);
+        } else {
+            super.acquireReadBuffer();
+        }
+    }
+
+    @Override
+    protected void releaseReadBuffer() {
+        if (readBufferIndex != IOUring.NO_FIXED_BUFFER) {
+            ioUring.releaseFixedBuffer(readBufferIndex);
+            this.readBufferIndex = IOUring.NO_FIXED_BUFFER;
+            this.readBuffer = null;
+        } else {
+            super.releaseReadBuffer();
+        }
+    }
+
+    @Override
+    protected void acquireWriteBuffer() {
+        if (writeBuffer != null) {
+            return;
+        }
+
+        this.writeBufferIndex = ioUring.leaseFixedBuffer(writeBufferSize);
+        if (writeBufferIndex != IOUring.NO_FIXED_BUFFER) {
+            this.writeBuffer = ioUring.fixedBuffer(writeBufferIndex);
+        } else {
+            super.acquireWriteBuffer();
+        }
+    }
+
+    @Override
+    protected void releaseWriteBuffer() {
+        if (writeBufferIndex != IOUring.NO_FIXED_BUFFER) {
+            ioUring.releaseFixedBuffer(writeBufferIndex);
+            this.writeBufferIndex = IOUring.NO_FIXED_BUFFER;
+            this.writeBuffer = null;
+        } else {
+            super.releaseWriteBuffer();
+        }
     }
 
     @Override
     protected CompletableFuture<Void> writeNative(ByteBuffer data) {
-        return ioUring.insert(handle, true, sqe -> {
-            var length = Math.min(data.remaining(), writeBufferSize);
-            writeToIOBuffer(data, length);
+        if (data.isDirect()) {
+            return writeDirect(data);
+        }
+
+        var position = data.position();
+        var length = Math.min(data.remaining(), writeBufferSize);
+        var zeroCopy = ioUring.isZeroCopySend(length);
+        writeToIOBuffer(data, length);
+        return submitWrite(sqe -> {
             io_uring_sqe.fd(sqe, handle);
-            io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_WRITE());
+            if (zeroCopy) {
+                io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_SEND_ZC());
+                if (writeBufferIndex != IOUring.NO_FIXED_BUFFER) {
+                    io_uring_sqe.ioprio(sqe, (short) LinuxKernel.IORING_RECVSEND_FIXED_BUF());
+                    io_uring_sqe.buf_index(sqe, (short) writeBufferIndex);
+                }
+            } else if (writeBufferIndex != IOUring.NO_FIXED_BUFFER) {
+                io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_WRITE_FIXED());
+                io_uring_sqe.buf_index(sqe, (short) writeBufferIndex);
+            } else {
+                io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_WRITE());
+            }
             io_uring_sqe.addr(sqe, writeBuffer.address());
             io_uring_sqe.len(sqe, length);
-            io_uring_sqe.user_data(sqe, handle);
         }).thenCompose(result -> {
+            if (result == -LinuxKernel.ECANCELED()) {
+                return CompletableFuture.failedFuture(abortedOperation(writeDeadline, "Cannot send message to socket"));
+            }
+
+            if (zeroCopy && ioUring.disableZeroCopySend(result)) {
+                data.position(position);
+                return writeNative(data);
+            }
+
             if (result < 0) {
                 close();
                 return CompletableFuture.failedFuture(new SocketException("Cannot receive message from socket (socket closed)"));
             }
 
+            data.position(position + result);
+            if (!data.hasRemaining()) {
+                return NO_RESULT;
+            }
+
+            return writeNative(data);
+        });
+    }
+
+    // Direct buffers are handed to the kernel as they are: the pending operation keeps the buffer reachable until it completes
+    private CompletableFuture<Void> writeDirect(ByteBuffer data) {
+        var segment = MemorySegment.ofBuffer(data);
+        var zeroCopy = ioUring.isZeroCopySend((int) segment.byteSize());
+        return submitWrite(sqe -> {
+            io_uring_sqe.opcode(sqe, (byte) (zeroCopy ? LinuxKernel.IORING_OP_SEND_ZC() : LinuxKernel.IORING_OP_WRITE()));
+            io_uring_sqe.fd(sqe, handle);
+            io_uring_sqe.addr(sqe, segment.address());
+            io_uring_sqe.len(sqe, (int) segment.byteSize());
+        }).thenCompose(result -> {
+            if (result == -LinuxKernel.ECANCELED()) {
+                return CompletableFuture.failedFuture(abortedOperation(writeDeadline, "Cannot send message to socket"));
+            }
+
+            if (zeroCopy && ioUring.disableZeroCopySend(result)) {
+                return writeNative(data);
+            }
+
+            if (result < 0) {
+                close();
+                return CompletableFuture.failedFuture(new SocketException("Cannot send message to socket (socket closed)"));
+            }
+
+            data.position(data.position() + result);
             if (!data.hasRemaining()) {
                 return NO_RESULT;
             }
@@ -114,18 +398,260 @@ public final class AsyncLinuxTransportSocketLayer extends AsyncNativeTransportSo
         });
     }
 
+    // The file is spliced into a pipe and from the pipe into the socket: its pages move between kernel buffers and never reach user space
+    @Override
+    protected CompletableFuture<Void> transferNative(Path path, long offset, long length) {
+        var file = openFile(path);
+        if (file < 0) {
+            return CompletableFuture.failedFuture(new SocketException("Cannot open file " + path));
+        }
+
+        var pipe = arena.allocate(ValueLayout.JAVA_INT, 2);
+        if (LinuxKernel.pipe2(pipe, LinuxKernel.O_CLOEXEC()) != 0) {
+            LinuxKernel.close(file);
+            return CompletableFuture.failedFuture(new SocketException("Cannot send file to socket: pipe creation failed"));
+        }
+
+        var pipeRead = pipe.getAtIndex(ValueLayout.JAVA_INT, 0);
+        var pipeWrite = pipe.getAtIndex(ValueLayout.JAVA_INT, 1);
+        return spliceFile(file, pipeRead, pipeWrite, offset, offset + length).whenComplete((_, _) -> {
+            LinuxKernel.close(pipeRead);
+            LinuxKernel.close(pipeWrite);
+            LinuxKernel.close(file);
+        });
+    }
+
+    // A pipe holds 64 KiB by default, so that's the most a single splice from the file can move
+    private CompletableFuture<Void> spliceFile(int file, int pipeRead, int pipeWrite, long position, long end) {
+        if (position >= end) {
+            return NO_RESULT;
+        }
+
+        var length = (int) Math.min(end - position, SPLICE_LENGTH);
+        return splice(file, position, pipeWrite, length).thenCompose(result -> {
+            if (result == -LinuxKernel.ECANCELED()) {
+                return CompletableFuture.failedFuture(abortedOperation(writeDeadline, "Cannot send file to socket"));
+            }
+
+            if (result <= 0) {
+                var reason = result == 0 ? "it ended %s bytes early".formatted(end - position) : "operation failed with error code " + result;
+                return CompletableFuture.failedFuture(new SocketException("Cannot send file to socket: " + reason));
+            }
+
+            return splicePipe(pipeRead, result)
+                    .thenCompose(_ -> spliceFile(file, pipeRead, pipeWrite, position + result, end));
+        });
+    }
+
+    private CompletableFuture<Void> splicePipe(int pipeRead, int remaining) {
+        return splice(pipeRead, -1, handle, remaining).thenCompose(result -> {
+            if (result == -LinuxKernel.ECANCELED()) {
+                return CompletableFuture.failedFuture(abortedOperation(writeDeadline, "Cannot send file to socket"));
+            }
+
+            if (result <= 0) {
+                close();
+                return CompletableFuture.failedFuture(new SocketException("Cannot send file to socket (socket closed)"));
+            }
+
+            return result < remaining ? splicePipe(pipeRead, remaining - result) : NO_RESULT;
+        });
+    }
+
+    // An offset of -1 means the file position, which is the only one a pipe or a socket has
+    private IOUring.OperationFuture splice(int input, long inputOffset, int output, int length) {
+        return submitWrite(sqe -> {
+            io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_SPLICE());
+            io_uring_sqe.splice_fd_in(sqe, input);
+            io_uring_sqe.splice_off_in(sqe, inputOffset);
+            io_uring_sqe.fd(sqe, output);
+            io_uring_sqe.off(sqe, -1L);
+            io_uring_sqe.len(sqe, length);
+            io_uring_sqe.splice_flags(sqe, LinuxKernel.SPLICE_F_MOVE());
+        });
+    }
+
+    // Direct buffers are referenced by their own vector, while heap buffers are packed into the write buffer:
+    // once it's full, the remaining buffers wait for the next submission so that their order is preserved.
+    // A heap buffer that only partly fits ends the submission, so every vector before the last one covers its buffer entirely
+    // and the completion can be credited to the buffers in order
+    @Override
+    protected CompletableFuture<Void> writeNative(ByteBuffer[] data) {
+        var vectors = this.writeVectors = allocateVectors(writeVectors, data.length);
+        var count = 0;
+        var staged = 0;
+        for (var buffer : data) {
+            if (count == LinuxKernel.IOV_MAX() || (!buffer.isDirect() && staged == writeBufferSize)) {
+                break;
+            }
+
+            if (!buffer.hasRemaining()) {
+                continue;
+            }
+
+            var vector = iovec.asSlice(vectors, count++);
+            if (buffer.isDirect()) {
+                var segment = MemorySegment.ofBuffer(buffer);
+                iovec.iov_base(vector, segment);
+                iovec.iov_len(vector, segment.byteSize());
+                continue;
+            }
+
+            var length = Math.min(buffer.remaining(), writeBufferSize - staged);
+            MemorySegment.copy(MemorySegment.ofBuffer(buffer), 0, writeBuffer, staged, length);
+            iovec.iov_base(vector, writeBuffer.asSlice(staged, length));
+            iovec.iov_len(vector, length);
+            staged += length;
+            if (length < buffer.remaining()) {
+                break;
+            }
+        }
+
+        var vectorsCount = count;
+        return submitWrite(sqe -> {
+            io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_WRITEV());
+            io_uring_sqe.fd(sqe, handle);
+            io_uring_sqe.addr(sqe, vectors.address());
+            io_uring_sqe.len(sqe, vectorsCount);
+        }).thenCompose(result -> {
+            if (result == -LinuxKernel.ECANCELED()) {
+                return CompletableFuture.failedFuture(abortedOperation(writeDeadline, "Cannot send message to socket"));
+            }
+
+            if (result < 0) {
+                close();
+                return CompletableFuture.failedFuture(new SocketException("Cannot send message to socket (socket closed)"));
+            }
+
+            var written = result;
+            for (var buffer : data) {
+                var length = Math.min(buffer.remaining(), written);
+                buffer.position(buffer.position() + length);
+                written -= length;
+            }
+
+            if (!hasRemaining(data)) {
+                return NO_RESULT;
+            }
+
+            return writeNative(data);
+        });
+    }
+
+    @Override
+    protected CompletableFuture<Void> readNative(ByteBuffer[] data) {
+        if (multishotReceive) {
+            return super.readNative(data);
+        }
+
+        var vectors = this.readVectors = allocateVectors(readVectors, data.length);
+        var count = 0;
+        var staged = 0;
+        for (var buffer : data) {
+            if (count == LinuxKernel.IOV_MAX() || (!buffer.isDirect() && staged == readBufferSize)) {
+                break;
+            }
+
+            if (!buffer.hasRemaining()) {
+                continue;
+            }
+
+            var vector = iovec.asSlice(vectors, count++);
+            if (buffer.isDirect()) {
+                var segment = MemorySegment.ofBuffer(buffer);
+                iovec.iov_base(vector, segment);
+                iovec.iov_len(vector, segment.byteSize());
+                continue;
+            }
+
+            var length = Math.min(buffer.remaining(), readBufferSize - staged);
+            iovec.iov_base(vector, readBuffer.asSlice(staged, length));
+            iovec.iov_len(vector, length);
+            staged += length;
+            if (length < buffer.remaining()) {
+                break;
+            }
+        }
+
+        var vectorsCount = count;
+        return submitRead(sqe -> {
+            io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_READV());
+            io_uring_sqe.fd(sqe, handle);
+            io_uring_sqe.addr(sqe, vectors.address());
+            io_uring_sqe.len(sqe, vectorsCount);
+            io_uring_sqe.off(sqe, 0);
+        }).thenCompose(readLength -> {
+            if (readLength == -LinuxKernel.ECANCELED()) {
+                return CompletableFuture.failedFuture(abortedOperation(readDeadline, "Cannot receive message from socket"));
+            }
+
+            if (readLength <= 0) {
+                close();
+                return CompletableFuture.failedFuture(new SocketException("Cannot receive message from socket (socket closed)"));
+            }
+
+            // Every buffer that received data is flipped, see AsyncSocketIO.read(ByteBuffer...)
+            var unread = readLength;
+            var unstaged = 0;
+            for (var buffer : data) {
+                if (unread == 0) {
+                    break;
+                }
+
+                if (!buffer.hasRemaining()) {
+                    continue;
+                }
+
+                var length = Math.min(buffer.remaining(), unread);
+                if (!buffer.isDirect()) {
+                    MemorySegment.copy(readBuffer, unstaged, MemorySegment.ofBuffer(buffer), 0, length);
+                    unstaged += length;
+                }
+                buffer.position(buffer.position() + length);
+                buffer.flip();
+                unread -= length;
+            }
+            return NO_RESULT;
+        });
+    }
+
+    private MemorySegment allocateVectors(MemorySegment vectors, int length) {
+        var count = Math.min(length, LinuxKernel.IOV_MAX());
+        if (vectors != null && vectors.byteSize() >= count * iovec.sizeof()) {
+            return vectors;
+        }
+
+        return iovec.allocateArray(count, arena);
+    }
+
     @Override
     protected CompletableFuture<Void> readNative(ByteBuffer data, boolean lastRead) {
-        return ioUring.insert(handle, true, sqe -> {
+        if (multishotReceive) {
+            return receiveNative(data, lastRead);
+        }
+
+        if (data.isDirect()) {
+            return readDirect(data, lastRead);
+        }
+
+        return submitRead(sqe -> {
             var length = Math.min(data.remaining(), readBufferSize);
-            io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_READ());
+            if (readBufferIndex != IOUring.NO_FIXED_BUFFER) {
+                io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_READ_FIXED());
+                io_uring_sqe.buf_index(sqe, (short) readBufferIndex);
+            } else {
+                io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_READ());
+            }
             io_uring_sqe.fd(sqe, handle);
             io_uring_sqe.addr(sqe, readBuffer.address());
             io_uring_sqe.len(sqe, length);
             io_uring_sqe.off(sqe, 0);
-            io_uring_sqe.user_data(sqe, handle);
         }).thenCompose(readLength -> {
-            if (readLength == 0) {
+            if (readLength == -LinuxKernel.ECANCELED()) {
+                return CompletableFuture.failedFuture(abortedOperation(readDeadline, "Cannot receive message from socket"));
+            }
+
+            if (readLength <= 0) {
                 close();
                 return CompletableFuture.failedFuture(new SocketException("Cannot receive message from socket (socket closed)"));
             }
@@ -134,18 +660,417 @@ public final class AsyncLinuxTransportSocketLayer extends AsyncNativeTransportSo
         });
     }
 
+    private CompletableFuture<Void> readDirect(ByteBuffer data, boolean lastRead) {
+        var segment = MemorySegment.ofBuffer(data);
+        return submitRead(sqe -> {
+            io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_READ());
+            io_uring_sqe.fd(sqe, handle);
+            io_uring_sqe.addr(sqe, segment.address());
+            io_uring_sqe.len(sqe, (int) segment.byteSize());
+            io_uring_sqe.off(sqe, 0);
+        }).thenCompose(readLength -> {
+            if (readLength == -LinuxKernel.ECANCELED()) {
+                return CompletableFuture.failedFuture(abortedOperation(readDeadline, "Cannot receive message from socket"));
+            }
+
+            if (readLength <= 0) {
+                close();
+                return CompletableFuture.failedFuture(new SocketException("Cannot receive message from socket (socket closed)"));
+            }
+            data.position(data.position() + readLength);
+            if (lastRead) {
+                data.flip();
+            }
+            return NO_RESULT;
+        });
+    }
+
+    // A single multishot recv stays armed for the lifetime of the connection:
+    // the kernel picks a buffer from the ring-wide provided buffer group only when data arrives
+    private void armReceive() {
+        receiveLock.lock();
+        try {
+            this.receiveArmed = true;
+        } finally {
+            receiveLock.unlock();
+        }
+
+        try {
+            ioUring.insertMultishot(handle, sqe -> {
+                io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_RECV());
+                io_uring_sqe.fd(sqe, handle);
+                io_uring_sqe.ioprio(sqe, (short) LinuxKernel.IORING_RECV_MULTISHOT());
+                io_uring_sqe.flags(sqe, (byte) LinuxKernel.IOSQE_BUFFER_SELECT());
+                io_uring_sqe.buf_group(sqe, IOUring.PROVIDED_BUFFER_GROUP);
+            }, this::onReceive, operation -> this.receiveOperation = operation);
+        } catch (Throwable throwable) {
+            onReceiveClosed(throwable);
+        }
+    }
+
+    private void onReceive(int result, int flags) {
+        var hasMore = (flags & LinuxKernel.IORING_CQE_F_MORE()) != 0;
+        CompletableFuture<Void> signal;
+        boolean rearm;
+        var throttle = false;
+        receiveLock.lock();
+        try {
+            var cancelled = receiveCancelled;
+            if (!hasMore) {
+                this.receiveArmed = false;
+                this.receiveCancelled = false;
+            }
+
+            if (receiveClosed) {
+                if (result > 0 && (flags & LinuxKernel.IORING_CQE_F_BUFFER()) != 0) {
+                    ioUring.recycleProvidedBuffer(flags >>> LinuxKernel.IORING_CQE_BUFFER_SHIFT());
+                }
+                return;
+            }
+
+            if (result > 0 && (flags & LinuxKernel.IORING_CQE_F_BUFFER()) != 0) {
+                var bufferId = flags >>> LinuxKernel.IORING_CQE_BUFFER_SHIFT();
+                receivedChunks.add(new ReceivedChunk(bufferId, ioUring.providedBuffer(bufferId, result)));
+                if (hasMore && !receiveThrottled && receivedChunks.size() >= RECEIVE_HIGH_WATERMARK) {
+                    this.receiveThrottled = true;
+                    this.receiveCancelled = true;
+                    throttle = true;
+                }
+            } else if (result == -LinuxKernel.ENOBUFS()) {
+                this.receiveStalled = true;
+            } else if (result == -LinuxKernel.ECANCELED() && cancelled) {
+                // The receive was cancelled by the throttle, not by the peer
+            } else if (result <= 0) {
+                this.receiveClosed = true;
+            }
+
+            if (!hasMore && !receiveThrottled && receivedChunks.size() >= RECEIVE_HIGH_WATERMARK) {
+                this.receiveThrottled = true;
+            }
+
+            rearm = !hasMore && !receiveClosed && !receiveStalled && !receiveThrottled;
+            signal = receiveSignal;
+            this.receiveSignal = null;
+        } finally {
+            receiveLock.unlock();
+        }
+
+        if (throttle) {
+            ioUring.cancel(handle, receiveOperation);
+        }
+
+        if (rearm) {
+            armReceive();
+        }
+
+        if (signal != null) {
+            ioUring.dispatchCompletion(handle, () -> signal.complete(null));
+        }
+    }
+
+    private void onReceiveClosed(Throwable throwable) {
+        CompletableFuture<Void> signal;
+        receiveLock.lock();
+        try {
+            this.receiveClosed = true;
+            signal = receiveSignal;
+            this.receiveSignal = null;
+        } finally {
+            receiveLock.unlock();
+        }
+
+        if (signal != null) {
+            signal.completeExceptionally(throwable);
+        }
+    }
+
+    private CompletableFuture<Void> receiveNative(ByteBuffer data, boolean lastRead) {
+        CompletableFuture<Void> signal;
+        ReceivedChunk chunk;
+        var rearm = false;
+        receiveLock.lock();
+        try {
+            chunk = receivedChunks.peek();
+            if (chunk != null) {
+                var length = (int) Math.min(data.remaining(), chunk.remaining());
+                MemorySegment.copy(chunk.data(), chunk.position(), MemorySegment.ofBuffer(data), 0, length);
+                data.position(data.position() + length);
+                chunk.consume(length);
+                if (chunk.remaining() == 0) {
+                    receivedChunks.poll();
+                    ioUring.recycleProvidedBuffer(chunk.bufferId());
+                    // A receive that is still being cancelled is armed again by its last completion
+                    if (receiveThrottled && receivedChunks.size() <= RECEIVE_LOW_WATERMARK && !receiveClosed) {
+                        this.receiveThrottled = false;
+                        rearm = !receiveArmed && !receiveStalled;
+                    }
+                }
+                if (lastRead) {
+                    data.flip();
+                }
+                signal = null;
+            } else if (receiveClosed) {
+                signal = null;
+            } else {
+                if (receiveStalled) {
+                    this.receiveStalled = false;
+                    rearm = true;
+                }
+                signal = new CompletableFuture<>();
+                this.receiveSignal = signal;
+            }
+        } finally {
+            receiveLock.unlock();
+        }
+
+        if (rearm) {
+            armReceive();
+        }
+
+        if (chunk != null) {
+            return NO_RESULT;
+        }
+
+        if (signal == null) {
+            close();
+            return CompletableFuture.failedFuture(new SocketException("Cannot receive message from socket (socket closed)"));
+        }
+
+        // Received data stays queued if the wait times out, so the deadline can be enforced by a plain timer here
+        var waiter = readDeadline == NO_DEADLINE
+                ? signal
+                : signal.orTimeout(Math.max(readDeadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        return waiter.thenCompose(_ -> receiveNative(data, lastRead));
+    }
+
+    // A multishot receive keeps pulling ciphertext around the switch, and the chunks it already queued would never reach the kernel
+    @Override
+    protected boolean canOffloadReceive() {
+        return !multishotReceive;
+    }
+
     @Override
     public void close() {
+        // The shutdown ends an armed multishot receive, whose handler stays registered until its last completion:
+        // the buffers the kernel still picks for the data left in the socket are recycled there
         if (ioUring != null && handle != null && ioUring.isHandleRegistered(handle)) {
-            ioUring.unregisterHandle(handle);
             LinuxKernel.shutdown(handle, LinuxKernel.SHUT_RDWR());
+            if (multishotReceive) {
+                releaseReceivedChunks();
+            }
+            ioUring.unregisterHandle(handle);
             LinuxKernel.close(handle);
+            releaseReadAhead();
         }
 
         this.address = null;
         connected.set(false);
     }
 
+    private void releaseReceivedChunks() {
+        CompletableFuture<Void> signal;
+        receiveLock.lock();
+        try {
+            this.receiveClosed = true;
+            ReceivedChunk chunk;
+            while ((chunk = receivedChunks.poll()) != null) {
+                ioUring.recycleProvidedBuffer(chunk.bufferId());
+            }
+            signal = receiveSignal;
+            this.receiveSignal = null;
+        } finally {
+            receiveLock.unlock();
+        }
+
+        if (signal != null) {
+            signal.complete(null);
+        }
+    }
+
+    private record ConnectionAttempt(int handle, IOUring.OperationFuture operation, CompletableFuture<Integer> result) {
+
+    }
+
+    // RFC 8305, section 5: a new attempt starts every CONNECTION_ATTEMPT_DELAY, or as soon as the previous one fails,
+    // and the first socket that connects wins while the attempts still in flight are cancelled and closed.
+    // The delay is a timeout on the ring, so racing costs no threads or timers in Java
+    private final class ConnectionRace {
+        private final List<InetAddress> candidates;
+        private final int port;
+        private final List<ConnectionAttempt> attempts;
+        private final Set<Integer> releasedHandles;
+        private final CompletableFuture<Integer> result;
+        private int nextCandidate;
+        private int completedAttempts;
+        private IOUring.OperationFuture delay;
+        private Throwable lastError;
+
+        private ConnectionRace(List<InetAddress> candidates, int port) {
+            this.candidates = candidates;
+            this.port = port;
+            this.attempts = new ArrayList<>(candidates.size());
+            this.releasedHandles = new HashSet<>();
+            this.result = new CompletableFuture<>();
+        }
+
+        private CompletableFuture<Integer> start() {
+            startNext();
+            return result;
+        }
+
+        private synchronized void startNext() {
+            if (result.isDone() || nextCandidate >= candidates.size()) {
+                return;
+            }
+
+            var candidate = candidates.get(nextCandidate++);
+            var family = candidate instanceof Inet6Address ? LinuxKernel.AF_INET6() : LinuxKernel.AF_INET();
+            var attemptHandle = openSocket(family);
+            if (attemptHandle == -1) {
+                onAttemptFailed(null, new SocketException("Cannot create socket for %s".formatted(candidate)));
+                return;
+            }
+
+            try {
+                applyKernelOptions(attemptHandle);
+            } catch (SocketException exception) {
+                LinuxKernel.close(attemptHandle);
+                onAttemptFailed(null, exception);
+                return;
+            }
+
+            ioUring.registerHandle(attemptHandle);
+            var attempt = connectAttempt(attemptHandle, candidate, port);
+            attempts.add(attempt);
+            if (nextCandidate < candidates.size()) {
+                scheduleNext();
+            }
+            attempt.result().whenComplete((_, error) -> {
+                if (error == null) {
+                    onAttemptConnected(attempt);
+                } else {
+                    onAttemptFailed(attempt, error);
+                }
+            });
+        }
+
+        private void scheduleNext() {
+            ioUring.cancel(handle, delay);
+            var expectedCandidate = nextCandidate;
+            var next = ioUring.delay(handle, CONNECTION_ATTEMPT_DELAY);
+            this.delay = next;
+            next.whenComplete((_, _) -> {
+                synchronized (this) {
+                    if (nextCandidate == expectedCandidate) {
+                        startNext();
+                    }
+                }
+            });
+        }
+
+        private synchronized void onAttemptConnected(ConnectionAttempt attempt) {
+            if (result.isDone()) {
+                release(attempt);
+                return;
+            }
+
+            ioUring.cancel(handle, delay);
+            for (var other : attempts) {
+                if (other == attempt) {
+                    continue;
+                }
+
+                if (other.result().isDone()) {
+                    release(other);
+                } else {
+                    ioUring.cancel(other.handle(), other.operation());
+                }
+            }
+            result.complete(attempt.handle());
+        }
+
+        private synchronized void onAttemptFailed(ConnectionAttempt attempt, Throwable error) {
+            this.lastError = error;
+            this.completedAttempts++;
+            if (attempt != null) {
+                release(attempt);
+            }
+
+            if (result.isDone()) {
+                return;
+            }
+
+            if (nextCandidate < candidates.size()) {
+                startNext();
+            } else if (completedAttempts == candidates.size()) {
+                ioUring.cancel(handle, delay);
+                result.completeExceptionally(lastError);
+            }
+        }
+
+        private void release(ConnectionAttempt attempt) {
+            if (releasedHandles.add(attempt.handle())) {
+                ioUring.unregisterHandle(attempt.handle());
+                LinuxKernel.close(attempt.handle());
+            }
+        }
+    }
+
+    private static final class ReceivedChunk {
+        private final int bufferId;
+        private final MemorySegment data;
+        private int position;
+
+        private ReceivedChunk(int bufferId, MemorySegment data) {
+            this.bufferId = bufferId;
+            this.data = data;
+        }
+
+        private int bufferId() {
+            return bufferId;
+        }
+
+        private MemorySegment data() {
+            return data;
+        }
+
+        private int position() {
+            return position;
+        }
+
+        private long remaining() {
+            return data.byteSize() - position;
+        }
+
+        private void consume(int length) {
+            this.position += length;
+        }
+    }
+
+    private static final class IOUringPool {
+        private final AsyncLinuxTransportConfig config;
+        private final IOUring[] rings;
+        private final AtomicInteger nextRing;
+
+        private IOUringPool(AsyncLinuxTransportConfig config) {
+            this.config = config;
+            this.rings = new IOUring[config.rings()];
+            for (var index = 0; index < rings.length; index++) {
+                rings[index] = new IOUring(index, config);
+            }
+            this.nextRing = new AtomicInteger();
+        }
+
+        private AsyncLinuxTransportConfig config() {
+            return config;
+        }
+
+        // A socket keeps the ring it was assigned on connect, so all of its completions are handled by the same thread
+        private IOUring next() {
+            return rings[Math.floorMod(nextRing.getAndIncrement(), rings.length)];
+        }
+    }
+
     private static final class IOUring implements Runnable {
         private static final LinuxKernel.syscall SETUP_SYS_CALL = LinuxKernel.syscall.makeInvoker(
                 ValueLayout.JAVA_INT,
@@ -159,68 +1084,261 @@ public final class AsyncLinuxTransportSocketLayer extends AsyncNativeTransportSo
                 ValueLayout.ADDRESS,
                 ValueLayout.JAVA_INT
         );
-        private static final LinuxKernel.syscall RESIZE_SYS_CALL = LinuxKernel.syscall.makeInvoker(
+        // The completion thread needs to tell an interrupted or busy wait apart from a failure, so its enter call captures errno
+        private static final StructLayout CALL_STATE_LAYOUT = Linker.Option.captureStateLayout();
+        private static final VarHandle ERRNO = CALL_STATE_LAYOUT.varHandle(MemoryLayout.PathElement.groupElement("errno"));
+        private static final MethodHandle WAIT_SYS_CALL = Linker.nativeLinker().downcallHandle(
+                LinuxKernel.syscall.address(),
+                ENTER_SYS_CALL.descriptor(),
+                Linker.Option.firstVariadicArg(1),
+                Linker.Option.captureCallState("errno")
+        );
+        // The setup call captures errno too, as only an unknown flag should make the ring give up on the ones it was asked for
+        private static final MethodHandle SETUP_CAPTURE_SYS_CALL = Linker.nativeLinker().downcallHandle(
+                LinuxKernel.syscall.address(),
+                SETUP_SYS_CALL.descriptor(),
+                Linker.Option.firstVariadicArg(1),
+                Linker.Option.captureCallState("errno")
+        );
+        private static final LinuxKernel.syscall REGISTER_SYS_CALL = LinuxKernel.syscall.makeInvoker(
                 ValueLayout.JAVA_INT,
                 ValueLayout.JAVA_INT,
-                ValueLayout.ADDRESS.withTargetLayout(io_uring_params.layout()),
+                ValueLayout.ADDRESS,
                 ValueLayout.JAVA_INT
         );
-        private static final int QUEUE_SIZE = 256;
+        private static final LinuxKernel.syscall EVENTFD_SYS_CALL = LinuxKernel.syscall.makeInvoker(
+                ValueLayout.JAVA_INT,
+                ValueLayout.JAVA_INT
+        );
+        private static final boolean SUPPORTED = probe();
+        private static final int SUBMIT_BATCH_SIZE = 32;
+        private static final int SUBMIT_SPINS = 64;
+        private static final long SUBMIT_MAX_BACKOFF = TimeUnit.MILLISECONDS.toNanos(1);
+        private static final long NO_OPERATION = 0;
+        private static final int NO_FIXED_BUFFER = -1;
+        private static final long FIXED_BUFFER_ALIGNMENT = 4096;
+        private static final int PROVIDED_BUFFER_SIZE = SocketOption.readBufferSize().defaultValue();
+        private static final int PROVIDED_BUFFER_COUNT = 256;
+        private static final short PROVIDED_BUFFER_GROUP = 0;
+        private static final long PROVIDED_BUFFER_RING_ALIGNMENT = 4096;
 
-        private static final StableValue<IOUring> INSTANCE = StableValue.of();
-        private static final Consumer<MemorySegment> DUMMY_CONFIGURATOR = _ -> {};
+        private static boolean probe() {
+            try (var arena = Arena.ofConfined()) {
+                var params = arena.allocate(io_uring_params.layout());
+                var handle = (int) SETUP_SYS_CALL.apply(LinuxKernel.__NR_io_uring_setup(), 1, params);
+                if (handle < 0) {
+                    return false;
+                }
 
-        public static IOUring shared() {
-            return INSTANCE.orElseSet(IOUring::new);
+                LinuxKernel.close(handle);
+                return true;
+            } catch (Throwable throwable) {
+                return false;
+            }
         }
-        
+
+        private final int id;
+        private final AsyncLinuxTransportConfig config;
         private final Arena arena;
-        private final ConcurrentMap<Integer, CompletableFuture<Integer>> futures;
-        private final Set<Integer> registeredHandles;
+        private final HandleTable handles;
+        private final AtomicInteger operationGeneration;
+        private final AtomicInteger sqReserved;
+        private final AtomicBoolean sqPublishing;
+        private final Queue<DeferredSubmission> sqOverflow;
+        private final MemorySegment waitState;
+        private final AtomicLongArray fixedBufferLeases;
+        private final ReentrantLock providedBuffersLock;
+        private final CompletionDispatcher completionDispatcher;
 
         private volatile Integer ringHandle;
         private volatile Thread ringTask;
+        private volatile boolean ringWaiting;
+        private volatile int sqPublished;
+        private volatile boolean fixedBuffersRegistered;
+        private volatile boolean providedBuffersRegistered;
+        private volatile boolean submissionPolling;
+        private volatile boolean singleIssuer;
+        private volatile int setupFlags;
+        private volatile boolean zeroCopySendUnsupported;
 
         private MemorySegment ringSq;
         private MemorySegment ringSqEntries;
         private MemorySegment ringCq;
         private MemorySegment ringCqEntries;
+        private MemorySegment ringTimeouts;
         private MemorySegment ringParams;
         private Long ringSqSize;
         private Long ringCqSize;
+        private AtomicIntegerArray sqReady;
+        private int sqHeadOffset;
+        private int sqTailOffset;
+        private int sqFlagsOffset;
+        private int sqMask;
+        private int sqEntries;
+        private MemorySegment fixedBuffers;
+        private MemorySegment fixedBuffersVector;
+        private MemorySegment providedBuffers;
+        private MemorySegment providedBufferRing;
+        private int providedBufferTail;
+        private boolean ringDisabled;
+        private int wakeupHandle;
+        private MemorySegment wakeupValue;
+        private MemorySegment wakeupDrain;
 
-        private IOUring() {
+        private IOUring(int id, AsyncLinuxTransportConfig config) {
+            this.id = id;
+            this.config = config;
             this.arena = Arena.ofShared();
-            this.futures = new ConcurrentHashMap<>();
-            this.registeredHandles = new CopyOnWriteArraySet<>();
+            this.handles = new HandleTable();
+            this.operationGeneration = new AtomicInteger();
+            this.sqReserved = new AtomicInteger();
+            this.sqPublishing = new AtomicBoolean();
+            this.sqOverflow = new ConcurrentLinkedQueue<>();
+            this.waitState = arena.allocate(CALL_STATE_LAYOUT);
+            this.fixedBufferLeases = new AtomicLongArray(Math.ceilDiv(config.fixedBufferCount(), Long.SIZE));
+            // The bits past the last buffer are marked as leased, so they are never handed out
+            var unused = fixedBufferLeases.length() * Long.SIZE - config.fixedBufferCount();
+            if (unused > 0) {
+                fixedBufferLeases.set(fixedBufferLeases.length() - 1, -1L << (Long.SIZE - unused));
+            }
+            this.providedBuffersLock = new ReentrantLock();
+            this.completionDispatcher = new CompletionDispatcher(config);
         }
 
+        // Rings are set up on first use and then outlive the sockets registered on them
         public void registerHandle(int handle) {
             if (ringTask == null) {
                 synchronized (this) {
                     if (ringTask == null) {
                         setupRing();
                         mapRing();
+                        if (config.fixedBufferCount() > 0) {
+                            registerFixedBuffers();
+                        }
+                        // Only multishot receives pick their buffer from the ring, so it isn't allocated otherwise
+                        if (config.receiveMode() == AsyncLinuxTransportConfig.ReceiveMode.MULTISHOT) {
+                            registerProvidedBuffers();
+                        }
                         startTask();
                     }
                 }
             }
             
-            registeredHandles.add(handle);
+            handles.getOrCreate(handle).register();
         }
 
+        // Kernels that don't know one of the requested setup flags reject the whole call with EINVAL:
+        // the flags that only tune the ring are given up one at a time, task run hints first,
+        // while submission polling changes how the ring is driven, so a ring that can't have it fails instead
         private void setupRing() {
+            var flags = requestedSetupFlags();
+            var result = setupRing(flags);
+            var optionalFlags = new int[]{
+                    LinuxKernel.IORING_SETUP_COOP_TASKRUN(),
+                    LinuxKernel.IORING_SETUP_DEFER_TASKRUN(),
+                    LinuxKernel.IORING_SETUP_SINGLE_ISSUER() | LinuxKernel.IORING_SETUP_R_DISABLED(),
+                    LinuxKernel.IORING_SETUP_CQSIZE()
+            };
+            for (var index = 0; result == -LinuxKernel.EINVAL() && index < optionalFlags.length; index++) {
+                if ((flags & optionalFlags[index]) != 0) {
+                    flags &= ~optionalFlags[index];
+                    result = setupRing(flags);
+                }
+            }
+
+            if (result < 0) {
+                var message = (flags & LinuxKernel.IORING_SETUP_SQPOLL()) != 0
+                        ? "Cannot set up io_uring with submission polling: error code "
+                        : "Cannot set up io_uring: error code ";
+                throw new RuntimeException(message + -result);
+            }
+
+            this.ringHandle = result;
+            this.setupFlags = flags;
+            this.submissionPolling = (flags & LinuxKernel.IORING_SETUP_SQPOLL()) != 0;
+            this.singleIssuer = (flags & LinuxKernel.IORING_SETUP_SINGLE_ISSUER()) != 0;
+            this.ringDisabled = (flags & LinuxKernel.IORING_SETUP_R_DISABLED()) != 0;
+            if (singleIssuer && !submissionPolling) {
+                setupWakeup();
+            }
+        }
+
+        // Returns the negated errno on failure, like the raw system call would
+        private int setupRing(int flags) {
             this.ringParams = arena.allocate(io_uring_params.layout());
-            var result = (int) SETUP_SYS_CALL.apply(
-                    LinuxKernel.__NR_io_uring_setup(),
-                    QUEUE_SIZE,
-                    ringParams
+            io_uring_params.flags(ringParams, flags);
+            config.completionQueueSize()
+                    .ifPresent(size -> io_uring_params.cq_entries(ringParams, size));
+            config.submissionPollingIdle()
+                    .ifPresent(idle -> io_uring_params.sq_thread_idle(ringParams, (int) Math.min(idle.toMillis(), Integer.MAX_VALUE)));
+            config.submissionPollingCpu()
+                    .ifPresent(cpu -> io_uring_params.sq_thread_cpu(ringParams, cpu));
+            try (var arena = Arena.ofConfined()) {
+                var state = arena.allocate(CALL_STATE_LAYOUT);
+                var result = (long) SETUP_CAPTURE_SYS_CALL.invokeExact(
+                        state,
+                        (long) LinuxKernel.__NR_io_uring_setup(),
+                        config.submissionQueueSize(),
+                        ringParams
+                );
+                return result < 0 ? -(int) ERRNO.get(state, 0L) : (int) result;
+            } catch (Throwable throwable) {
+                throw new RuntimeException("Cannot set up io_uring", throwable);
+            }
+        }
+
+        // The flags the kernel accepted, which can be fewer than the configured ones
+        public int setupFlags() {
+            return setupFlags;
+        }
+
+        private int requestedSetupFlags() {
+            var flags = 0;
+            if (config.completionQueueSize().isPresent()) {
+                flags |= LinuxKernel.IORING_SETUP_CQSIZE();
+            }
+
+            if (config.submissionPollingIdle().isPresent()) {
+                flags |= LinuxKernel.IORING_SETUP_SQPOLL();
+                if (config.submissionPollingCpu().isPresent()) {
+                    flags |= LinuxKernel.IORING_SETUP_SQ_AFF();
+                }
+            }
+
+            // The submitter task of a single issuer ring is fixed when the ring is enabled:
+            // the ring starts disabled so that the completion thread, not the thread that registered the first socket, becomes its owner
+            if (config.singleIssuer()) {
+                flags |= LinuxKernel.IORING_SETUP_SINGLE_ISSUER() | LinuxKernel.IORING_SETUP_R_DISABLED();
+            }
+
+            if (config.deferTaskRun()) {
+                flags |= LinuxKernel.IORING_SETUP_DEFER_TASKRUN();
+            }
+
+            if (config.coopTaskRun()) {
+                flags |= LinuxKernel.IORING_SETUP_COOP_TASKRUN();
+            }
+
+            return flags;
+        }
+
+        // Only the owner of a single issuer ring may submit, so producers wake the completion thread through an eventfd it polls on the ring
+        private void setupWakeup() {
+            var result = (int) EVENTFD_SYS_CALL.apply(
+                    LinuxKernel.__NR_eventfd2(),
+                    0,
+                    LinuxKernel.EFD_NONBLOCK() | LinuxKernel.EFD_CLOEXEC()
             );
             if (result < 0) {
-                throw new RuntimeException("Invalid ring file descriptor");
+                throw new RuntimeException("Invalid wakeup file descriptor");
             }
 
-            this.ringHandle = result;
+            this.wakeupHandle = result;
+            if (wakeupValue == null) {
+                this.wakeupValue = arena.allocate(ValueLayout.JAVA_LONG);
+                wakeupValue.set(ValueLayout.JAVA_LONG, 0, 1L);
+                this.wakeupDrain = arena.allocate(ValueLayout.JAVA_LONG);
+            }
         }
 
         private void mapRing() {
@@ -264,46 +1382,207 @@ public final class AsyncLinuxTransportSocketLayer extends AsyncNativeTransportSo
                 }
             }
 
-            ringSqEntries = LinuxKernel.mmap(
-                    MemorySegment.NULL,
-                    io_uring_params.sq_entries(ringParams) * io_uring_sqe.sizeof(),
-                    LinuxKernel.PROT_READ() | LinuxKernel.PROT_WRITE(),
-                    LinuxKernel.MAP_SHARED() | LinuxKernel.MAP_POPULATE(),
-                    ringHandle,
-                    LinuxKernel.IORING_OFF_SQES()
-            );
-            if (ringSqEntries == LinuxKernel.MAP_FAILED()) {
-                unmapMemory(ringHandle);
-                throw new RuntimeException("Invalid ringSqEntries mmap result");
+            ringSqEntries = LinuxKernel.mmap(
+                    MemorySegment.NULL,
+                    io_uring_params.sq_entries(ringParams) * io_uring_sqe.sizeof(),
+                    LinuxKernel.PROT_READ() | LinuxKernel.PROT_WRITE(),
+                    LinuxKernel.MAP_SHARED() | LinuxKernel.MAP_POPULATE(),
+                    ringHandle,
+                    LinuxKernel.IORING_OFF_SQES()
+            );
+            if (ringSqEntries == LinuxKernel.MAP_FAILED()) {
+                unmapMemory(ringHandle);
+                throw new RuntimeException("Invalid ringSqEntries mmap result");
+            }
+
+            ringCqEntries = ringCq.asSlice(
+                    io_cqring_offsets.cqes(io_uring_params.cq_off(ringParams)),
+                    io_uring_params.cq_entries(ringParams) * io_uring_cqe.sizeof(),
+                    io_uring_cqe.layout().byteAlignment()
+            );
+
+            var sqOffset = io_uring_params.sq_off(ringParams);
+            this.sqHeadOffset = io_sqring_offsets.head(sqOffset);
+            this.sqTailOffset = io_sqring_offsets.tail(sqOffset);
+            this.sqFlagsOffset = io_sqring_offsets.flags(sqOffset);
+            this.sqMask = atomicRead(ringSq, io_sqring_offsets.ring_mask(sqOffset));
+            this.sqEntries = atomicRead(ringSq, io_sqring_offsets.ring_entries(sqOffset));
+            this.sqReady = new AtomicIntegerArray(sqEntries);
+            this.ringTimeouts = __kernel_timespec.allocateArray(sqEntries, arena);
+            var sqTail = atomicRead(ringSq, sqTailOffset);
+            sqReserved.set(sqTail);
+            this.sqPublished = sqTail;
+
+            // The index array never changes: slot i of the ring always points to sqe i
+            var sqArray = io_sqring_offsets.array(sqOffset);
+            for (var index = 0; index < sqEntries; index++) {
+                ringSq.set(ValueLayout.JAVA_INT, sqArray + index * ValueLayout.JAVA_INT.byteSize(), index);
+            }
+        }
+
+        // The pages backing the table are pinned once per ring instead of once per read or write
+        private void registerFixedBuffers() {
+            if (fixedBuffers == null) {
+                this.fixedBuffers = arena.allocate((long) config.fixedBufferSize() * config.fixedBufferCount(), FIXED_BUFFER_ALIGNMENT);
+                this.fixedBuffersVector = iovec.allocateArray(config.fixedBufferCount(), arena);
+                for (var index = 0; index < config.fixedBufferCount(); index++) {
+                    var vector = iovec.asSlice(fixedBuffersVector, index);
+                    iovec.iov_base(vector, fixedBuffer(index));
+                    iovec.iov_len(vector, config.fixedBufferSize());
+                }
+            }
+
+            var result = REGISTER_SYS_CALL.apply(
+                    LinuxKernel.__NR_io_uring_register(),
+                    ringHandle,
+                    LinuxKernel.IORING_REGISTER_BUFFERS(),
+                    fixedBuffersVector,
+                    config.fixedBufferCount()
+            );
+            this.fixedBuffersRegistered = result >= 0;
+        }
+
+        public int leaseFixedBuffer(int size) {
+            if (!fixedBuffersRegistered || size > config.fixedBufferSize()) {
+                return NO_FIXED_BUFFER;
+            }
+
+            for (var word = 0; word < fixedBufferLeases.length(); word++) {
+                var leases = fixedBufferLeases.get(word);
+                while (leases != -1L) {
+                    var bit = Long.numberOfTrailingZeros(~leases);
+                    if (fixedBufferLeases.compareAndSet(word, leases, leases | (1L << bit))) {
+                        return word * Long.SIZE + bit;
+                    }
+
+                    leases = fixedBufferLeases.get(word);
+                }
+            }
+
+            return NO_FIXED_BUFFER;
+        }
+
+        public MemorySegment fixedBuffer(int index) {
+            return fixedBuffers.asSlice((long) index * config.fixedBufferSize(), config.fixedBufferSize());
+        }
+
+        public void releaseFixedBuffer(int index) {
+            if (index == NO_FIXED_BUFFER) {
+                return;
+            }
+
+            var mask = 1L << (index % Long.SIZE);
+            fixedBufferLeases.getAndUpdate(index / Long.SIZE, leases -> leases & ~mask);
+        }
+
+        private void registerProvidedBuffers() {
+            if (providedBuffers == null) {
+                this.providedBuffers = arena.allocate((long) PROVIDED_BUFFER_SIZE * PROVIDED_BUFFER_COUNT, PROVIDED_BUFFER_SIZE);
+                this.providedBufferRing = arena.allocate(io_uring_buf.sizeof() * PROVIDED_BUFFER_COUNT, PROVIDED_BUFFER_RING_ALIGNMENT);
+            }
+
+            var registration = io_uring_buf_reg.allocate(arena);
+            io_uring_buf_reg.ring_addr(registration, providedBufferRing.address());
+            io_uring_buf_reg.ring_entries(registration, PROVIDED_BUFFER_COUNT);
+            io_uring_buf_reg.bgid(registration, PROVIDED_BUFFER_GROUP);
+            var result = REGISTER_SYS_CALL.apply(
+                    LinuxKernel.__NR_io_uring_register(),
+                    ringHandle,
+                    LinuxKernel.IORING_REGISTER_PBUF_RING(),
+                    registration,
+                    1
+            );
+            if (result < 0) {
+                this.providedBuffersRegistered = false;
+                return;
+            }
+
+            providedBuffersLock.lock();
+            try {
+                providedBufferRing.fill((byte) 0);
+                this.providedBufferTail = 0;
+                for (var bufferId = 0; bufferId < PROVIDED_BUFFER_COUNT; bufferId++) {
+                    addProvidedBuffer(bufferId);
+                }
+                publishProvidedBuffers();
+            } finally {
+                providedBuffersLock.unlock();
+            }
+            this.providedBuffersRegistered = true;
+        }
+
+        // Completions that don't go through an operation future, like the ones of a multishot receive, follow the same policy
+        public void dispatchCompletion(int handle, Runnable completion) {
+            completionDispatcher.dispatch(handles.get(handle), completion);
+        }
+
+        public boolean isZeroCopySend(int length) {
+            var threshold = config.zeroCopySendThreshold();
+            return threshold.isPresent() && length >= threshold.getAsInt() && !zeroCopySendUnsupported;
+        }
+
+        // Kernels before 6.0 don't know IORING_OP_SEND_ZC, and some sockets can't send from user pages
+        public boolean disableZeroCopySend(int result) {
+            if (result != -LinuxKernel.EINVAL() && result != -LinuxKernel.EOPNOTSUPP()) {
+                return false;
+            }
+
+            this.zeroCopySendUnsupported = true;
+            return true;
+        }
+
+        public boolean hasProvidedBuffers() {
+            return providedBuffersRegistered;
+        }
+
+        public MemorySegment providedBuffer(int bufferId, int length) {
+            return providedBuffers.asSlice((long) bufferId * PROVIDED_BUFFER_SIZE, length);
+        }
+
+        public void recycleProvidedBuffer(int bufferId) {
+            providedBuffersLock.lock();
+            try {
+                addProvidedBuffer(bufferId);
+                publishProvidedBuffers();
+            } finally {
+                providedBuffersLock.unlock();
             }
+        }
 
-            ringCqEntries = ringCq.asSlice(
-                    io_cqring_offsets.cqes(io_uring_params.cq_off(ringParams)),
-                    io_uring_params.cq_entries(ringParams) * io_uring_cqe.sizeof(),
-                    io_uring_cqe.layout().byteAlignment()
-            );
+        private void addProvidedBuffer(int bufferId) {
+            var entry = io_uring_buf.asSlice(providedBufferRing, providedBufferTail & (PROVIDED_BUFFER_COUNT - 1));
+            io_uring_buf.addr(entry, providedBuffers.address() + (long) bufferId * PROVIDED_BUFFER_SIZE);
+            io_uring_buf.len(entry, PROVIDED_BUFFER_SIZE);
+            io_uring_buf.bid(entry, (short) bufferId);
+            providedBufferTail++;
+        }
+
+        // The tail of a provided buffer ring overlaps the resv field of its first entry
+        private void publishProvidedBuffers() {
+            ValueLayout.JAVA_SHORT.varHandle()
+                    .setVolatile(providedBufferRing, io_uring_buf.resv$offset(), (short) providedBufferTail);
         }
 
         private void startTask() {
-            this.ringTask = Thread.ofPlatform()
-                    .name("IO_URING")
-                    .start(this);
+            var ringTask = Thread.ofPlatform()
+                    .name("IO_URING-" + id)
+                    .daemon()
+                    .unstarted(this);
+            this.ringTask = ringTask;
+            ringTask.start();
         }
 
+        // Multishot handlers stay registered until the kernel posts their last completion, as it can still carry a provided buffer
         public void unregisterHandle(int handle) {
-            registeredHandles.remove(handle);
-            futures.remove(handle);
-            if (registeredHandles.isEmpty()) {
-                if (ringTask != null) {
-                    ringTask.interrupt();
-                    insert(handle, false, DUMMY_CONFIGURATOR);
-                    this.ringTask = null;
-                }
+            var operations = handles.get(handle);
+            if (operations != null) {
+                operations.unregister(future -> future.completeExceptionally(new SocketException("Cannot complete operation: socket closed")));
             }
         }
 
         public boolean isHandleRegistered(int handle) {
-            return registeredHandles.contains(handle);
+            var operations = handles.get(handle);
+            return operations != null && operations.isRegistered();
         }
 
         private void unmapMemory(Integer expectedRingHandle) {
@@ -328,88 +1607,314 @@ public final class AsyncLinuxTransportSocketLayer extends AsyncNativeTransportSo
             }
         }
 
-        public CompletableFuture<Integer> insert(int handle, boolean allowResize, Consumer<MemorySegment> configurator) {
-            if(ringTask == null) {
-                return CompletableFuture.failedFuture(new IllegalStateException("Invalid ring handle"));
+        public OperationFuture insert(int handle, Consumer<MemorySegment> configurator) {
+            return insert(handle, configurator, NO_DEADLINE);
+        }
+
+        // A deadline is enforced by the kernel through a linked timeout, which cancels the operation with ECANCELED once it expires
+        public OperationFuture insert(int handle, Consumer<MemorySegment> configurator, long deadline) {
+            var future = new OperationFuture();
+            if (deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0) {
+                future.completeExceptionally(new TimeoutException("Cannot complete operation: deadline exceeded"));
+                return future;
+            }
+
+            try {
+                enqueue(handle, configurator, operation -> {
+                    future.operation = operation;
+                    handles.getOrCreate(operationHandle(operation)).put(operation, future);
+                }, deadline);
+            }catch (Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+            return future;
+        }
+
+        // The handler stays registered until the kernel posts a completion without IORING_CQE_F_MORE
+        public void insertMultishot(int handle, Consumer<MemorySegment> configurator, MultishotHandler handler) {
+            insertMultishot(handle, configurator, handler, _ -> {});
+        }
+
+        // The listener receives the identifier that cancels the operation
+        public void insertMultishot(int handle, Consumer<MemorySegment> configurator, MultishotHandler handler, LongConsumer listener) {
+            enqueue(handle, configurator, operation -> {
+                handles.getOrCreate(operationHandle(operation)).put(operation, handler);
+                listener.accept(operation);
+            }, NO_DEADLINE);
+        }
+
+        // Completes with ETIME once the timeout expires, or with ECANCELED if it's cancelled first
+        public OperationFuture delay(int handle, long nanos) {
+            return insert(handle, sqe -> {
+                var timeout = __kernel_timespec.asSlice(ringTimeouts, (sqe.address() - ringSqEntries.address()) / io_uring_sqe.sizeof());
+                __kernel_timespec.tv_sec(timeout, nanos / 1_000_000_000L);
+                __kernel_timespec.tv_nsec(timeout, nanos % 1_000_000_000L);
+                io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_TIMEOUT());
+                io_uring_sqe.fd(sqe, -1);
+                io_uring_sqe.addr(sqe, timeout.address());
+                io_uring_sqe.len(sqe, 1);
+            });
+        }
+
+        // The operation completes with ECANCELED if it was still in flight, the cancel request itself isn't tracked
+        public void cancel(int handle, OperationFuture future) {
+            if (future == null || future.isDone()) {
+                return;
+            }
+
+            cancel(handle, future.operation);
+        }
+
+        public void cancel(int handle, long operation) {
+            if (operation == NO_OPERATION) {
+                return;
             }
 
             try {
-                var ringHandle = this.ringHandle;
-                if(ringHandle == null) {
-                    return CompletableFuture.failedFuture(new IllegalStateException("Io_uring queue is closed"));
+                enqueue(handle, sqe -> {
+                    io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_ASYNC_CANCEL());
+                    io_uring_sqe.fd(sqe, -1);
+                    io_uring_sqe.addr(sqe, operation);
+                }, _ -> {}, NO_DEADLINE);
+            } catch (Throwable _) {
+                // The ring is gone: the operation was already failed by resetRing
+            }
+        }
+
+        // Any thread can call this method: slots are reserved with a CAS on sqReserved and published to the kernel in order by publish,
+        // while the io_uring_enter call is deferred until either a batch is full or the ring thread is about to wait for completions
+        private void enqueue(int handle, Consumer<MemorySegment> configurator, LongConsumer registration, long deadline) {
+            if(ringTask == null) {
+                throw new IllegalStateException("Invalid ring handle");
+            }
+
+            var ringHandle = this.ringHandle;
+            if(ringHandle == null) {
+                throw new IllegalStateException("Io_uring queue is closed");
+            }
+
+            var slots = deadline != NO_DEADLINE ? 2 : 1;
+            if (Thread.currentThread() == ringTask) {
+                // The completion thread can't wait for the queue to drain, as it's the one that submits it or reaps the completions that free it:
+                // once the queue is full, its submissions are deferred in order to the next pass of run
+                var slot = sqOverflow.isEmpty() ? reserveSlots(slots) : OptionalInt.empty();
+                if (slot.isEmpty()) {
+                    sqOverflow.add(new DeferredSubmission(handle, configurator, registration, deadline));
+                    return;
                 }
 
-                var sqOffset = io_uring_params.sq_off(ringParams);
-                var tail = atomicRead(ringSq, io_sqring_offsets.tail(sqOffset));
-                var size = atomicRead(ringSq, io_sqring_offsets.ring_entries(sqOffset));
-                if (tail + 1 > size) {
-                    if(!allowResize) {
-                        return CompletableFuture.failedFuture(new IllegalStateException("Io_uring queue is full"));
+                prepare(slot.getAsInt(), handle, configurator, registration, deadline);
+            } else {
+                prepare(awaitSlots(slots), handle, configurator, registration, deadline);
+            }
+        }
+
+        // A full queue only means the kernel didn't consume the published entries yet, which with submission polling or a single issuer
+        // happens on another thread: the producer waits, backing off, until the head moves past enough slots
+        private int awaitSlots(int count) {
+            var attempts = 0;
+            var backoff = 1L;
+            while (true) {
+                var slot = reserveSlots(count);
+                if (slot.isPresent()) {
+                    return slot.getAsInt();
+                }
+
+                if (ringHandle == null) {
+                    throw new IllegalStateException("Io_uring queue is closed");
+                }
+
+                flush();
+                if (attempts++ < SUBMIT_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(backoff);
+                    backoff = Math.min(backoff << 1, SUBMIT_MAX_BACKOFF);
+                }
+            }
+        }
+
+        private void drainOverflow() {
+            DeferredSubmission submission;
+            while ((submission = sqOverflow.peek()) != null) {
+                var slot = reserveSlots(submission.slots());
+                if (slot.isEmpty()) {
+                    return;
+                }
+
+                sqOverflow.poll();
+                prepare(slot.getAsInt(), submission.handle(), submission.configurator(), submission.registration(), submission.deadline());
+            }
+        }
+
+        private void prepare(int sequence, int handle, Consumer<MemorySegment> configurator, LongConsumer registration, long deadline) {
+            var linked = deadline != NO_DEADLINE;
+            var index = sequence & sqMask;
+            var entry = io_uring_sqe.asSlice(ringSqEntries, index);
+            entry.fill((byte) 0);
+            configurator.accept(entry);
+            var operation = operationId(handle);
+            io_uring_sqe.user_data(entry, operation);
+            registration.accept(operation);
+            if (linked) {
+                // The timeout must be published together with the operation it's linked to,
+                // so its slot is marked as ready first and publish can never stop between the two
+                io_uring_sqe.flags(entry, (byte) (io_uring_sqe.flags(entry) | LinuxKernel.IOSQE_IO_LINK()));
+                var timeoutIndex = (sequence + 1) & sqMask;
+                var timeoutEntry = io_uring_sqe.asSlice(ringSqEntries, timeoutIndex);
+                timeoutEntry.fill((byte) 0);
+                var timeout = __kernel_timespec.asSlice(ringTimeouts, timeoutIndex);
+                var remaining = Math.max(deadline - System.nanoTime(), 1);
+                __kernel_timespec.tv_sec(timeout, remaining / 1_000_000_000L);
+                __kernel_timespec.tv_nsec(timeout, remaining % 1_000_000_000L);
+                io_uring_sqe.opcode(timeoutEntry, (byte) LinuxKernel.IORING_OP_LINK_TIMEOUT());
+                io_uring_sqe.fd(timeoutEntry, -1);
+                io_uring_sqe.addr(timeoutEntry, timeout.address());
+                io_uring_sqe.len(timeoutEntry, 1);
+                io_uring_sqe.user_data(timeoutEntry, NO_OPERATION);
+                sqReady.set(timeoutIndex, sequence + 2);
+            }
+            sqReady.set(index, sequence + 1);
+            publish();
+            if (submissionPolling || ringWaiting || pendingSubmissions() >= SUBMIT_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        // The upper half of user_data is a ring-wide generation, so two operations on the same handle,
+        // or on a handle that was closed and reused by the kernel, never share an identifier
+        private long operationId(int handle) {
+            return ((long) operationGeneration.incrementAndGet() << 32) | (handle & 0xFFFFFFFFL);
+        }
+
+        private int operationHandle(long operation) {
+            return (int) operation;
+        }
+
+        private OptionalInt reserveSlots(int count) {
+            while (true) {
+                var reserved = sqReserved.get();
+                var head = atomicRead(ringSq, sqHeadOffset);
+                if (reserved + count - head > sqEntries) {
+                    return OptionalInt.empty();
+                }
+
+                if (sqReserved.compareAndSet(reserved, reserved + count)) {
+                    return OptionalInt.of(reserved);
+                }
+            }
+        }
+
+        // Slots can be filled out of order by different producers, so only the contiguous run of ready slots after the current tail is made visible
+        private void publish() {
+            while (sqPublishing.compareAndSet(false, true)) {
+                var tail = sqPublished;
+                try {
+                    while (sqReady.get(tail & sqMask) == tail + 1) {
+                        tail++;
                     }
-                    resizeRing(ringHandle, sqOffset, size * 2);
-                    return insert(handle, true, configurator);
-                }
-
-                var mask = atomicRead(ringSq, io_sqring_offsets.ring_mask(sqOffset));
-                var index = tail & mask;
-                var entry = io_uring_sqe.asSlice(ringSqEntries, index);
-                configurator.accept(entry);
-                atomicWrite(
-                        ringSq,
-                        io_sqring_offsets.array(sqOffset) + (index * ValueLayout.JAVA_INT.byteSize()),
-                        index
-                );
 
-                atomicWrite(
-                        ringSq,
-                        io_sqring_offsets.tail(sqOffset),
-                        tail + 1
-                );
-                var future = new CompletableFuture<Integer>();
-                futures.put(handle, future);
-                enterRing(ringHandle, 1, 0, 0);
-                return future;
-            }catch (Throwable throwable) {
-                return CompletableFuture.failedFuture(throwable);
+                    if (tail != sqPublished) {
+                        atomicWrite(ringSq, sqTailOffset, tail);
+                        this.sqPublished = tail;
+                    }
+                } finally {
+                    sqPublishing.set(false);
+                }
+
+                if (sqReady.get(tail & sqMask) != tail + 1) {
+                    break;
+                }
             }
         }
 
-        private void resizeRing(int ringHandle, MemorySegment sqOffset, int newSize) {
-            io_uring_params.sq_entries(ringParams, newSize);
-            io_uring_params.cq_entries(ringParams, newSize);
+        private int pendingSubmissions() {
+            return sqPublished - atomicRead(ringSq, sqHeadOffset);
+        }
 
-            io_uring_params.sq_off(ringParams)
-                    .fill((byte) 0);
-            io_uring_params.cq_off(ringParams)
-                    .fill((byte) 0);
+        // With submission polling the kernel consumes published entries on its own and only needs a wakeup once its thread went idle,
+        // while a single issuer ring can only be entered by its completion thread
+        private void flush() {
+            if (submissionPolling) {
+                if ((atomicRead(ringSq, sqFlagsOffset) & LinuxKernel.IORING_SQ_NEED_WAKEUP()) != 0) {
+                    enterRing(ringHandle, 0, 0, LinuxKernel.IORING_ENTER_SQ_WAKEUP());
+                }
+            } else if (singleIssuer && Thread.currentThread() != ringTask) {
+                LinuxKernel.write(wakeupHandle, wakeupValue, wakeupValue.byteSize());
+            } else {
+                submit();
+            }
+        }
 
-            var result = RESIZE_SYS_CALL.apply(
-                    LinuxKernel.__NR_io_uring_register(),
-                    ringHandle,
-                    LinuxKernel.IORING_REGISTER_RESIZE_RINGS(),
-                    ringParams,
-                    1
-            );
-            if(result < 0) {
-                throw new RuntimeException("Ring resizing is available since kernel 6.13, current version: " + System.getProperty("os.version", "unknown"));
+        private void submit() {
+            var pending = pendingSubmissions();
+            if (pending > 0) {
+                enterRing(ringHandle, pending, 0, 0);
             }
+        }
 
-            var sqHead = atomicRead(ringSq, io_sqring_offsets.head(sqOffset));
-            var sqTail = atomicRead(ringSq, io_sqring_offsets.tail(sqOffset));
-            unmapMemory(ringHandle);
-            ringSq.fill((byte) 0);
-            ringCq.fill((byte) 0);
-            mapRing();
-            atomicWrite(ringSq, io_sqring_offsets.head(sqOffset), sqHead);
-            atomicWrite(ringSq, io_sqring_offsets.tail(sqOffset), sqTail);
+        private void enableRing() {
+            if (ringDisabled) {
+                REGISTER_SYS_CALL.apply(
+                        LinuxKernel.__NR_io_uring_register(),
+                        ringHandle,
+                        LinuxKernel.IORING_REGISTER_ENABLE_RINGS(),
+                        MemorySegment.NULL,
+                        0
+                );
+            }
+
+            if (singleIssuer && !submissionPolling) {
+                armWakeup();
+            }
+        }
+
+        private void armWakeup() {
+            var ringHandle = this.ringHandle;
+            if (ringHandle == null) {
+                return;
+            }
+
+            insertMultishot(wakeupHandle, sqe -> {
+                io_uring_sqe.opcode(sqe, (byte) LinuxKernel.IORING_OP_POLL_ADD());
+                io_uring_sqe.fd(sqe, wakeupHandle);
+                io_uring_sqe.len(sqe, LinuxKernel.IORING_POLL_ADD_MULTI());
+                io_uring_sqe.poll32_events(sqe, LinuxKernel.POLLIN());
+            }, (result, flags) -> {
+                if (result <= 0) {
+                    return;
+                }
+
+                LinuxKernel.read(wakeupHandle, wakeupDrain, wakeupDrain.byteSize());
+                if ((flags & LinuxKernel.IORING_CQE_F_MORE()) == 0) {
+                    armWakeup();
+                }
+            });
         }
 
         @Override
         public void run() {
             var ringHandle = this.ringHandle;
-            while (!Thread.interrupted()) {
-                var result = enterRing(ringHandle, 0, 1, LinuxKernel.IORING_ENTER_GETEVENTS());
-                if (!result) {
+            enableRing();
+            while (true) {
+                // With deferred submissions the thread can't block on a completion, or they could wait for one that they are needed to produce:
+                // it only submits what's pending, so the kernel frees the slots they need
+                var deferred = !sqOverflow.isEmpty();
+                // ringWaiting must be published before the pending count is read:
+                // a producer that doesn't observe it will have its sqe submitted by this call
+                this.ringWaiting = !deferred;
+                var enterFlags = deferred ? 0 : LinuxKernel.IORING_ENTER_GETEVENTS();
+                if (submissionPolling && (atomicRead(ringSq, sqFlagsOffset) & LinuxKernel.IORING_SQ_NEED_WAKEUP()) != 0) {
+                    enterFlags |= LinuxKernel.IORING_ENTER_SQ_WAKEUP();
+                }
+                var result = waitRing(ringHandle, pendingSubmissions(), deferred ? 0 : 1, enterFlags);
+                this.ringWaiting = false;
+                // A signal only interrupts the wait, while a busy ring needs its completions to be reaped before it accepts more submissions
+                if (result == -LinuxKernel.EINTR()) {
+                    continue;
+                }
+
+                if (result < 0 && result != -LinuxKernel.EBUSY() && result != -LinuxKernel.EAGAIN()) {
                     break;
                 }
 
@@ -420,24 +1925,71 @@ public final class AsyncLinuxTransportSocketLayer extends AsyncNativeTransportSo
                 while (head != tail) {
                     var index = head & mask;
                     var cqe = io_uring_cqe.asSlice(ringCqEntries, index);
-                    var identifier = (int) io_uring_cqe.user_data(cqe);
-                    var future = futures.remove(identifier);
-                    if (future != null) {
-                        future.complete(io_uring_cqe.res(cqe));
+                    var operation = io_uring_cqe.user_data(cqe);
+                    var flags = io_uring_cqe.flags(cqe);
+                    // A zero copy send posts its result with IORING_CQE_F_MORE, then a IORING_CQE_F_NOTIF completion once the kernel
+                    // no longer references the buffer: only the latter completes the operation, so the buffer can't be reused too early
+                    var operations = handles.get(operationHandle(operation));
+                    var value = operations == null ? null
+                            : (flags & LinuxKernel.IORING_CQE_F_MORE()) != 0 ? operations.get(operation) : operations.remove(operation);
+                    if (value instanceof OperationFuture future) {
+                        if ((flags & LinuxKernel.IORING_CQE_F_MORE()) != 0) {
+                            future.deferredResult = io_uring_cqe.res(cqe);
+                        } else {
+                            var completionResult = (flags & LinuxKernel.IORING_CQE_F_NOTIF()) != 0 ? future.deferredResult : io_uring_cqe.res(cqe);
+                            completionDispatcher.dispatch(operations, () -> future.complete(completionResult));
+                        }
+                    } else if (value instanceof MultishotHandler handler) {
+                        handler.onCompletion(io_uring_cqe.res(cqe), flags);
+                    } else if ((flags & LinuxKernel.IORING_CQE_F_BUFFER()) != 0) {
+                        // Nobody owns the completion anymore, but the buffer it carries must go back to the group or it's lost for every socket on the ring
+                        recycleProvidedBuffer(flags >>> LinuxKernel.IORING_CQE_BUFFER_SHIFT());
                     }
 
                     head++;
                 }
 
                 atomicWrite(ringCq, io_cqring_offsets.head(cqOffset), head);
+                drainOverflow();
+                if (deferred && submissionPolling && !sqOverflow.isEmpty()) {
+                    Thread.onSpinWait();
+                }
             }
             LinuxKernel.close(ringHandle);
             unmapMemory(ringHandle);
+            resetRing();
+        }
+
+        // A ring whose thread died is set up again by the next registration instead of poisoning the sockets assigned to it
+        private void resetRing() {
+            synchronized (this) {
+                if (singleIssuer && !submissionPolling) {
+                    LinuxKernel.close(wakeupHandle);
+                }
+                this.ringHandle = null;
+                this.ringTask = null;
+                this.fixedBuffersRegistered = false;
+                this.providedBuffersRegistered = false;
+            }
+
+            // Deferred submissions are registered under an identifier that will never complete, so they fail with everything else
+            DeferredSubmission submission;
+            while ((submission = sqOverflow.poll()) != null) {
+                submission.registration().accept(operationId(submission.handle()));
+            }
+
+            handles.forEach(operations -> operations.drain(value -> {
+                switch (value) {
+                    case OperationFuture future -> future.completeExceptionally(new SocketException("Cannot complete operation: io_uring closed"));
+                    case MultishotHandler handler -> handler.onCompletion(0, 0);
+                    default -> {}
+                }
+            }));
         }
 
-        private boolean enterRing(Integer ringHandle, int in, int out, int flags) {
+        private int enterRing(Integer ringHandle, int in, int out, int flags) {
             try {
-                var result = ENTER_SYS_CALL.apply(
+                return (int) ENTER_SYS_CALL.apply(
                         LinuxKernel.__NR_io_uring_enter(),
                         ringHandle,
                         in,
@@ -446,10 +1998,317 @@ public final class AsyncLinuxTransportSocketLayer extends AsyncNativeTransportSo
                         MemorySegment.NULL,
                         0
                 );
-                return result >= 0;
             } catch (Throwable throwable) {
-                return false;
+                return -1;
+            }
+        }
+
+        // Returns the negated errno on failure, like the raw system call would
+        private int waitRing(Integer ringHandle, int in, int out, int flags) {
+            try {
+                var result = (long) WAIT_SYS_CALL.invokeExact(
+                        waitState,
+                        (long) LinuxKernel.__NR_io_uring_enter(),
+                        (int) ringHandle,
+                        in,
+                        out,
+                        flags,
+                        MemorySegment.NULL,
+                        0
+                );
+                return result < 0 ? -(int) ERRNO.get(waitState, 0L) : (int) result;
+            } catch (Throwable throwable) {
+                return -1;
+            }
+        }
+
+        private record DeferredSubmission(int handle, Consumer<MemorySegment> configurator, LongConsumer registration, long deadline) {
+            private int slots() {
+                return deadline != NO_DEADLINE ? 2 : 1;
+            }
+        }
+
+        // Continuations of an operation, which include TLS, parsing and user code, run wherever its future is completed:
+        // handing completions off keeps a slow continuation from stalling every other socket on the ring.
+        // Once maxPendingCompletions are in flight the ring thread runs them itself, so it stops reaping completions until the backlog drains,
+        // which fills the completion queue and in turn slows down the submitters
+        private static final class CompletionDispatcher {
+            private final AsyncLinuxTransportConfig.CompletionDispatch mode;
+            private final Executor executor;
+            private final int maxPending;
+            private final AtomicInteger pending;
+
+            private CompletionDispatcher(AsyncLinuxTransportConfig config) {
+                this.mode = config.completionDispatch();
+                this.executor = switch (mode) {
+                    case INLINE -> null;
+                    case VIRTUAL_THREAD -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("IO_URING-completion-", 0).factory());
+                    case EXECUTOR, SERIAL -> config.completionExecutor().orElseGet(ForkJoinPool::commonPool);
+                };
+                this.maxPending = config.maxPendingCompletions();
+                this.pending = new AtomicInteger();
+            }
+
+            private void dispatch(HandleOperations owner, Runnable completion) {
+                if (mode == AsyncLinuxTransportConfig.CompletionDispatch.INLINE || pending.get() >= maxPending) {
+                    completion.run();
+                    return;
+                }
+
+                pending.incrementAndGet();
+                Runnable task = () -> {
+                    try {
+                        completion.run();
+                    } finally {
+                        pending.decrementAndGet();
+                    }
+                };
+                try {
+                    if (mode == AsyncLinuxTransportConfig.CompletionDispatch.SERIAL && owner != null) {
+                        owner.serialExecutor(executor)
+                                .execute(task);
+                    } else {
+                        executor.execute(task);
+                    }
+                } catch (RejectedExecutionException _) {
+                    pending.decrementAndGet();
+                    completion.run();
+                }
+            }
+        }
+
+        // Runs the completions of a socket one at a time and in order on the shared executor, without holding one of its threads between them
+        private static final class SerialExecutor implements Executor {
+            private final Executor executor;
+            private final Queue<Runnable> tasks;
+            private final AtomicBoolean running;
+
+            private SerialExecutor(Executor executor) {
+                this.executor = executor;
+                this.tasks = new ConcurrentLinkedQueue<>();
+                this.running = new AtomicBoolean();
+            }
+
+            @Override
+            public void execute(Runnable task) {
+                tasks.add(task);
+                schedule();
+            }
+
+            private void schedule() {
+                if (tasks.isEmpty() || !running.compareAndSet(false, true)) {
+                    return;
+                }
+
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException _) {
+                    drain();
+                }
+            }
+
+            private void drain() {
+                try {
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                } finally {
+                    running.set(false);
+                    schedule();
+                }
+            }
+        }
+
+        // Sockets are indexed by their file descriptor, which the kernel keeps small and dense, and the operation identifier carries the handle:
+        // registering a socket and looking up a completion are O(1) and don't allocate, and closing a socket only touches its own operations.
+        // A descriptor that's closed and reused gets a new entry, while the generation in the identifier keeps stale completions from matching
+        private static final class HandleTable {
+            private static final int INITIAL_CAPACITY = 1024;
+
+            private volatile AtomicReferenceArray<HandleOperations> entries;
+
+            private HandleTable() {
+                this.entries = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+            }
+
+            private HandleOperations get(int handle) {
+                var entries = this.entries;
+                return handle >= 0 && handle < entries.length() ? entries.get(handle) : null;
+            }
+
+            private HandleOperations getOrCreate(int handle) {
+                var operations = get(handle);
+                if (operations != null) {
+                    return operations;
+                }
+
+                synchronized (this) {
+                    var entries = ensureCapacity(handle);
+                    operations = entries.get(handle);
+                    if (operations == null) {
+                        operations = new HandleOperations();
+                        entries.set(handle, operations);
+                    }
+                    return operations;
+                }
+            }
+
+            private void forEach(Consumer<HandleOperations> consumer) {
+                var entries = this.entries;
+                for (var handle = 0; handle < entries.length(); handle++) {
+                    var operations = entries.get(handle);
+                    if (operations != null) {
+                        consumer.accept(operations);
+                    }
+                }
+            }
+
+            private AtomicReferenceArray<HandleOperations> ensureCapacity(int handle) {
+                if (handle < 0) {
+                    throw new IllegalArgumentException("Invalid handle: " + handle);
+                }
+
+                var entries = this.entries;
+                if (handle < entries.length()) {
+                    return entries;
+                }
+
+                var capacity = entries.length();
+                while (capacity <= handle) {
+                    capacity <<= 1;
+                }
+                var resized = new AtomicReferenceArray<HandleOperations>(capacity);
+                for (var index = 0; index < entries.length(); index++) {
+                    resized.set(index, entries.get(index));
+                }
+                this.entries = resized;
+                return resized;
+            }
+        }
+
+        // A socket has a handful of operations in flight at most, so a linear scan over a small array beats hashing
+        private static final class HandleOperations {
+            private static final int INITIAL_CAPACITY = 4;
+
+            private long[] operations;
+            private Object[] values;
+            private int size;
+            private volatile boolean registered;
+            private volatile SerialExecutor serialExecutor;
+
+            private HandleOperations() {
+                this.operations = new long[INITIAL_CAPACITY];
+                this.values = new Object[INITIAL_CAPACITY];
+            }
+
+            private void register() {
+                this.registered = true;
+            }
+
+            private boolean isRegistered() {
+                return registered;
+            }
+
+            // The entry is kept, and registered again if the kernel reuses the handle, so that multishot handlers can still see their last completion
+            private void unregister(Consumer<OperationFuture> consumer) {
+                var drained = new ArrayList<OperationFuture>();
+                synchronized (this) {
+                    this.registered = false;
+                    var kept = 0;
+                    for (var index = 0; index < size; index++) {
+                        if (values[index] instanceof OperationFuture future) {
+                            drained.add(future);
+                        } else {
+                            operations[kept] = operations[index];
+                            values[kept] = values[index];
+                            kept++;
+                        }
+                    }
+                    Arrays.fill(values, kept, size, null);
+                    this.size = kept;
+                }
+
+                drained.forEach(consumer);
+            }
+
+            private synchronized void put(long operation, Object value) {
+                if (size == operations.length) {
+                    operations = Arrays.copyOf(operations, size << 1);
+                    values = Arrays.copyOf(values, size << 1);
+                }
+                operations[size] = operation;
+                values[size] = value;
+                size++;
+            }
+
+            private synchronized Object get(long operation) {
+                var index = indexOf(operation);
+                return index == -1 ? null : values[index];
+            }
+
+            private synchronized Object remove(long operation) {
+                var index = indexOf(operation);
+                if (index == -1) {
+                    return null;
+                }
+
+                var value = values[index];
+                size--;
+                operations[index] = operations[size];
+                values[index] = values[size];
+                values[size] = null;
+                return value;
+            }
+
+            private void drain(Consumer<Object> consumer) {
+                Object[] drained;
+                int count;
+                synchronized (this) {
+                    drained = values;
+                    count = size;
+                    this.values = new Object[INITIAL_CAPACITY];
+                    this.operations = new long[INITIAL_CAPACITY];
+                    this.size = 0;
+                }
+
+                for (var index = 0; index < count; index++) {
+                    consumer.accept(drained[index]);
+                }
+            }
+
+            private SerialExecutor serialExecutor(Executor executor) {
+                var serialExecutor = this.serialExecutor;
+                if (serialExecutor != null) {
+                    return serialExecutor;
+                }
+
+                synchronized (this) {
+                    if (this.serialExecutor == null) {
+                        this.serialExecutor = new SerialExecutor(executor);
+                    }
+                    return this.serialExecutor;
+                }
             }
+
+            private int indexOf(long operation) {
+                for (var index = 0; index < size; index++) {
+                    if (operations[index] == operation) {
+                        return index;
+                    }
+                }
+                return -1;
+            }
+        }
+
+        private static final class OperationFuture extends CompletableFuture<Integer> {
+            private volatile long operation;
+            private int deferredResult;
+        }
+
+        @FunctionalInterface
+        private interface MultishotHandler {
+            void onCompletion(int result, int flags);
         }
 
         private int atomicRead(MemorySegment segment, int offset) {
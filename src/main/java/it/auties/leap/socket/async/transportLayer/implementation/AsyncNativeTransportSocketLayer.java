@@ -1,48 +1,81 @@
 package it.auties.leap.socket.async.transportLayer.implementation;
 
+import it.auties.leap.socket.SocketBufferPool;
 import it.auties.leap.socket.SocketException;
 import it.auties.leap.socket.SocketOption;
 import it.auties.leap.socket.SocketProtocol;
+import it.auties.leap.socket.SocketReadAhead;
+import it.auties.leap.socket.async.AsyncSocketIO;
 import it.auties.leap.socket.async.transportLayer.AsyncSocketTransportLayer;
 
 import java.io.IOException;
 import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.ValueLayout;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
-// TODO: Merge on demand read/write buffer into a single length variable buffer
-//       Make merged buffer allocation on demand
+// The native buffers are leased when an operation starts and go back to the pool as soon as its queue is drained,
+// so an idle connection holds no buffer at all
 abstract class AsyncNativeTransportSocketLayer<HANDLE extends Number> extends AsyncSocketTransportLayer {
     static final CompletableFuture<Void> NO_RESULT = CompletableFuture.completedFuture(null);
+    static final long NO_DEADLINE = Long.MIN_VALUE;
 
     protected final Arena arena;
-    protected final HANDLE handle;
-    protected final ReentrantLock ioLock;
+    protected HANDLE handle;
+    protected final AtomicReference<CompletableFuture<Void>> pendingRead;
+    protected final AtomicReference<CompletableFuture<Void>> pendingWrite;
     protected final AtomicBoolean connected;
     protected InetSocketAddress address;
     protected MemorySegment readBuffer;
+    protected SocketBufferPool.Lease readBufferLease;
     protected int readBufferSize;
     protected MemorySegment writeBuffer;
+    protected SocketBufferPool.Lease writeBufferLease;
     protected int writeBufferSize;
+    protected int readAheadSize;
+    protected SocketReadAhead readAhead;
     protected boolean keepAlive;
+    protected Duration connectTimeout;
+    protected Duration readTimeout;
+    protected Duration writeTimeout;
+    protected final Map<SocketOption<?>, Object> kernelOptions;
+    protected long connectDeadline;
+    protected long readDeadline;
+    protected long writeDeadline;
 
     public AsyncNativeTransportSocketLayer(SocketProtocol protocol) {
         super(protocol);
         this.arena = Arena.ofAuto();
+        this.kernelOptions = new ConcurrentHashMap<>();
         this.handle = createNativeHandle();
-        this.ioLock = new ReentrantLock(true);
+        this.pendingRead = new AtomicReference<>(NO_RESULT);
+        this.pendingWrite = new AtomicReference<>(NO_RESULT);
         this.connected = new AtomicBoolean(false);
         this.readBufferSize = SocketOption.readBufferSize().defaultValue();
         this.writeBufferSize = SocketOption.writeBufferSize().defaultValue();
+        this.readAheadSize = SocketOption.readAheadSize().defaultValue();
         this.keepAlive = SocketOption.keepAlive().defaultValue();
+        this.connectTimeout = SocketOption.connectTimeout().defaultValue();
+        this.readTimeout = SocketOption.readTimeout().defaultValue();
+        this.writeTimeout = SocketOption.writeTimeout().defaultValue();
+        this.connectDeadline = NO_DEADLINE;
+        this.readDeadline = NO_DEADLINE;
+        this.writeDeadline = NO_DEADLINE;
     }
 
     protected abstract HANDLE createNativeHandle();
@@ -52,12 +85,38 @@ abstract class AsyncNativeTransportSocketLayer<HANDLE extends Number> extends As
         if (connected.get()) {
             return CompletableFuture.failedFuture(new SocketException("Cannot connect to socket: already connected"));
         }
-        
-        return connectNative(address);
+
+        this.connectDeadline = deadline(connectTimeout);
+        return withDeadline(connectNative(address), connectTimeout);
     }
 
     protected abstract CompletableFuture<Void> connectNative(InetSocketAddress address);
 
+    private long deadline(Duration timeout) {
+        return timeout == null || timeout.isZero() || timeout.isNegative() ? NO_DEADLINE : System.nanoTime() + timeout.toNanos();
+    }
+
+    // Transports that can't attach a deadline to the native operation itself fall back to a timer
+    protected <T> CompletableFuture<T> withDeadline(CompletableFuture<T> future, Duration timeout) {
+        if (timeout == null || timeout.isZero() || timeout.isNegative()) {
+            return future;
+        }
+
+        return future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    protected boolean isExpired(long deadline) {
+        return deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0;
+    }
+
+    protected void cancelRead() {
+
+    }
+
+    protected void cancelWrite() {
+
+    }
+
     protected OptionalInt getLittleEndianIPV4Host(InetSocketAddress address) {
         var inetAddress = address.getAddress();
         if (inetAddress == null) {
@@ -80,15 +139,101 @@ abstract class AsyncNativeTransportSocketLayer<HANDLE extends Number> extends As
             return NO_RESULT;
         }
 
-        ioLock.lock();
+        return enqueue(pendingWrite, () -> {
+            this.writeDeadline = deadline(writeTimeout);
+            return withDeadline(writeNative(input), writeTimeout);
+        }, this::cancelWrite, this::acquireWriteBuffer, this::releaseWriteBuffer);
+    }
+
+    protected abstract CompletableFuture<Void> writeNative(ByteBuffer input);
+
+    @Override
+    public final CompletableFuture<Void> write(ByteBuffer... input) {
+        if (!connected.get()) {
+            return CompletableFuture.failedFuture(new SocketException("Cannot send message to socket (socket not connected)"));
+        }
+
+        if (input == null || !hasRemaining(input)) {
+            return NO_RESULT;
+        }
+
+        return enqueue(pendingWrite, () -> {
+            this.writeDeadline = deadline(writeTimeout);
+            return withDeadline(writeNative(input), writeTimeout);
+        }, this::cancelWrite, this::acquireWriteBuffer, this::releaseWriteBuffer);
+    }
+
+    // The transfer holds the write queue until the whole range was sent, so other writes can't end up in the middle of the file
+    @Override
+    public final CompletableFuture<Void> transferFrom(Path path, long offset, long length) {
+        if (!connected.get()) {
+            return CompletableFuture.failedFuture(new SocketException("Cannot send file to socket (socket not connected)"));
+        }
+
+        if (offset < 0 || length < 0) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid file range: offset %s, length %s".formatted(offset, length)));
+        }
+
+        if (length == 0) {
+            return NO_RESULT;
+        }
+
+        return enqueue(pendingWrite, () -> {
+            this.writeDeadline = deadline(writeTimeout);
+            return withDeadline(transferNative(path, offset, length), writeTimeout);
+        }, this::cancelWrite, this::acquireWriteBuffer, this::releaseWriteBuffer);
+    }
+
+    // Transports that can't send a file from the page cache copy it through a buffer
+    protected CompletableFuture<Void> transferNative(Path path, long offset, long length) {
+        FileChannel channel;
         try {
-            return writeNative(input);
-        } finally {
-            ioLock.unlock();
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException exception) {
+            return CompletableFuture.failedFuture(new SocketException("Cannot open file " + path, exception));
         }
+
+        var lease = SocketBufferPool.shared().lease(Math.min(length, writeBufferSize));
+        return transferChunk(channel, lease.asByteBuffer(), offset, offset + length).whenComplete((_, _) -> {
+            lease.release();
+            try {
+                channel.close();
+            } catch (IOException _) {
+
+            }
+        });
     }
 
-    protected abstract CompletableFuture<Void> writeNative(ByteBuffer input);
+    private CompletableFuture<Void> transferChunk(FileChannel channel, ByteBuffer buffer, long position, long end) {
+        if (position >= end) {
+            return NO_RESULT;
+        }
+
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), end - position));
+        int read;
+        try {
+            read = channel.read(buffer, position);
+        } catch (IOException exception) {
+            return CompletableFuture.failedFuture(new SocketException("Cannot read file", exception));
+        }
+
+        if (read <= 0) {
+            return CompletableFuture.failedFuture(new SocketException("Cannot send file to socket: it ended %s bytes early".formatted(end - position)));
+        }
+
+        buffer.flip();
+        return writeNative(buffer)
+                .thenCompose(_ -> transferChunk(channel, buffer, position + read, end));
+    }
+
+    protected CompletableFuture<Void> writeNative(ByteBuffer[] input) {
+        var result = NO_RESULT;
+        for (var buffer : input) {
+            result = result.thenCompose(_ -> buffer.hasRemaining() ? writeNative(buffer) : NO_RESULT);
+        }
+        return result;
+    }
 
     @Override
     public final CompletableFuture<Void> read(ByteBuffer output) {
@@ -104,22 +249,233 @@ abstract class AsyncNativeTransportSocketLayer<HANDLE extends Number> extends As
             return NO_RESULT;
         }
 
-        ioLock.lock();
-        try {
-            return readNative(output, lastRead);
-        } finally {
-            ioLock.unlock();
+        return enqueue(pendingRead, () -> {
+            this.readDeadline = deadline(readTimeout);
+            return withDeadline(readBuffered(output, lastRead), readTimeout);
+        }, this::cancelRead, () -> {}, this::releaseReadBuffers);
+    }
+
+    // Reads at least as large as the read ahead buffer go straight to the output, unless some bytes were already read ahead
+    private CompletableFuture<Void> readBuffered(ByteBuffer output, boolean lastRead) {
+        var readAhead = readAhead();
+        if (readAhead == null || (readAhead.isEmpty() && output.remaining() >= readAhead.capacity())) {
+            return readStaged(output, lastRead);
+        }
+
+        return fillReadAhead(readAhead, 1).thenRun(() -> {
+            readAhead.read(output);
+            if (lastRead) {
+                output.flip();
+            }
+        });
+    }
+
+    // The native read buffer is only leased for reads that are staged through it:
+    // a fill of the read ahead buffer, or a read into a direct buffer, goes straight to the kernel on transports that support it
+    private CompletableFuture<Void> readStaged(ByteBuffer output, boolean lastRead) {
+        if (!readsDirectly(output)) {
+            acquireReadBuffer();
         }
+
+        return readNative(output, lastRead);
+    }
+
+    protected boolean readsDirectly(ByteBuffer output) {
+        return false;
     }
 
     protected abstract CompletableFuture<Void> readNative(ByteBuffer output, boolean lastRead);
 
+    @Override
+    public final CompletableFuture<Void> read(ByteBuffer... output) {
+        if (!connected.get()) {
+            return CompletableFuture.failedFuture(new SocketException("Cannot read message from socket (socket not connected)"));
+        }
+
+        if (!hasRemaining(output)) {
+            return NO_RESULT;
+        }
+
+        return enqueue(pendingRead, () -> {
+            this.readDeadline = deadline(readTimeout);
+            return withDeadline(readBuffered(output), readTimeout);
+        }, this::cancelRead, () -> {}, this::releaseReadBuffers);
+    }
+
+    // The bytes that were read ahead must be consumed first, after that a vectored read is large enough to go to the kernel directly
+    private CompletableFuture<Void> readBuffered(ByteBuffer[] output) {
+        var readAhead = readAhead();
+        if (readAhead == null || readAhead.isEmpty()) {
+            acquireReadBuffer();
+            return readNative(output);
+        }
+
+        for (var buffer : output) {
+            if (readAhead.isEmpty()) {
+                break;
+            }
+
+            if (buffer.hasRemaining()) {
+                readAhead.read(buffer);
+                buffer.flip();
+            }
+        }
+        return NO_RESULT;
+    }
+
+    // Transports without vectored reads read into a staging buffer and spread its contents, see AsyncSocketIO.read(ByteBuffer...)
+    protected CompletableFuture<Void> readNative(ByteBuffer[] output) {
+        var length = 0L;
+        for (var buffer : output) {
+            length += buffer.remaining();
+        }
+
+        var lease = SocketBufferPool.shared().lease(Math.min(length, 65536));
+        var staging = lease.asByteBuffer();
+        return readNative(staging, true)
+                .thenRun(() -> AsyncSocketIO.scatter(staging, output))
+                .whenComplete((_, _) -> lease.release());
+    }
+
+    // The view is only valid until the bytes are consumed by a read, or moved by compact
+    @Override
+    public final CompletableFuture<ByteBuffer> peek(int length) {
+        if (!connected.get()) {
+            return CompletableFuture.failedFuture(new SocketException("Cannot peek message from socket (socket not connected)"));
+        }
+
+        if (length < 0) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid peek length: " + length));
+        }
+
+        var view = new AtomicReference<ByteBuffer>();
+        return enqueue(pendingRead, () -> {
+            var readAhead = readAhead();
+            if (readAhead == null) {
+                return CompletableFuture.failedFuture(new SocketException("Cannot peek message from socket (read ahead is disabled)"));
+            }
+
+            this.readDeadline = deadline(readTimeout);
+            return withDeadline(fillReadAhead(readAhead, length), readTimeout)
+                    .thenRun(() -> view.set(readAhead.peek(length)));
+        }, this::cancelRead, () -> {}, this::releaseReadBuffers).thenApply(_ -> view.get());
+    }
+
+    @Override
+    public final CompletableFuture<Void> compact() {
+        return enqueue(pendingRead, () -> {
+            if (readAhead != null) {
+                readAhead.compact();
+            }
+            return NO_RESULT;
+        }, () -> {}, () -> {}, this::releaseReadBuffers);
+    }
+
+    @Override
+    public final CompletableFuture<Void> settled() {
+        return CompletableFuture.allOf(pendingRead.get(), pendingWrite.get());
+    }
+
+    // Called from the read queue: a read ahead buffer that still holds bytes is kept even if the option changed, so they are never lost
+    private SocketReadAhead readAhead() {
+        var current = this.readAhead;
+        if (current != null && (!current.isEmpty() || current.capacity() == readAheadSize)) {
+            return current;
+        }
+
+        if (current != null) {
+            current.release();
+        }
+
+        this.readAhead = readAheadSize > 0 ? new SocketReadAhead(readAheadSize) : null;
+        return readAhead;
+    }
+
+    // One native read pulls in as much as the socket holds and fits, so the reads that follow are served from memory
+    private CompletableFuture<Void> fillReadAhead(SocketReadAhead readAhead, int length) {
+        if (readAhead.available() >= length) {
+            return NO_RESULT;
+        }
+
+        var target = readAhead.fillable(length);
+        var start = target.position();
+        return readStaged(target, false).thenCompose(_ -> {
+            readAhead.filled(target.position() - start);
+            return fillReadAhead(readAhead, length);
+        });
+    }
+
+    protected static boolean hasRemaining(ByteBuffer[] buffers) {
+        for (var buffer : buffers) {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Operations in the same direction share the same native buffer, so they run one after the other,
+    // while a read and a write can be in flight at the same time.
+    // The queue only moves on once the native operation is over: cancelling the returned future asks the transport to abort it,
+    // but the kernel may still be using the buffer until it acknowledges the cancellation.
+    // The buffer is acquired by the first operation of a burst and released by the last one
+    private CompletableFuture<Void> enqueue(AtomicReference<CompletableFuture<Void>> queue, Supplier<CompletableFuture<Void>> operation, Runnable canceller, Runnable acquire, Runnable release) {
+        var done = new CompletableFuture<Void>();
+        var result = new CompletableFuture<Void>();
+        result.whenComplete((_, error) -> {
+            if (error instanceof CancellationException) {
+                canceller.run();
+            }
+        });
+        var previous = queue.getAndSet(done);
+        previous.whenComplete((_, _) -> {
+            if (result.isDone()) {
+                dequeue(queue, done, release);
+                return;
+            }
+
+            try {
+                acquire.run();
+                operation.get().whenComplete((_, error) -> {
+                    dequeue(queue, done, release);
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(null);
+                    }
+                });
+            } catch (Throwable throwable) {
+                dequeue(queue, done, release);
+                result.completeExceptionally(throwable);
+            }
+        });
+        return result;
+    }
+
+    // If another operation is enqueued right after the check, it runs only once done completes and leases the buffer again
+    private void dequeue(AtomicReference<CompletableFuture<Void>> queue, CompletableFuture<Void> done, Runnable release) {
+        if (queue.get() == done) {
+            release.run();
+        }
+
+        done.complete(null);
+    }
+
     @Override
     public <V> V getOption(SocketOption<V> option) {
         return (V) switch (option) {
             case SocketOption.KeepAlive _ -> keepAlive;
             case SocketOption.ReadBufferSize _ -> readBufferSize;
             case SocketOption.WriteBufferSize _ -> writeBufferSize;
+            case SocketOption.ReadAheadSize _ -> readAheadSize;
+            case SocketOption.ConnectTimeout _ -> connectTimeout;
+            case SocketOption.ReadTimeout _ -> readTimeout;
+            case SocketOption.WriteTimeout _ -> writeTimeout;
+            case SocketOption.TcpNoDelay _, SocketOption.ReceiveBufferSize _, SocketOption.SendBufferSize _,
+                 SocketOption.TcpQuickAck _, SocketOption.TcpCork _, SocketOption.BusyPoll _,
+                 SocketOption.TcpUserTimeout _, SocketOption.ReuseAddress _, SocketOption.ReusePort _,
+                 SocketOption.TcpFastOpen _ ->
+                    kernelOptions.getOrDefault(option, option.defaultValue());
         };
     }
 
@@ -129,9 +485,28 @@ abstract class AsyncNativeTransportSocketLayer<HANDLE extends Number> extends As
             case SocketOption.KeepAlive _ -> this.keepAlive = (boolean) value;
             case SocketOption.ReadBufferSize _ -> this.readBufferSize = (int) value;
             case SocketOption.WriteBufferSize _ -> this.writeBufferSize = (int) value;
+            case SocketOption.ReadAheadSize _ -> this.readAheadSize = (int) value;
+            case SocketOption.ConnectTimeout _ -> this.connectTimeout = (Duration) value;
+            case SocketOption.ReadTimeout _ -> this.readTimeout = (Duration) value;
+            case SocketOption.WriteTimeout _ -> this.writeTimeout = (Duration) value;
+            case SocketOption.TcpNoDelay _, SocketOption.ReceiveBufferSize _, SocketOption.SendBufferSize _,
+                 SocketOption.TcpQuickAck _, SocketOption.TcpCork _, SocketOption.BusyPoll _,
+                 SocketOption.TcpUserTimeout _, SocketOption.ReuseAddress _, SocketOption.ReusePort _,
+                 SocketOption.TcpFastOpen _ -> {
+                if (!appliesKernelOptions()) {
+                    throw new SocketException("Cannot set option %s: not supported by this transport".formatted(option.name()));
+                }
+
+                kernelOptions.put(option, value);
+            }
         }
     }
 
+    // Only a transport that sets these options on its sockets keeps them: otherwise getOption would report a value that was never in effect
+    protected boolean appliesKernelOptions() {
+        return false;
+    }
+
     @Override
     public abstract void close() throws IOException;
 
@@ -141,23 +516,63 @@ abstract class AsyncNativeTransportSocketLayer<HANDLE extends Number> extends As
     }
 
     protected void writeToIOBuffer(ByteBuffer input, int length) {
-        for (int i = 0; i < length; i++) {
-            writeBuffer.setAtIndex(ValueLayout.JAVA_BYTE, i, input.get());
-        }
+        MemorySegment.copy(MemorySegment.ofBuffer(input), 0, writeBuffer, 0, length);
+        input.position(input.position() + length);
     }
 
     protected void readFromIOBuffer(ByteBuffer output, int readLength, boolean lastRead) {
-        for (int i = 0; i < readLength; i++) {
-            output.put(readBuffer.getAtIndex(ValueLayout.JAVA_BYTE, i));
-        }
+        MemorySegment.copy(readBuffer, 0, MemorySegment.ofBuffer(output), 0, readLength);
+        output.position(output.position() + readLength);
         if(lastRead) {
             output.flip();
         }
     }
 
-    protected void initIOBuffers() {
-        this.readBuffer = arena.allocate(ValueLayout.JAVA_BYTE, getOption(SocketOption.readBufferSize()));
-        this.writeBuffer = arena.allocate(ValueLayout.JAVA_BYTE, getOption(SocketOption.writeBufferSize()));
+    protected void acquireReadBuffer() {
+        if (readBuffer == null) {
+            this.readBufferLease = SocketBufferPool.shared().lease(readBufferSize);
+            this.readBuffer = readBufferLease.segment();
+        }
+    }
+
+    protected void releaseReadBuffer() {
+        if (readBufferLease != null) {
+            readBufferLease.release();
+            this.readBufferLease = null;
+        }
+        this.readBuffer = null;
+    }
+
+    private void releaseReadBuffers() {
+        releaseReadBuffer();
+        if (readAhead != null) {
+            readAhead.releaseIfEmpty();
+        }
+    }
+
+    // Called by close: the bytes that were read ahead are discarded once the read queue is drained
+    protected void releaseReadAhead() {
+        pendingRead.get().whenComplete((_, _) -> {
+            var readAhead = this.readAhead;
+            if (readAhead != null) {
+                readAhead.release();
+            }
+        });
+    }
+
+    protected void acquireWriteBuffer() {
+        if (writeBuffer == null) {
+            this.writeBufferLease = SocketBufferPool.shared().lease(writeBufferSize);
+            this.writeBuffer = writeBufferLease.segment();
+        }
+    }
+
+    protected void releaseWriteBuffer() {
+        if (writeBufferLease != null) {
+            writeBufferLease.release();
+            this.writeBufferLease = null;
+        }
+        this.writeBuffer = null;
     }
 
     @Override
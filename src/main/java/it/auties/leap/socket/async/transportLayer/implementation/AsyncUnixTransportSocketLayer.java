@@ -78,8 +78,6 @@ public final class AsyncUnixTransportSocketLayer extends AsyncNativeTransportSoc
             return CompletableFuture.failedFuture(new SocketException("Cannot connect to socket: remote connection failure (error code: %s)".formatted(errorCode)));
         }
 
-        initIOBuffers();
-
         this.dispatcher = new GCD(handle);
         return dispatcher.dispatch(GCD.DispatchEvent.WRITE).thenCompose(_ -> {
             var errorSegment = arena.allocate(ValueLayout.JAVA_INT);
@@ -162,6 +160,7 @@ public final class AsyncUnixTransportSocketLayer extends AsyncNativeTransportSoc
         this.address = null;
         connected.set(false);
         UnixKernel.close(handle);
+        releaseReadAhead();
     }
 
     private int getErrorCode() {
@@ -139,8 +139,6 @@ public final class AsyncWinTransportSocketLayer extends AsyncNativeTransportSock
             return CompletableFuture.failedFuture(new SocketException("Cannot connect to socket: unresolved host %s".formatted(address.getHostName())));
         }
 
-        initIOBuffers();
-
         this.completionPort = CompletionPort.shared();
         completionPort.registerHandle(handle);
 
@@ -283,6 +281,11 @@ public final class AsyncWinTransportSocketLayer extends AsyncNativeTransportSock
     @Override
     public <V> void setOption(SocketOption<V> option, V optionValue) {
         Objects.requireNonNull(optionValue, "Invalid option value");
+        if (!(option instanceof SocketOption.KeepAlive)) {
+            super.setOption(option, optionValue);
+            return;
+        }
+
         var value = arena.allocate(
                 WindowsKernel.DWORD,
                 option.accept(optionValue)
@@ -313,6 +316,7 @@ public final class AsyncWinTransportSocketLayer extends AsyncNativeTransportSock
         if (completionPort != null) {
             completionPort.unregisterHandle(handle);
         }
+        releaseReadAhead();
     }
 
     private static final class CompletionPort implements Runnable {
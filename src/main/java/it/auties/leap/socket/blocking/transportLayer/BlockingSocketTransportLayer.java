@@ -1,10 +1,12 @@
 package it.auties.leap.socket.blocking.transportLayer;
 
+import it.auties.leap.socket.SocketException;
 import it.auties.leap.socket.SocketProtocol;
 import it.auties.leap.socket.SocketTransportLayer;
 import it.auties.leap.socket.blocking.BlockingSocketIO;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 
 public non-sealed abstract class BlockingSocketTransportLayer extends SocketTransportLayer implements BlockingSocketIO {
     public BlockingSocketTransportLayer(SocketProtocol protocol) {
@@ -12,4 +14,15 @@ public non-sealed abstract class BlockingSocketTransportLayer extends SocketTran
     }
 
     public abstract void connect(InetSocketAddress address);
+
+    // Returns a read-only view of the next length bytes without consuming them: transports that read ahead
+    // block until that many bytes are buffered, which can't be more than the read ahead size
+    public ByteBuffer peek(int length) {
+        throw new SocketException("Cannot peek message from socket (read ahead is not supported)");
+    }
+
+    // Moves the bytes that were read ahead but not consumed yet to the start of the read ahead buffer
+    public void compact() {
+
+    }
 }
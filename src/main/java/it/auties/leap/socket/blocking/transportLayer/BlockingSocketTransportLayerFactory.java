@@ -3,6 +3,7 @@ package it.auties.leap.socket.blocking.transportLayer;
 import it.auties.leap.socket.SocketException;
 import it.auties.leap.socket.SocketProtocol;
 import it.auties.leap.socket.SocketTransportLayerFactory;
+import it.auties.leap.socket.blocking.transportLayer.implementation.BlockingLinuxParkingTransportSocketLayer;
 import it.auties.leap.socket.blocking.transportLayer.implementation.BlockingLinuxTransportSocketLayer;
 import it.auties.leap.socket.blocking.transportLayer.implementation.BlockingUnixTransportSocketLayer;
 import it.auties.leap.socket.blocking.transportLayer.implementation.BlockingWinTransportSocketLayer;
@@ -13,7 +14,7 @@ public non-sealed interface BlockingSocketTransportLayerFactory extends SocketTr
         if(os.contains("win")) {
             return BlockingWinTransportSocketLayer.factory();
         }else if(os.contains("nix") || os.contains("nux") || os.contains("aix")) {
-            return BlockingLinuxTransportSocketLayer.factory();
+            return BlockingLinuxParkingTransportSocketLayer.virtualThreadFactory();
         }else if(os.contains("mac")) {
             return BlockingUnixTransportSocketLayer.factory();
         }else {
@@ -34,6 +35,10 @@ public non-sealed interface BlockingSocketTransportLayerFactory extends SocketTr
         return BlockingLinuxTransportSocketLayer.factory();
     }
 
+    static BlockingSocketTransportLayerFactory linuxParking() {
+        return BlockingLinuxParkingTransportSocketLayer.factory();
+    }
+
     static BlockingSocketTransportLayerFactory unix() {
         return BlockingUnixTransportSocketLayer.factory();
     }
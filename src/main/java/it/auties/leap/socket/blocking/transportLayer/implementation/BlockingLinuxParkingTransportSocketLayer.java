@@ -0,0 +1,203 @@
+package it.auties.leap.socket.blocking.transportLayer.implementation;
+
+import it.auties.leap.socket.SocketException;
+import it.auties.leap.socket.SocketOption;
+import it.auties.leap.socket.SocketProtocol;
+import it.auties.leap.socket.async.transportLayer.AsyncSocketTransportLayer;
+import it.auties.leap.socket.async.transportLayer.AsyncSocketTransportLayerFactory;
+import it.auties.leap.socket.async.transportLayer.implementation.AsyncLinuxEpollTransportSocketLayer;
+import it.auties.leap.socket.async.transportLayer.implementation.AsyncLinuxTransportSocketLayer;
+import it.auties.leap.socket.blocking.transportLayer.BlockingSocketTransportLayer;
+import it.auties.leap.socket.blocking.transportLayer.BlockingSocketTransportLayerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Io_uring, or epoll if io_uring isn't available
+// A downcall that blocks in the kernel pins the carrier of the virtual thread that made it:
+// this transport submits every operation to the poller of the async stack instead and parks the calling thread until it completes,
+// so any number of virtual threads can wait on their sockets while sharing the same few carriers
+public final class BlockingLinuxParkingTransportSocketLayer extends BlockingSocketTransportLayer {
+    private static final BlockingSocketTransportLayerFactory FACTORY = BlockingLinuxParkingTransportSocketLayer::new;
+    private static final BlockingSocketTransportLayerFactory VIRTUAL_THREAD_FACTORY = protocol -> Thread.currentThread().isVirtual()
+            ? new BlockingLinuxParkingTransportSocketLayer(protocol)
+            : new BlockingLinuxTransportSocketLayer(protocol);
+
+    public static BlockingSocketTransportLayerFactory factory() {
+        return FACTORY;
+    }
+
+    public static BlockingSocketTransportLayerFactory factory(AsyncSocketTransportLayerFactory poller) {
+        Objects.requireNonNull(poller, "poller cannot be null");
+        return protocol -> new BlockingLinuxParkingTransportSocketLayer(protocol, poller);
+    }
+
+    // Picks the parking transport when the socket is created on a virtual thread and the plain blocking one otherwise,
+    // where a blocking downcall costs no more than parking
+    public static BlockingSocketTransportLayerFactory virtualThreadFactory() {
+        return VIRTUAL_THREAD_FACTORY;
+    }
+
+    private static AsyncSocketTransportLayerFactory defaultPoller() {
+        return AsyncLinuxTransportSocketLayer.isSupported()
+                ? AsyncLinuxTransportSocketLayer.factory()
+                : AsyncLinuxEpollTransportSocketLayer.factory();
+    }
+
+    private final AsyncSocketTransportLayer delegate;
+    private final ReentrantLock ioLock;
+
+    public BlockingLinuxParkingTransportSocketLayer(SocketProtocol protocol) {
+        this(protocol, defaultPoller());
+    }
+
+    public BlockingLinuxParkingTransportSocketLayer(SocketProtocol protocol, AsyncSocketTransportLayerFactory poller) {
+        super(protocol);
+        this.delegate = poller.newTransport(protocol);
+        this.ioLock = new ReentrantLock(true);
+    }
+
+    @Override
+    public void connect(InetSocketAddress address) {
+        if (delegate.isConnected()) {
+            throw new SocketException("Cannot connect to socket: already connected");
+        }
+
+        await(delegate.connect(address));
+    }
+
+    @Override
+    public void write(ByteBuffer input) {
+        if (!delegate.isConnected()) {
+            throw new SocketException("Cannot send message to socket (socket not connected)");
+        }
+
+        if (input == null || !input.hasRemaining()) {
+            return;
+        }
+
+        ioLock.lock();
+        try {
+            await(delegate.write(input));
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    @Override
+    public void read(ByteBuffer output) {
+        if (!delegate.isConnected()) {
+            throw new SocketException("Cannot read message from socket (socket not connected)");
+        }
+
+        if (!output.hasRemaining()) {
+            return;
+        }
+
+        ioLock.lock();
+        try {
+            await(delegate.read(output));
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    @Override
+    public void readFully(ByteBuffer buffer) {
+        if (!delegate.isConnected()) {
+            throw new SocketException("Cannot read message from socket (socket not connected)");
+        }
+
+        ioLock.lock();
+        try {
+            await(delegate.readFully(buffer));
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    @Override
+    public ByteBuffer peek(int length) {
+        if (!delegate.isConnected()) {
+            throw new SocketException("Cannot peek message from socket (socket not connected)");
+        }
+
+        ioLock.lock();
+        try {
+            return await(delegate.peek(length));
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    @Override
+    public void compact() {
+        ioLock.lock();
+        try {
+            await(delegate.compact());
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    // Waiting on the future parks a virtual thread without pinning its carrier, the poller completes it.
+    // An interrupted wait cancels the operation, then waits for the kernel to acknowledge it before returning:
+    // the buffer of the caller may still be in use until then, and the next operation would race with the cancelled one
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException exception) {
+            future.cancel(true);
+            try {
+                delegate.settled().join();
+            } finally {
+                Thread.currentThread().interrupt();
+            }
+            throw new SocketException("Interrupted while waiting for socket operation", exception);
+        } catch (ExecutionException | CompletionException exception) {
+            var cause = exception.getCause();
+            if (cause instanceof SocketException socketException) {
+                throw socketException;
+            }
+
+            throw new SocketException("Socket operation failed", cause == null ? exception : cause);
+        }
+    }
+
+    @Override
+    public <V> V getOption(SocketOption<V> option) {
+        return delegate.getOption(option);
+    }
+
+    @Override
+    public <V> void setOption(SocketOption<V> option, V value) {
+        delegate.setOption(option, value);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delegate.isConnected();
+    }
+
+    @Override
+    public Optional<InetSocketAddress> address() {
+        return delegate.address();
+    }
+
+    @Override
+    public void setAddress(InetSocketAddress address) {
+        delegate.setAddress(address);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -1,36 +1,67 @@
 package it.auties.leap.socket.blocking.transportLayer.implementation;
 
 import it.auties.leap.socket.SocketException;
+import it.auties.leap.socket.SocketOption;
 import it.auties.leap.socket.SocketProtocol;
 import it.auties.leap.socket.blocking.transportLayer.BlockingSocketTransportLayerFactory;
 import it.auties.leap.socket.implementation.linux.LinuxKernel;
-import it.auties.leap.socket.implementation.linux.in_addr;
+import it.auties.leap.socket.implementation.linux.LinuxSocketOption;
 import it.auties.leap.socket.implementation.linux.sockaddr_in;
+import it.auties.leap.socket.implementation.linux.sockaddr_in6;
+import it.auties.leap.socket.implementation.linux.timeval;
 
+import java.lang.foreign.Arena;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
 import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalInt;
 
 // Io_uring
 public final class BlockingLinuxTransportSocketLayer extends BlockingNativeTransportSocketLayer<Integer> {
+    private static final StructLayout CALL_STATE_LAYOUT = Linker.Option.captureStateLayout();
+    private static final VarHandle ERRNO = CALL_STATE_LAYOUT.varHandle(MemoryLayout.PathElement.groupElement("errno"));
+    private static final MethodHandle CONNECT = Linker.nativeLinker()
+            .downcallHandle(LinuxKernel.connect$address(), LinuxKernel.connect$descriptor(), Linker.Option.captureCallState("errno"));
+    private static final int IPV4_ADDRESS_LENGTH = 4;
+    private static final int IPV6_ADDRESS_LENGTH = 16;
     private static final BlockingSocketTransportLayerFactory FACTORY = BlockingLinuxTransportSocketLayer::new;
 
     public static BlockingSocketTransportLayerFactory factory() {
         return FACTORY;
     }
 
+    // Heap buffers are staged through the native buffers: a critical downcall could pass their array directly,
+    // but it holds off the garbage collector for as long as it runs, and a blocking read can wait on the peer forever
     public BlockingLinuxTransportSocketLayer(SocketProtocol protocol) {
         super(protocol);
     }
 
+    // A dual-stack socket reaches IPv4 hosts through v4-mapped addresses, AF_INET is only used if IPv6 is disabled
     @Override
     protected Integer createNativeHandle() {
         var handle = LinuxKernel.socket(
-                LinuxKernel.AF_INET(),
+                LinuxKernel.AF_INET6(),
                 LinuxKernel.SOCK_STREAM(),
                 0
         );
+        if (handle == -1) {
+            handle = LinuxKernel.socket(
+                    LinuxKernel.AF_INET(),
+                    LinuxKernel.SOCK_STREAM(),
+                    0
+            );
+        }
         if (handle == -1) {
             throw new SocketException("Cannot create socket");
         }
@@ -44,49 +75,207 @@ public final class BlockingLinuxTransportSocketLayer extends BlockingNativeTrans
             throw new SocketException("Cannot connect to socket: unresolved host %s".formatted(address.getHostName()));
         }
 
-        initIOBuffers();
-
-        var result = LinuxKernel.connect(handle, remoteAddress.get(), (int) remoteAddress.get().byteSize());
-        if(result < 0) {
-            throw new SocketException("Cannot connect to socket: operation failed with error code " + result);
+        var error = connectWithTimeout(remoteAddress.get());
+        if(error != 0) {
+            throw new SocketException("Cannot connect to socket: operation failed with error code " + error);
         }
 
         connected.set(true);
     }
 
+    // A blocking connect honours SO_SNDTIMEO: once it expires, connect fails with EINPROGRESS but the kernel keeps the handshake going,
+    // so the socket is disconnected before the timeout is reported, or the next connect would fail with EALREADY.
+    // Any other error is the outcome of the handshake itself, even if it arrived after the deadline.
+    // The write timeout is put back right after, as it's the same option
+    private int connectWithTimeout(MemorySegment remoteAddress) {
+        if (connectTimeout == null || connectTimeout.isZero() || connectTimeout.isNegative()) {
+            return connect(remoteAddress);
+        }
+
+        setKernelTimeout(LinuxKernel.SO_SNDTIMEO(), SocketOption.connectTimeout(), connectTimeout);
+        try {
+            var error = connect(remoteAddress);
+            if (error == LinuxKernel.EINPROGRESS() || error == LinuxKernel.EAGAIN()) {
+                disconnect();
+                throw new SocketException("Cannot connect to socket: timed out after " + connectTimeout);
+            }
+
+            return error;
+        } finally {
+            setKernelTimeout(LinuxKernel.SO_SNDTIMEO(), SocketOption.writeTimeout(), writeTimeout);
+        }
+    }
+
+    // Returns the errno of the call, or zero if it succeeded
+    private int connect(MemorySegment remoteAddress) {
+        try (var arena = Arena.ofConfined()) {
+            var state = arena.allocate(CALL_STATE_LAYOUT);
+            var result = (int) CONNECT.invokeExact(state, (int) handle, remoteAddress, (int) remoteAddress.byteSize());
+            return result == 0 ? 0 : (int) ERRNO.get(state, 0L);
+        } catch (Throwable throwable) {
+            throw new SocketException("Cannot connect to socket", throwable);
+        }
+    }
+
+    // Connecting to AF_UNSPEC aborts the pending handshake and leaves the handle ready to connect again
+    private void disconnect() {
+        try (var arena = Arena.ofConfined()) {
+            var unspecified = arena.allocate(sockaddr_in.layout());
+            sockaddr_in.sin_family(unspecified, (short) LinuxKernel.AF_UNSPEC());
+            if (LinuxKernel.connect(handle, unspecified, (int) unspecified.byteSize()) != 0) {
+                LinuxKernel.shutdown(handle, LinuxKernel.SHUT_RDWR());
+            }
+        }
+    }
+
     private Optional<MemorySegment> createRemoteAddress(InetSocketAddress address) {
-        var remoteAddress = arena.allocate(sockaddr_in.layout());
-        sockaddr_in.sin_family(remoteAddress, (short) LinuxKernel.AF_INET());
-        sockaddr_in.sin_port(remoteAddress, Short.reverseBytes((short) address.getPort()));
-        var inAddr = arena.allocate(in_addr.layout());
-        var ipv4Host = getLittleEndianIPV4Host(address);
-        if (ipv4Host.isEmpty()) {
+        var host = address.getAddress();
+        if (host == null) {
             return Optional.empty();
         }
 
-        in_addr.s_addr(inAddr, ipv4Host.getAsInt());
-        sockaddr_in.sin_addr(remoteAddress, inAddr);
+        if (socketFamily() == LinuxKernel.AF_INET6()) {
+            var remoteAddress = arena.allocate(sockaddr_in6.layout());
+            sockaddr_in6.sin6_family(remoteAddress, (short) LinuxKernel.AF_INET6());
+            sockaddr_in6.sin6_port(remoteAddress, Short.reverseBytes((short) address.getPort()));
+            var remoteHost = sockaddr_in6.sin6_addr(remoteAddress);
+            if (host instanceof Inet6Address ipv6) {
+                MemorySegment.copy(ipv6.getAddress(), 0, remoteHost, ValueLayout.JAVA_BYTE, 0, IPV6_ADDRESS_LENGTH);
+                sockaddr_in6.sin6_scope_id(remoteAddress, ipv6.getScopeId());
+            } else {
+                // ::ffff:a.b.c.d
+                remoteHost.set(ValueLayout.JAVA_BYTE, 10, (byte) 0xFF);
+                remoteHost.set(ValueLayout.JAVA_BYTE, 11, (byte) 0xFF);
+                MemorySegment.copy(host.getAddress(), 0, remoteHost, ValueLayout.JAVA_BYTE, IPV6_ADDRESS_LENGTH - IPV4_ADDRESS_LENGTH, IPV4_ADDRESS_LENGTH);
+            }
+            return Optional.of(remoteAddress);
+        }
+
+        if (!(host instanceof Inet4Address)) {
+            return Optional.empty();
+        }
+
+        var remoteAddress = arena.allocate(sockaddr_in.layout());
+        sockaddr_in.sin_family(remoteAddress, (short) LinuxKernel.AF_INET());
+        sockaddr_in.sin_port(remoteAddress, Short.reverseBytes((short) address.getPort()));
+        MemorySegment.copy(host.getAddress(), 0, sockaddr_in.sin_addr(remoteAddress), ValueLayout.JAVA_BYTE, 0, IPV4_ADDRESS_LENGTH);
         return Optional.of(remoteAddress);
     }
+
+    private int socketFamily() {
+        return LinuxSocketOption.DOMAIN.get(handle).orElse(LinuxKernel.AF_INET());
+    }
     
+    @Override
+    public <V> V getOption(SocketOption<V> option) {
+        var value = LinuxSocketOption.of(option)
+                .map(kernelOption -> kernelOption.get(handle))
+                .orElseGet(OptionalInt::empty);
+        if (value.isEmpty()) {
+            return super.getOption(option);
+        }
+
+        // The kernel reports the value it's actually using: for example, buffer sizes are doubled to account for bookkeeping overhead
+        return option.parse(value.getAsInt());
+    }
+
+    @Override
+    public <V> void setOption(SocketOption<V> option, V value) {
+        Objects.requireNonNull(value, "Invalid option value");
+        // Kernels without TCP_FASTOPEN_CONNECT keep using a regular handshake
+        if (option instanceof SocketOption.TcpFastOpen && !LinuxSocketOption.of(option).orElseThrow().set(handle, option, value)) {
+            super.setOption(option, (V) Boolean.FALSE);
+            return;
+        }
+
+        var kernelOption = LinuxSocketOption.of(option);
+        if (kernelOption.isPresent()) {
+            setKernelOption(handle, kernelOption.get(), option, value);
+        }
+
+        switch (option) {
+            case SocketOption.ReadTimeout _ -> setKernelTimeout(LinuxKernel.SO_RCVTIMEO(), option, (Duration) value);
+            case SocketOption.WriteTimeout _ -> setKernelTimeout(LinuxKernel.SO_SNDTIMEO(), option, (Duration) value);
+            default -> {}
+        }
+
+        super.setOption(option, value);
+    }
+
+    @Override
+    protected boolean appliesKernelOptions() {
+        return true;
+    }
+
+    private <V> void setKernelOption(int handle, LinuxSocketOption kernelOption, SocketOption<V> option, V value) {
+        if (!kernelOption.set(handle, option, value)) {
+            throw new SocketException("Cannot set option %s to %s".formatted(option.name(), value));
+        }
+    }
+
+    // A read or write that times out fails with EAGAIN, which closes the socket like any other failed operation
+    private void setKernelTimeout(int name, SocketOption<?> option, Duration timeout) {
+        // A timeout shorter than the timer resolution would otherwise round down to no timeout at all
+        var micros = timeout.isNegative() || timeout.isZero() ? 0 : Math.max(timeout.toNanos() / 1000, 1);
+        try (var arena = Arena.ofConfined()) {
+            var value = arena.allocate(timeval.layout());
+            timeval.tv_sec(value, micros / 1_000_000);
+            timeval.tv_usec(value, micros % 1_000_000);
+            var result = LinuxKernel.setsockopt(handle, LinuxKernel.SOL_SOCKET(), name, value, (int) value.byteSize());
+            if (result != 0) {
+                throw new SocketException("Cannot set option %s to %s: error code %s".formatted(option.name(), timeout, result));
+            }
+        }
+    }
+
     @Override
     protected void writeNative(ByteBuffer data) {
         while (data.hasRemaining()) {
-            var length = Math.min(data.remaining(), writeBufferSize);
-            writeToIOBuffer(data, length);
-            var result = LinuxKernel.write(handle, writeBuffer, length);
+            var position = data.position();
+            var result = writeOnce(data);
             if(result < 0) {
                 close();
                 throw new SocketException("Cannot send message to socket (socket closed)");
             }
+
+            data.position(position + (int) result);
         }
     }
 
+    private long writeOnce(ByteBuffer data) {
+        if (data.isDirect()) {
+            return LinuxKernel.write(handle, MemorySegment.ofBuffer(data), data.remaining());
+        }
+
+        var length = Math.min(data.remaining(), writeBufferSize);
+        writeToIOBuffer(data, length);
+        return LinuxKernel.write(handle, writeBuffer, length);
+    }
+
+    @Override
+    protected boolean readsDirectly(ByteBuffer output) {
+        return output.isDirect();
+    }
+
     @Override
     protected void readNative(ByteBuffer data, boolean lastRead) {
+        if (data.isDirect()) {
+            var readLength = LinuxKernel.read(handle, MemorySegment.ofBuffer(data), data.remaining());
+            if (readLength <= 0) {
+                close();
+                throw new SocketException("Cannot receive message from socket (socket closed)");
+            }
+
+            data.position(data.position() + (int) readLength);
+            if (lastRead) {
+                data.flip();
+            }
+            return;
+        }
+
         var length = Math.min(data.remaining(), readBufferSize);
         var readLength = LinuxKernel.read(handle, readBuffer, length);
-        if (readLength == 0) {
+        if (readLength <= 0) {
             close();
             throw new SocketException("Cannot receive message from socket (socket closed)");
         }
@@ -107,5 +296,7 @@ public final class BlockingLinuxTransportSocketLayer extends BlockingNativeTrans
             LinuxKernel.shutdown(handle, LinuxKernel.SHUT_RDWR());
             LinuxKernel.close(handle);
         }
+
+        releaseReadAhead();
     }
 }
@@ -1,24 +1,27 @@
 package it.auties.leap.socket.blocking.transportLayer.implementation;
 
+import it.auties.leap.socket.SocketBufferPool;
 import it.auties.leap.socket.SocketException;
 import it.auties.leap.socket.SocketOption;
 import it.auties.leap.socket.SocketProtocol;
+import it.auties.leap.socket.SocketReadAhead;
 import it.auties.leap.socket.blocking.transportLayer.BlockingSocketTransportLayer;
 
 import java.io.IOException;
 import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.ValueLayout;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 
-// TODO: Merge on demand read/write buffer into a single length variable buffer
-//       Make merged buffer allocation on demand
+// The native buffers are leased for the duration of a call, so a connection that is not reading or writing holds no buffer
 abstract class BlockingNativeTransportSocketLayer<HANDLE extends Number> extends BlockingSocketTransportLayer {
     protected final Arena arena;
     protected final HANDLE handle;
@@ -26,20 +29,33 @@ abstract class BlockingNativeTransportSocketLayer<HANDLE extends Number> extends
     protected final AtomicBoolean connected;
     protected InetSocketAddress address;
     protected MemorySegment readBuffer;
+    protected SocketBufferPool.Lease readBufferLease;
     protected int readBufferSize;
     protected MemorySegment writeBuffer;
+    protected SocketBufferPool.Lease writeBufferLease;
     protected int writeBufferSize;
+    protected int readAheadSize;
+    protected SocketReadAhead readAhead;
     protected boolean keepAlive;
+    protected Duration connectTimeout;
+    protected Duration readTimeout;
+    protected Duration writeTimeout;
+    protected final Map<SocketOption<?>, Object> kernelOptions;
 
     public BlockingNativeTransportSocketLayer(SocketProtocol protocol) {
         super(protocol);
         this.arena = Arena.ofAuto();
+        this.kernelOptions = new ConcurrentHashMap<>();
         this.handle = createNativeHandle();
         this.ioLock = new ReentrantLock(true);
         this.connected = new AtomicBoolean(false);
         this.readBufferSize = SocketOption.readBufferSize().defaultValue();
         this.writeBufferSize = SocketOption.writeBufferSize().defaultValue();
+        this.readAheadSize = SocketOption.readAheadSize().defaultValue();
         this.keepAlive = SocketOption.keepAlive().defaultValue();
+        this.connectTimeout = SocketOption.connectTimeout().defaultValue();
+        this.readTimeout = SocketOption.readTimeout().defaultValue();
+        this.writeTimeout = SocketOption.writeTimeout().defaultValue();
     }
 
     protected abstract HANDLE createNativeHandle();
@@ -79,8 +95,10 @@ abstract class BlockingNativeTransportSocketLayer<HANDLE extends Number> extends
 
         ioLock.lock();
         try {
+            acquireWriteBuffer();
             writeNative(input);
         } finally {
+            releaseWriteBuffer();
             ioLock.unlock();
         }
     }
@@ -103,12 +121,105 @@ abstract class BlockingNativeTransportSocketLayer<HANDLE extends Number> extends
 
         ioLock.lock();
         try {
-            readNative(output, lastRead);
+            readBuffered(output, lastRead);
         } finally {
+            releaseReadBuffers();
             ioLock.unlock();
         }
     }
 
+    // Reads at least as large as the read ahead buffer go straight to the output, unless some bytes were already read ahead
+    private void readBuffered(ByteBuffer output, boolean lastRead) {
+        var readAhead = readAhead();
+        if (readAhead == null || (readAhead.isEmpty() && output.remaining() >= readAhead.capacity())) {
+            readStaged(output, lastRead);
+            return;
+        }
+
+        fillReadAhead(readAhead, 1);
+        readAhead.read(output);
+        if (lastRead) {
+            output.flip();
+        }
+    }
+
+    // The view is only valid until the bytes are consumed by a read, or moved by compact
+    @Override
+    public final ByteBuffer peek(int length) {
+        if (!connected.get()) {
+            throw new SocketException("Cannot peek message from socket (socket not connected)");
+        }
+
+        if (length < 0) {
+            throw new IllegalArgumentException("Invalid peek length: " + length);
+        }
+
+        ioLock.lock();
+        try {
+            var readAhead = readAhead();
+            if (readAhead == null) {
+                throw new SocketException("Cannot peek message from socket (read ahead is disabled)");
+            }
+
+            fillReadAhead(readAhead, length);
+            return readAhead.peek(length);
+        } finally {
+            releaseReadBuffers();
+            ioLock.unlock();
+        }
+    }
+
+    @Override
+    public final void compact() {
+        ioLock.lock();
+        try {
+            if (readAhead != null) {
+                readAhead.compact();
+            }
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    // Called with the io lock held: a read ahead buffer that still holds bytes is kept even if the option changed, so they are never lost
+    private SocketReadAhead readAhead() {
+        var current = this.readAhead;
+        if (current != null && (!current.isEmpty() || current.capacity() == readAheadSize)) {
+            return current;
+        }
+
+        if (current != null) {
+            current.release();
+        }
+
+        this.readAhead = readAheadSize > 0 ? new SocketReadAhead(readAheadSize) : null;
+        return readAhead;
+    }
+
+    // One native read pulls in as much as the socket holds and fits, so the reads that follow are served from memory
+    private void fillReadAhead(SocketReadAhead readAhead, int length) {
+        while (readAhead.available() < length) {
+            var target = readAhead.fillable(length);
+            var start = target.position();
+            readStaged(target, false);
+            readAhead.filled(target.position() - start);
+        }
+    }
+
+    // The native read buffer is only leased for reads that are staged through it:
+    // a fill of the read ahead buffer, or a read into a direct buffer, goes straight to the kernel on transports that support it
+    private void readStaged(ByteBuffer output, boolean lastRead) {
+        if (!readsDirectly(output)) {
+            acquireReadBuffer();
+        }
+
+        readNative(output, lastRead);
+    }
+
+    protected boolean readsDirectly(ByteBuffer output) {
+        return false;
+    }
+
     protected abstract void readNative(ByteBuffer output, boolean lastRead);
 
     @Override
@@ -117,6 +228,15 @@ abstract class BlockingNativeTransportSocketLayer<HANDLE extends Number> extends
             case SocketOption.KeepAlive _ -> keepAlive;
             case SocketOption.ReadBufferSize _ -> readBufferSize;
             case SocketOption.WriteBufferSize _ -> writeBufferSize;
+            case SocketOption.ReadAheadSize _ -> readAheadSize;
+            case SocketOption.ConnectTimeout _ -> connectTimeout;
+            case SocketOption.ReadTimeout _ -> readTimeout;
+            case SocketOption.WriteTimeout _ -> writeTimeout;
+            case SocketOption.TcpNoDelay _, SocketOption.ReceiveBufferSize _, SocketOption.SendBufferSize _,
+                 SocketOption.TcpQuickAck _, SocketOption.TcpCork _, SocketOption.BusyPoll _,
+                 SocketOption.TcpUserTimeout _, SocketOption.ReuseAddress _, SocketOption.ReusePort _,
+                 SocketOption.TcpFastOpen _ ->
+                    kernelOptions.getOrDefault(option, option.defaultValue());
         };
     }
 
@@ -126,9 +246,28 @@ abstract class BlockingNativeTransportSocketLayer<HANDLE extends Number> extends
             case SocketOption.KeepAlive _ -> this.keepAlive = (boolean) value;
             case SocketOption.ReadBufferSize _ -> this.readBufferSize = (int) value;
             case SocketOption.WriteBufferSize _ -> this.writeBufferSize = (int) value;
+            case SocketOption.ReadAheadSize _ -> this.readAheadSize = (int) value;
+            case SocketOption.ConnectTimeout _ -> this.connectTimeout = (Duration) value;
+            case SocketOption.ReadTimeout _ -> this.readTimeout = (Duration) value;
+            case SocketOption.WriteTimeout _ -> this.writeTimeout = (Duration) value;
+            case SocketOption.TcpNoDelay _, SocketOption.ReceiveBufferSize _, SocketOption.SendBufferSize _,
+                 SocketOption.TcpQuickAck _, SocketOption.TcpCork _, SocketOption.BusyPoll _,
+                 SocketOption.TcpUserTimeout _, SocketOption.ReuseAddress _, SocketOption.ReusePort _,
+                 SocketOption.TcpFastOpen _ -> {
+                if (!appliesKernelOptions()) {
+                    throw new SocketException("Cannot set option %s: not supported by this transport".formatted(option.name()));
+                }
+
+                kernelOptions.put(option, value);
+            }
         }
     }
 
+    // Only a transport that sets these options on its sockets keeps them: otherwise getOption would report a value that was never in effect
+    protected boolean appliesKernelOptions() {
+        return false;
+    }
+
     @Override
     public abstract void close() throws IOException;
 
@@ -138,23 +277,65 @@ abstract class BlockingNativeTransportSocketLayer<HANDLE extends Number> extends
     }
 
     protected void writeToIOBuffer(ByteBuffer input, int length) {
-        for (int i = 0; i < length; i++) {
-            writeBuffer.setAtIndex(ValueLayout.JAVA_BYTE, i, input.get());
-        }
+        MemorySegment.copy(MemorySegment.ofBuffer(input), 0, writeBuffer, 0, length);
+        input.position(input.position() + length);
     }
 
     protected void readFromIOBuffer(ByteBuffer output, int readLength, boolean lastRead) {
-        for (int i = 0; i < readLength; i++) {
-            output.put(readBuffer.getAtIndex(ValueLayout.JAVA_BYTE, i));
-        }
+        MemorySegment.copy(readBuffer, 0, MemorySegment.ofBuffer(output), 0, readLength);
+        output.position(output.position() + readLength);
         if(lastRead) {
             output.flip();
         }
     }
 
-    protected void initIOBuffers() {
-        this.readBuffer = arena.allocate(ValueLayout.JAVA_BYTE, getOption(SocketOption.readBufferSize()));
-        this.writeBuffer = arena.allocate(ValueLayout.JAVA_BYTE, getOption(SocketOption.writeBufferSize()));
+    // Called with the io lock held
+    private void acquireReadBuffer() {
+        if (readBuffer == null) {
+            this.readBufferLease = SocketBufferPool.shared().lease(readBufferSize);
+            this.readBuffer = readBufferLease.segment();
+        }
+    }
+
+    private void releaseReadBuffer() {
+        if (readBufferLease != null) {
+            readBufferLease.release();
+            this.readBufferLease = null;
+        }
+        this.readBuffer = null;
+    }
+
+    private void releaseReadBuffers() {
+        releaseReadBuffer();
+        if (readAhead != null) {
+            readAhead.releaseIfEmpty();
+        }
+    }
+
+    // Called by close after the handle was shut down, which wakes up a thread blocked on it:
+    // the bytes that were read ahead are discarded once that thread released the lock
+    protected void releaseReadAhead() {
+        ioLock.lock();
+        try {
+            if (readAhead != null) {
+                readAhead.release();
+            }
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private void acquireWriteBuffer() {
+        this.writeBufferLease = SocketBufferPool.shared().lease(writeBufferSize);
+        this.writeBuffer = writeBufferLease.segment();
+    }
+
+    private void releaseWriteBuffer() {
+        if (writeBufferLease != null) {
+            writeBufferLease.release();
+            this.writeBufferLease = null;
+        }
+        this.writeBuffer = null;
     }
 
     @Override
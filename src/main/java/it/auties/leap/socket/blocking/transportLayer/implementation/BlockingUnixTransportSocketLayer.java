@@ -75,8 +75,6 @@ public final class BlockingUnixTransportSocketLayer extends BlockingNativeTransp
             throw new SocketException("Cannot connect to socket: remote connection failure (error code: %s)".formatted(errorCode));
         }
 
-        initIOBuffers();
-
         var errorSegment = arena.allocate(ValueLayout.JAVA_INT);
         var result = UnixKernel.getsockopt(
                 handle,
@@ -146,6 +144,7 @@ public final class BlockingUnixTransportSocketLayer extends BlockingNativeTransp
         this.address = null;
         connected.set(false);
         UnixKernel.close(handle);
+        releaseReadAhead();
     }
 
     private int getErrorCode() {
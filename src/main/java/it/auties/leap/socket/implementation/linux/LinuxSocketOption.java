@@ -0,0 +1,61 @@
+package it.auties.leap.socket.implementation.linux;
+
+import it.auties.leap.socket.SocketOption;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.ValueLayout;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+// The level and name that setsockopt and getsockopt take for an option, shared by every Linux transport.
+// Option values are marshalled through a confined arena per call: the arena of a socket lives as long as the socket, so it would grow with every call
+public record LinuxSocketOption(int level, int name) {
+    public static final LinuxSocketOption DOMAIN = new LinuxSocketOption(LinuxKernel.SOL_SOCKET(), LinuxKernel.SO_DOMAIN());
+
+    // TCP_QUICKACK isn't permanent: the kernel can leave quick ack mode on its own, so it only affects the acks that follow it
+    public static Optional<LinuxSocketOption> of(SocketOption<?> option) {
+        return switch (option) {
+            case SocketOption.KeepAlive _ -> Optional.of(new LinuxSocketOption(LinuxKernel.SOL_SOCKET(), LinuxKernel.SO_KEEPALIVE()));
+            case SocketOption.TcpNoDelay _ -> Optional.of(new LinuxSocketOption(LinuxKernel.IPPROTO_TCP(), LinuxKernel.TCP_NODELAY()));
+            case SocketOption.ReceiveBufferSize _ -> Optional.of(new LinuxSocketOption(LinuxKernel.SOL_SOCKET(), LinuxKernel.SO_RCVBUF()));
+            case SocketOption.SendBufferSize _ -> Optional.of(new LinuxSocketOption(LinuxKernel.SOL_SOCKET(), LinuxKernel.SO_SNDBUF()));
+            case SocketOption.TcpQuickAck _ -> Optional.of(new LinuxSocketOption(LinuxKernel.IPPROTO_TCP(), LinuxKernel.TCP_QUICKACK()));
+            case SocketOption.TcpCork _ -> Optional.of(new LinuxSocketOption(LinuxKernel.IPPROTO_TCP(), LinuxKernel.TCP_CORK()));
+            case SocketOption.BusyPoll _ -> Optional.of(new LinuxSocketOption(LinuxKernel.SOL_SOCKET(), LinuxKernel.SO_BUSY_POLL()));
+            case SocketOption.TcpUserTimeout _ -> Optional.of(new LinuxSocketOption(LinuxKernel.IPPROTO_TCP(), LinuxKernel.TCP_USER_TIMEOUT()));
+            case SocketOption.ReuseAddress _ -> Optional.of(new LinuxSocketOption(LinuxKernel.SOL_SOCKET(), LinuxKernel.SO_REUSEADDR()));
+            case SocketOption.ReusePort _ -> Optional.of(new LinuxSocketOption(LinuxKernel.SOL_SOCKET(), LinuxKernel.SO_REUSEPORT()));
+            case SocketOption.TcpFastOpen _ -> Optional.of(new LinuxSocketOption(LinuxKernel.IPPROTO_TCP(), LinuxKernel.TCP_FASTOPEN_CONNECT()));
+            case SocketOption.ReadBufferSize _, SocketOption.WriteBufferSize _, SocketOption.ReadAheadSize _,
+                 SocketOption.ConnectTimeout _, SocketOption.ReadTimeout _, SocketOption.WriteTimeout _ -> Optional.empty();
+        };
+    }
+
+    // The kernel clamps SO_RCVBUF and SO_SNDBUF to a minimum instead of going back to its default,
+    // so a size of zero skips the call and leaves the buffer the kernel picked untouched
+    public <V> boolean set(int handle, SocketOption<V> option, V value) {
+        var rawValue = option.accept(value);
+        if (rawValue == 0 && (option instanceof SocketOption.ReceiveBufferSize || option instanceof SocketOption.SendBufferSize)) {
+            return true;
+        }
+
+        try (var arena = Arena.ofConfined()) {
+            var segment = arena.allocate(ValueLayout.JAVA_INT);
+            segment.set(ValueLayout.JAVA_INT, 0, (int) rawValue);
+            return LinuxKernel.setsockopt(handle, level, name, segment, (int) segment.byteSize()) == 0;
+        }
+    }
+
+    public OptionalInt get(int handle) {
+        try (var arena = Arena.ofConfined()) {
+            var value = arena.allocate(ValueLayout.JAVA_INT);
+            var length = arena.allocate(ValueLayout.JAVA_INT);
+            length.set(ValueLayout.JAVA_INT, 0, (int) value.byteSize());
+            if (LinuxKernel.getsockopt(handle, level, name, value, length) != 0) {
+                return OptionalInt.empty();
+            }
+
+            return OptionalInt.of(value.get(ValueLayout.JAVA_INT, 0));
+        }
+    }
+}
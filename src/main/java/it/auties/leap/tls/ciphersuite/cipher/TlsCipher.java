@@ -17,6 +17,8 @@ public sealed abstract class TlsCipher {
     protected final TlsExchangeMac authenticator;
     protected final byte[] fixedIv;
     protected boolean enabled;
+    private byte[] stagedInput;
+    private byte[] stagedOutput;
 
     protected TlsCipher(TlsCipherEngine engine, byte[] fixedIv, TlsExchangeMac authenticator) {
         /*
@@ -56,10 +58,32 @@ public sealed abstract class TlsCipher {
         return enabled;
     }
 
+    public byte[] sequenceNumber() {
+        return authenticator.sequenceNumber();
+    }
+
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
     }
 
+    // Ciphers that work on arrays stage the buffers that don't expose one, like the pooled record buffers,
+    // through arrays that are kept by the cipher and grow with the largest record it processed
+    protected final byte[] stagedInput(ByteBuffer input) {
+        var length = input.remaining();
+        if (stagedInput == null || stagedInput.length < length) {
+            stagedInput = new byte[length];
+        }
+        input.get(input.position(), stagedInput, 0, length);
+        return stagedInput;
+    }
+
+    protected final byte[] stagedOutput(int length) {
+        if (stagedOutput == null || stagedOutput.length < length) {
+            stagedOutput = new byte[length];
+        }
+        return stagedOutput;
+    }
+
     protected void addMac(ByteBuffer destination, byte contentId) {
         if(authenticator.hmac().isEmpty()) {
             authenticator.increaseSequenceNumber();
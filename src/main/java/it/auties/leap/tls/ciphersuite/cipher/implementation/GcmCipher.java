@@ -157,8 +157,7 @@ public final class GcmCipher extends TlsCipher.Block {
 
         System.out.println("Message out!\nNonce: %s\nAAD: %s".formatted(java.util.Arrays.toString(iv), java.util.Arrays.toString(aad)));
 
-        var resultLen = processBytes(input.array(), input.position(), input.remaining(), output.array(), output.position());
-        resultLen += doFinal(output.array(), output.position() + resultLen);
+        var resultLen = processBuffers(input, output);
         output.position(output.position() - (!tls13 ? dynamicIvLength(): 0));
         output.limit(output.position() + (!tls13 ? dynamicIvLength(): 0) + resultLen);
     }
@@ -197,8 +196,7 @@ public final class GcmCipher extends TlsCipher.Block {
         var aad = authenticator.createAuthenticationBlock(metadata.contentType().id(), length, null);
         processAADBytes(aad, 0, aad.length);
 
-        var resultLen = processBytes(input.array(), input.position(), input.remaining(), output.array(), output.position());
-        resultLen += doFinal(output.array(), output.position() + resultLen);
+        var resultLen = processBuffers(input, output);
 
         output.position(output.position());
         output.limit(output.position() + resultLen);
@@ -206,6 +204,23 @@ public final class GcmCipher extends TlsCipher.Block {
         return output;
     }
 
+    private int processBuffers(ByteBuffer input, ByteBuffer output) {
+        if (input.hasArray() && output.hasArray()) {
+            var inputOffset = input.arrayOffset() + input.position();
+            var outputOffset = output.arrayOffset() + output.position();
+            var resultLen = processBytes(input.array(), inputOffset, input.remaining(), output.array(), outputOffset);
+            return resultLen + doFinal(output.array(), outputOffset + resultLen);
+        }
+
+        var length = input.remaining();
+        var stagedInput = stagedInput(input);
+        var stagedOutput = stagedOutput(length + tagLength());
+        var resultLen = processBytes(stagedInput, 0, length, stagedOutput, 0);
+        resultLen += doFinal(stagedOutput, resultLen);
+        output.put(output.position(), stagedOutput, 0, resultLen);
+        return resultLen;
+    }
+
     public int doFinal(byte[] out, int outOff) {
         var macSize = tagLength();
         var BLOCK_SIZE = engine().blockLength();
@@ -97,8 +97,7 @@ public class Poly1305Cipher extends TlsCipher.Stream {
         processAADBytes(aad, 0, aad.length);
         System.out.println("IV: " + java.util.Arrays.toString(nonce));
         System.out.println("AAD: " + java.util.Arrays.toString(aad));
-        var result  = processBytes(input.array(), input.position(), input.remaining(), output.array(), output.position());
-        result += doFinal(output.array(), output.position() + result);
+        var result = processBuffers(input, output);
         output.position(output.position() + result);
         output.limit(output.position());
         output.position(initialPosition);
@@ -128,14 +127,30 @@ public class Poly1305Cipher extends TlsCipher.Stream {
         byte[] aad = authenticator.createAuthenticationBlock(metadata.contentType().id(), input.remaining() - tagLength(), null);
         processAADBytes(aad, 0, aad.length);
 
-        var result  = processBytes(input.array(), input.position(), input.remaining(), output.array(), output.position());
-        result += doFinal(output.array(), output.position() + result);
+        var result = processBuffers(input, output);
         output.limit(initialPosition + result);
         output.position(initialPosition);
 
         return output;
     }
 
+    private int processBuffers(ByteBuffer input, ByteBuffer output) {
+        if (input.hasArray() && output.hasArray()) {
+            var inputOffset = input.arrayOffset() + input.position();
+            var outputOffset = output.arrayOffset() + output.position();
+            var result = processBytes(input.array(), inputOffset, input.remaining(), output.array(), outputOffset);
+            return result + doFinal(output.array(), outputOffset + result);
+        }
+
+        var length = input.remaining();
+        var stagedInput = stagedInput(input);
+        var stagedOutput = stagedOutput(length + tagLength());
+        var result = processBytes(stagedInput, 0, length, stagedOutput, 0);
+        result += doFinal(stagedOutput, result);
+        output.put(output.position(), stagedOutput, 0, result);
+        return result;
+    }
+
     @Override
     public int ivLength() {
         return 12;
@@ -15,6 +15,7 @@ import it.auties.leap.tls.version.TlsVersion;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Optional;
 
 import static it.auties.leap.tls.util.BufferUtils.readBytes;
 import static it.auties.leap.tls.util.TlsKeyUtils.*;
@@ -355,6 +356,49 @@ public class TlsConnectionHandler {
         state.setHandshakeSecret(secret);
     }
 
+    // Derives the keys of one direction again instead of keeping them around after the ciphers are created,
+    // so that they only exist while they are handed to whoever takes over the record layer
+    public Optional<TlsConnectionTrafficKeys> exportTrafficKeys(TlsContext context, TlsSource source) {
+        var negotiatedVersion = context.getNegotiatedValue(TlsContextualProperty.version())
+                .orElseThrow(() -> new TlsAlert("Missing negotiated property: version", TlsAlertLevel.FATAL, TlsAlertType.INTERNAL_ERROR));
+        var negotiatedCipher = context.getNegotiatedValue(TlsContextualProperty.cipher())
+                .orElseThrow(() -> new TlsAlert("Missing negotiated property: cipher", TlsAlertLevel.FATAL, TlsAlertType.INTERNAL_ERROR));
+        var cipherFactory = negotiatedCipher.cipherFactory();
+        var engineFactory = negotiatedCipher.cipherEngineFactory();
+        var hashFactory = negotiatedCipher.hashFactory();
+        var state = switch (source) {
+            case LOCAL -> context.localConnectionState();
+            case REMOTE -> context.remoteConnectionState()
+                    .orElseThrow(() -> new TlsAlert("No remote connection state was created", TlsAlertLevel.FATAL, TlsAlertType.INTERNAL_ERROR));
+        };
+        if (negotiatedVersion == TlsVersion.TLS13 || negotiatedVersion == TlsVersion.DTLS13) {
+            return state.handshakeSecret().map(secret -> new TlsConnectionTrafficKeys(
+                    TlsConnectionSecret.of(hashFactory, "tls13 key", null, secret.data(), engineFactory.keyLength()),
+                    TlsConnectionSecret.of(hashFactory, "tls13 iv", null, secret.data(), cipherFactory.ivLength())
+            ));
+        }
+
+        var masterSecret = context.masterSecretKey();
+        if (masterSecret.isEmpty() || engineFactory.exportedKeyLength().isPresent()) {
+            return Optional.empty();
+        }
+
+        var macLength = cipherFactory.aead() ? 0 : hashFactory.length();
+        var keyLength = engineFactory.keyLength();
+        var ivLength = cipherFactory.aead() || negotiatedVersion.id().value() < TlsVersion.TLS11.id().value() ? cipherFactory.fixedIvLength() : 0;
+        var keyBlockLen = (macLength + keyLength + ivLength) * 2;
+        var keyBlock = generateBlock(negotiatedVersion, hashFactory, masterSecret.get().data(), getClientRandom(context), getServerRandom(context), keyBlockLen);
+        keyBlock.position(macLength * 2);
+        var clientKey = readBytes(keyBlock, keyLength);
+        var serverKey = readBytes(keyBlock, keyLength);
+        var clientIv = readBytes(keyBlock, ivLength);
+        var serverIv = readBytes(keyBlock, ivLength);
+        return Optional.of(new TlsConnectionTrafficKeys(
+                TlsConnectionSecret.of(getConnectionValue(state, clientKey, serverKey)),
+                TlsConnectionSecret.of(getConnectionValue(state, clientIv, serverIv))
+        ));
+    }
+
     protected final <T> T getConnectionValue(TlsConnection connection, T client, T server) {
         return switch (connection.type()) {
             case CLIENT -> client;
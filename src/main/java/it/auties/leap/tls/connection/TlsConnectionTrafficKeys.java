@@ -0,0 +1,15 @@
+package it.auties.leap.tls.connection;
+
+import java.util.Objects;
+
+public record TlsConnectionTrafficKeys(TlsConnectionSecret key, TlsConnectionSecret iv) {
+    public TlsConnectionTrafficKeys {
+        Objects.requireNonNull(key, "Key cannot be null");
+        Objects.requireNonNull(iv, "IV cannot be null");
+    }
+
+    public void destroy() {
+        key.destroy();
+        iv.destroy();
+    }
+}
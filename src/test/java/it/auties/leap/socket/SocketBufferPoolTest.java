@@ -0,0 +1,93 @@
+package it.auties.leap.socket;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SocketBufferPoolTest {
+    private static final long SLAB_SIZE = 2L * 1024 * 1024;
+    private static final long CAPACITY = 16 * SLAB_SIZE;
+
+    @Test
+    public void leaseHasRequestedSize() {
+        var pool = SocketBufferPool.of(CAPACITY, false);
+        try (var lease = pool.lease(1000)) {
+            assertEquals(1000, lease.segment().byteSize());
+            assertEquals(1000, lease.asByteBuffer().capacity());
+            assertTrue(lease.asByteBuffer().isDirect());
+        }
+    }
+
+    @Test
+    public void sizesInTheSameClassShareASlab() {
+        var pool = SocketBufferPool.of(CAPACITY, false);
+        var first = pool.lease(3000);
+        var second = pool.lease(4096);
+        assertEquals(SLAB_SIZE, pool.reserved());
+        assertEquals(4096, Math.abs(first.segment().address() - second.segment().address()));
+        first.release();
+        second.release();
+    }
+
+    @Test
+    public void sizesInDifferentClassesUseDifferentSlabs() {
+        var pool = SocketBufferPool.of(CAPACITY, false);
+        var small = pool.lease(4096);
+        var large = pool.lease(4097);
+        assertEquals(2 * SLAB_SIZE, pool.reserved());
+        small.release();
+        large.release();
+    }
+
+    @Test
+    public void releasedChunkIsReused() {
+        var pool = SocketBufferPool.of(CAPACITY, false);
+        var first = pool.lease(8192);
+        var address = first.segment().address();
+        first.release();
+        var second = pool.lease(8192);
+        assertEquals(address, second.segment().address());
+        assertEquals(SLAB_SIZE, pool.reserved());
+        second.release();
+    }
+
+    @Test
+    public void releaseIsIdempotent() {
+        var pool = SocketBufferPool.of(CAPACITY, false);
+        var lease = pool.lease(4096);
+        lease.release();
+        lease.release();
+        assertTrue(lease.isReleased());
+        var first = pool.lease(4096);
+        var second = pool.lease(4096);
+        assertNotEquals(first.segment().address(), second.segment().address());
+        first.release();
+        second.release();
+    }
+
+    @Test
+    public void exhaustedPoolOverflows() {
+        var pool = SocketBufferPool.of(0, false);
+        try (var lease = pool.lease(4096)) {
+            assertEquals(4096, lease.segment().byteSize());
+            assertTrue(lease.asByteBuffer().isDirect());
+        }
+        assertEquals(0, pool.reserved());
+    }
+
+    @Test
+    public void oversizedLeaseOverflows() {
+        var pool = SocketBufferPool.of(CAPACITY, false);
+        try (var lease = pool.lease(2 * 1024 * 1024)) {
+            assertEquals(2 * 1024 * 1024, lease.segment().byteSize());
+        }
+        assertEquals(0, pool.reserved());
+    }
+
+    @Test
+    public void invalidSizeIsRejected() {
+        var pool = SocketBufferPool.of(CAPACITY, false);
+        assertThrows(IllegalArgumentException.class, () -> pool.lease(0));
+        assertThrows(IllegalArgumentException.class, () -> SocketBufferPool.of(-1, false));
+    }
+}
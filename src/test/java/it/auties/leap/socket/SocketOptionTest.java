@@ -0,0 +1,47 @@
+package it.auties.leap.socket;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SocketOptionTest {
+    @Test
+    public void sizesRoundTrip() {
+        assertEquals(65536, SocketOption.receiveBufferSize().accept(65536));
+        assertEquals(131072, SocketOption.receiveBufferSize().parse(131072));
+        assertEquals(4096, SocketOption.readBufferSize().parse(SocketOption.readBufferSize().accept(4096)));
+        assertEquals(0, SocketOption.sendBufferSize().accept(null));
+    }
+
+    @Test
+    public void booleansRoundTrip() {
+        assertEquals(1, SocketOption.tcpNoDelay().accept(true));
+        assertEquals(0, SocketOption.tcpNoDelay().accept(false));
+        assertEquals(0, SocketOption.keepAlive().accept(null));
+        assertTrue(SocketOption.reusePort().parse(1));
+        assertTrue(SocketOption.tcpFastOpen().parse(42));
+        assertFalse(SocketOption.tcpCork().parse(0));
+    }
+
+    @Test
+    public void timeoutsAreInMilliseconds() {
+        assertEquals(1500, SocketOption.tcpUserTimeout().accept(Duration.ofMillis(1500)));
+        assertEquals(Duration.ofSeconds(2), SocketOption.readTimeout().parse(2000));
+        assertEquals(0, SocketOption.connectTimeout().accept(null));
+    }
+
+    @Test
+    public void busyPollIsInMicroseconds() {
+        assertEquals(50, SocketOption.busyPoll().accept(Duration.ofNanos(50_999)));
+        assertEquals(Duration.ofNanos(50_000), SocketOption.busyPoll().parse(50));
+    }
+
+    @Test
+    public void readAheadIsDisabledByDefault() {
+        assertEquals(0, SocketOption.readAheadSize().defaultValue());
+        assertEquals(0, SocketOption.receiveBufferSize().defaultValue());
+        assertEquals(0, SocketOption.sendBufferSize().defaultValue());
+    }
+}
@@ -0,0 +1,110 @@
+package it.auties.leap.socket;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SocketReadAheadTest {
+    @Test
+    public void peekDoesNotConsume() {
+        var readAhead = new SocketReadAhead(16);
+        fill(readAhead, 1, 2, 3, 4);
+        var view = readAhead.peek(3);
+        assertTrue(view.isReadOnly());
+        assertEquals(3, view.remaining());
+        assertEquals(1, view.get(0));
+        assertEquals(3, view.get(2));
+        assertEquals(4, readAhead.available());
+        readAhead.release();
+    }
+
+    @Test
+    public void readConsumesInOrder() {
+        var readAhead = new SocketReadAhead(16);
+        fill(readAhead, 1, 2, 3, 4, 5);
+        var output = ByteBuffer.allocate(3);
+        assertEquals(3, readAhead.read(output));
+        assertArrayEquals(new byte[]{1, 2, 3}, output.array());
+        assertEquals(2, readAhead.available());
+        assertEquals(4, readAhead.peek(1).get(0));
+        readAhead.release();
+    }
+
+    @Test
+    public void skipResetsOnceEmpty() {
+        var readAhead = new SocketReadAhead(8);
+        fill(readAhead, 1, 2, 3, 4);
+        readAhead.skip(4);
+        assertTrue(readAhead.isEmpty());
+        assertEquals(8, readAhead.fillable(8).remaining());
+        readAhead.release();
+    }
+
+    @Test
+    public void compactMovesUnreadBytesToTheStart() {
+        var readAhead = new SocketReadAhead(8);
+        fill(readAhead, 1, 2, 3, 4, 5, 6);
+        readAhead.skip(4);
+        assertEquals(2, readAhead.fillable(1).remaining());
+        readAhead.compact();
+        assertEquals(6, readAhead.fillable(1).remaining());
+        assertEquals(5, readAhead.peek(2).get(0));
+        assertEquals(6, readAhead.peek(2).get(1));
+        readAhead.release();
+    }
+
+    @Test
+    public void fillableCompactsWhenRequiredBytesDoNotFit() {
+        var readAhead = new SocketReadAhead(8);
+        fill(readAhead, 1, 2, 3, 4, 5, 6);
+        readAhead.skip(5);
+        var target = readAhead.fillable(4);
+        assertEquals(1, target.position());
+        assertEquals(7, target.remaining());
+        assertEquals(6, readAhead.peek(1).get(0));
+        readAhead.release();
+    }
+
+    @Test
+    public void releaseIfEmptyKeepsUnreadBytes() {
+        var readAhead = new SocketReadAhead(8);
+        fill(readAhead, 1, 2);
+        readAhead.releaseIfEmpty();
+        assertEquals(2, readAhead.available());
+        assertEquals(1, readAhead.peek(1).get(0));
+        readAhead.skip(2);
+        readAhead.releaseIfEmpty();
+        assertTrue(readAhead.isEmpty());
+    }
+
+    @Test
+    public void releaseDiscardsUnreadBytes() {
+        var readAhead = new SocketReadAhead(8);
+        fill(readAhead, 1, 2, 3);
+        readAhead.release();
+        assertTrue(readAhead.isEmpty());
+        assertEquals(0, readAhead.available());
+    }
+
+    @Test
+    public void invalidLengthsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SocketReadAhead(0));
+        var readAhead = new SocketReadAhead(4);
+        assertThrows(IllegalArgumentException.class, () -> readAhead.fillable(5));
+        fill(readAhead, 1, 2);
+        assertThrows(IllegalArgumentException.class, () -> readAhead.peek(3));
+        assertThrows(IllegalArgumentException.class, () -> readAhead.skip(3));
+        assertThrows(IllegalArgumentException.class, () -> readAhead.filled(3));
+        readAhead.release();
+    }
+
+    private static void fill(SocketReadAhead readAhead, int... values) {
+        var target = readAhead.fillable(values.length);
+        for (var value : values) {
+            target.put((byte) value);
+        }
+        readAhead.filled(values.length);
+    }
+}
@@ -0,0 +1,36 @@
+package it.auties.leap.socket.async;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncSocketIOTest {
+    @Test
+    public void scatterFlipsEveryBufferThatReceivedData() {
+        var first = ByteBuffer.allocate(2);
+        var full = ByteBuffer.allocate(0);
+        var second = ByteBuffer.allocate(4);
+        var untouched = ByteBuffer.allocate(4);
+        AsyncSocketIO.scatter(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5}), first, full, second, untouched);
+        assertEquals(0, first.position());
+        assertEquals(2, first.limit());
+        assertEquals(1, first.get(0));
+        assertEquals(0, second.position());
+        assertEquals(3, second.limit());
+        assertEquals(3, second.get(0));
+        assertEquals(0, untouched.position());
+        assertEquals(4, untouched.limit());
+    }
+
+    @Test
+    public void scatterKeepsWhatDoesNotFit() {
+        var source = ByteBuffer.wrap(new byte[]{1, 2, 3});
+        var buffer = ByteBuffer.allocate(2);
+        AsyncSocketIO.scatter(source, buffer);
+        assertEquals(2, buffer.remaining());
+        assertEquals(1, source.remaining());
+        assertEquals(3, source.get());
+    }
+}
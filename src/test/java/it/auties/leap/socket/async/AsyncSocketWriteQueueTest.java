@@ -0,0 +1,237 @@
+package it.auties.leap.socket.async;
+
+import it.auties.leap.socket.SocketOption;
+import it.auties.leap.socket.SocketProtocol;
+import it.auties.leap.socket.async.transportLayer.AsyncSocketTransportLayer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncSocketWriteQueueTest {
+    @Test
+    public void writesAreSentInOrder() throws Exception {
+        var target = new RecordingTransport(false);
+        var queue = new AsyncSocketWriteQueue(target, AsyncSocketWriteQueueConfig.defaults());
+        var first = queue.write(buffer(1));
+        var second = queue.write(buffer(2));
+        var transfer = queue.submit(() -> target.write(buffer(3)));
+        var third = queue.write(buffer(4), buffer(5));
+        target.completeAll();
+        CompletableFuture.allOf(first, second, transfer, third).get(5, TimeUnit.SECONDS);
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, target.written());
+    }
+
+    @Test
+    public void writesQueuedDuringASendShareTheNextBatch() throws Exception {
+        var target = new RecordingTransport(false);
+        var queue = new AsyncSocketWriteQueue(target, AsyncSocketWriteQueueConfig.defaults());
+        var first = queue.write(buffer(1));
+        var second = queue.write(buffer(2));
+        var third = queue.write(buffer(3));
+        assertEquals(List.of(1), target.batchSizes());
+        assertFalse(first.isDone());
+        target.completeAll();
+        CompletableFuture.allOf(first, second, third).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(1, 2), target.batchSizes());
+    }
+
+    @Test
+    public void batchStopsAtMaxBatchBuffers() throws Exception {
+        var target = new RecordingTransport(false);
+        var config = AsyncSocketWriteQueueConfig.builder()
+                .maxBatchBuffers(2)
+                .build();
+        var queue = new AsyncSocketWriteQueue(target, config);
+        var writes = List.of(
+                queue.write(buffer(1)),
+                queue.write(buffer(2)),
+                queue.write(buffer(3)),
+                queue.write(buffer(4))
+        );
+        target.completeAll();
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(1, 2, 1), target.batchSizes());
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, target.written());
+    }
+
+    @Test
+    public void batchStopsAtMaxBatchBytes() throws Exception {
+        var target = new RecordingTransport(false);
+        var config = AsyncSocketWriteQueueConfig.builder()
+                .maxBatchBytes(8)
+                .build();
+        var queue = new AsyncSocketWriteQueue(target, config);
+        var writes = List.of(
+                queue.write(buffer(1, 1, 1, 1)),
+                queue.write(buffer(2, 2, 2, 2)),
+                queue.write(buffer(3, 3, 3, 3)),
+                queue.write(buffer(4, 4, 4, 4)),
+                queue.write(buffer(5, 5, 5, 5, 5, 5, 5, 5, 5))
+        );
+        target.completeAll();
+        CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(1, 2, 1, 1), target.batchSizes());
+    }
+
+    @Test
+    public void flushLatencyGathersLaterWrites() throws Exception {
+        var target = new RecordingTransport(true);
+        var config = AsyncSocketWriteQueueConfig.builder()
+                .flushLatency(Duration.ofMillis(200))
+                .build();
+        var queue = new AsyncSocketWriteQueue(target, config);
+        var first = queue.write(buffer(1));
+        var second = queue.write(buffer(2));
+        assertTrue(target.batchSizes().isEmpty());
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(2), target.batchSizes());
+        assertArrayEquals(new byte[]{1, 2}, target.written());
+    }
+
+    @Test
+    public void failedBatchFailsEveryWriteInIt() {
+        var target = new RecordingTransport(false);
+        var queue = new AsyncSocketWriteQueue(target, AsyncSocketWriteQueueConfig.defaults());
+        var first = queue.write(buffer(1));
+        var second = queue.write(buffer(2));
+        var third = queue.write(buffer(3));
+        target.completeNext();
+        target.failNext(new IllegalStateException("write failed"));
+        assertDoesNotThrow(() -> first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.isCompletedExceptionally());
+        assertTrue(third.isCompletedExceptionally());
+    }
+
+    private static ByteBuffer buffer(int... values) {
+        var buffer = ByteBuffer.allocate(values.length);
+        for (var value : values) {
+            buffer.put((byte) value);
+        }
+        return buffer.flip();
+    }
+
+    // Records every vectored write as one batch, and completes it right away or once the test says so
+    private static final class RecordingTransport extends AsyncSocketTransportLayer {
+        private final boolean completeImmediately;
+        private final List<Integer> batchSizes;
+        private final List<CompletableFuture<Void>> pending;
+        private final ByteArrayOutputStream written;
+
+        private RecordingTransport(boolean completeImmediately) {
+            super(SocketProtocol.TCP);
+            this.completeImmediately = completeImmediately;
+            this.batchSizes = new CopyOnWriteArrayList<>();
+            this.pending = new CopyOnWriteArrayList<>();
+            this.written = new ByteArrayOutputStream();
+        }
+
+        @Override
+        public CompletableFuture<Void> write(ByteBuffer... buffers) {
+            batchSizes.add(buffers.length);
+            return record(buffers);
+        }
+
+        @Override
+        public CompletableFuture<Void> write(ByteBuffer buffer) {
+            return record(buffer);
+        }
+
+        private CompletableFuture<Void> record(ByteBuffer... buffers) {
+            synchronized (written) {
+                for (var buffer : buffers) {
+                    while (buffer.hasRemaining()) {
+                        written.write(buffer.get());
+                    }
+                }
+            }
+
+            if (completeImmediately) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            var future = new CompletableFuture<Void>();
+            pending.add(future);
+            return future;
+        }
+
+        // Completing a batch can send the next one, which adds a new pending future
+        private void completeAll() {
+            while (!pending.isEmpty()) {
+                completeNext();
+            }
+        }
+
+        private void completeNext() {
+            pending.removeFirst().complete(null);
+        }
+
+        private void failNext(Throwable error) {
+            pending.removeFirst().completeExceptionally(error);
+        }
+
+        private List<Integer> batchSizes() {
+            return List.copyOf(batchSizes);
+        }
+
+        private byte[] written() {
+            synchronized (written) {
+                return written.toByteArray();
+            }
+        }
+
+        @Override
+        public CompletableFuture<Void> connect(InetSocketAddress address) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> read(ByteBuffer buffer) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> readFully(ByteBuffer buffer) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public Optional<InetSocketAddress> address() {
+            return Optional.empty();
+        }
+
+        @Override
+        public void setAddress(InetSocketAddress address) {
+
+        }
+
+        @Override
+        public <V> V getOption(SocketOption<V> option) {
+            return option.defaultValue();
+        }
+
+        @Override
+        public <V> void setOption(SocketOption<V> option, V value) {
+
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
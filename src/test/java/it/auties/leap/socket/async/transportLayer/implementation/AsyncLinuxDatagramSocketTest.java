@@ -0,0 +1,104 @@
+package it.auties.leap.socket.async.transportLayer.implementation;
+
+import it.auties.leap.socket.SocketDatagram;
+import it.auties.leap.socket.async.transportLayer.AsyncLinuxDatagramConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Loopback delivers every datagram, so the batches can be checked exactly
+@EnabledOnOs(OS.LINUX)
+public class AsyncLinuxDatagramSocketTest {
+    @Test
+    public void batchRoundTripsWithPeerAddress() throws Exception {
+        try (var receiver = bound(AsyncLinuxDatagramConfig.defaults()); var sender = bound(AsyncLinuxDatagramConfig.defaults())) {
+            var target = receiver.localAddress().orElseThrow();
+            sender.send(List.of(
+                    new SocketDatagram(target, payload(1, 2, 3)),
+                    new SocketDatagram(target, payload(4, 5)),
+                    new SocketDatagram(target, payload(6))
+            )).get(5, TimeUnit.SECONDS);
+            var received = receive(receiver, 3);
+            assertArrayEquals(new byte[]{1, 2, 3}, bytes(received.get(0)));
+            assertArrayEquals(new byte[]{4, 5}, bytes(received.get(1)));
+            assertArrayEquals(new byte[]{6}, bytes(received.get(2)));
+            var source = sender.localAddress().orElseThrow();
+            for (var datagram : received) {
+                assertEquals(source, datagram.address());
+                assertFalse(datagram.truncated());
+            }
+        }
+    }
+
+    @Test
+    public void oversizedDatagramIsTruncated() throws Exception {
+        var config = AsyncLinuxDatagramConfig.builder()
+                .maxDatagramSize(16)
+                .build();
+        try (var receiver = bound(config); var sender = bound(AsyncLinuxDatagramConfig.defaults())) {
+            sender.send(new SocketDatagram(receiver.localAddress().orElseThrow(), ByteBuffer.allocate(64)))
+                    .get(5, TimeUnit.SECONDS);
+            var received = receive(receiver, 1).getFirst();
+            assertTrue(received.truncated());
+            assertEquals(16, received.payload().remaining());
+        }
+    }
+
+    @Test
+    public void segmentedPayloadIsSplitIntoDatagrams() throws Exception {
+        try (var receiver = bound(AsyncLinuxDatagramConfig.defaults()); var sender = bound(AsyncLinuxDatagramConfig.defaults())) {
+            var payload = ByteBuffer.allocate(2500);
+            for (var index = 0; index < payload.capacity(); index++) {
+                payload.put(index, (byte) (index / 1000));
+            }
+            sender.send(new SocketDatagram(receiver.localAddress().orElseThrow(), payload, 1000))
+                    .get(5, TimeUnit.SECONDS);
+            var received = receive(receiver, 3);
+            assertEquals(1000, received.get(0).payload().remaining());
+            assertEquals(1000, received.get(1).payload().remaining());
+            assertEquals(500, received.get(2).payload().remaining());
+            for (var index = 0; index < received.size(); index++) {
+                assertEquals(index, received.get(index).payload().get(0));
+                assertEquals(0, received.get(index).segmentSize());
+            }
+        }
+    }
+
+    private static AsyncLinuxDatagramSocket bound(AsyncLinuxDatagramConfig config) {
+        var socket = AsyncLinuxDatagramSocket.open(config);
+        socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        return socket;
+    }
+
+    private static List<SocketDatagram> receive(AsyncLinuxDatagramSocket socket, int count) throws Exception {
+        var received = new ArrayList<SocketDatagram>();
+        while (received.size() < count) {
+            received.addAll(socket.receive().get(5, TimeUnit.SECONDS));
+        }
+        return received;
+    }
+
+    private static ByteBuffer payload(int... values) {
+        var buffer = ByteBuffer.allocate(values.length);
+        for (var value : values) {
+            buffer.put((byte) value);
+        }
+        return buffer.flip();
+    }
+
+    private static byte[] bytes(SocketDatagram datagram) {
+        var payload = datagram.payload().duplicate();
+        var bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,46 @@
+package it.auties.leap.socket.async.transportLayer.implementation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Loading the transport binds the Linux kernel functions
+@EnabledOnOs(OS.LINUX)
+public class AsyncLinuxNativeTransportSocketLayerTest {
+    @Test
+    public void candidatesAlternateFamiliesStartingWithIpv6() throws UnknownHostException {
+        var v4a = ipv4(1);
+        var v4b = ipv4(2);
+        var v4c = ipv4(3);
+        var v6a = ipv6(1);
+        var v6b = ipv6(2);
+        var candidates = AsyncLinuxNativeTransportSocketLayer.interleaveCandidates(new InetAddress[]{v4a, v4b, v6a, v4c, v6b});
+        assertEquals(List.of(v6a, v4a, v6b, v4b, v4c), candidates);
+    }
+
+    @Test
+    public void singleFamilyKeepsResolverOrder() throws UnknownHostException {
+        var first = ipv4(1);
+        var second = ipv4(2);
+        assertEquals(List.of(first, second), AsyncLinuxNativeTransportSocketLayer.interleaveCandidates(new InetAddress[]{first, second}));
+        assertEquals(List.of(), AsyncLinuxNativeTransportSocketLayer.interleaveCandidates(new InetAddress[0]));
+    }
+
+    private static InetAddress ipv4(int last) throws UnknownHostException {
+        return InetAddress.getByAddress(new byte[]{10, 0, 0, (byte) last});
+    }
+
+    private static InetAddress ipv6(int last) throws UnknownHostException {
+        var address = new byte[16];
+        address[0] = 0x20;
+        address[1] = 0x01;
+        address[15] = (byte) last;
+        return InetAddress.getByAddress(address);
+    }
+}